@@ -7,6 +7,7 @@ import net.dongliu.dbutils.mapper.RowMapper;
 import org.jetbrains.annotations.Nullable;
 
 import java.sql.*;
+import java.time.Duration;
 import java.util.*;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -16,6 +17,19 @@ import static java.util.Objects.requireNonNull;
 abstract class AbstractQueryContext<S extends AbstractQueryContext<S>> {
     private String[] keyColumns = emptyColumn;
     private int fetchSize = 0;
+    private long maxRows = 0;
+    private long maxBytes = 0;
+    private long timeoutNanos = 0;
+    private int prefetchBlockSize = 0;
+    private int prefetchBlocks = 0;
+    @Nullable
+    private String clause;
+    // the fingerprint of clause, for tuner; computed once
+    private String tuningKey;
+    @Nullable
+    private LeakDetector leakDetector;
+    @Nullable
+    private ExecutorSettings settings;
 
     private static final String[] emptyColumn = {};
 
@@ -42,6 +56,139 @@ abstract class AbstractQueryContext<S extends AbstractQueryContext<S>> {
         return (S) this;
     }
 
+    /**
+     * Set the max rows of query result. Default 0, means using the default value of Database.
+     * Once the result has more rows, the statement is cancelled, and ResultLimitExceededException is thrown.
+     * The limit is also passed to jdbc driver by Statement.setLargeMaxRows.
+     */
+    @SuppressWarnings("unchecked")
+    public S maxRows(long maxRows) {
+        if (maxRows < 0) {
+            throw new IllegalArgumentException("illegal max rows: " + maxRows);
+        }
+        this.maxRows = maxRows;
+        return (S) this;
+    }
+
+    /**
+     * Set the max estimated bytes of query result. Default 0, means using the default value of Database.
+     * Row bytes is estimated from column types. Once the result exceeds this, the statement is cancelled, and
+     * ResultLimitExceededException is thrown.
+     */
+    @SuppressWarnings("unchecked")
+    public S maxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("illegal max bytes: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        return (S) this;
+    }
+
+    /**
+     * Set the timeout of query, including acquiring connection, executing, and fetching result. Default not set,
+     * means using the default value of Database. The timeout is passed to driver by Statement.setQueryTimeout, and the
+     * statement is cancelled if it is still running after timeout.
+     * If a thread-local {@link Deadline} is set, the timeout is shrunk to the remaining time of deadline.
+     */
+    @SuppressWarnings("unchecked")
+    public S timeout(Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("illegal timeout: " + timeout);
+        }
+        this.timeoutNanos = timeout.toNanos();
+        return (S) this;
+    }
+
+    /**
+     * Read ahead rows of {@link #asStream(RowMapper)} from a background thread, so fetching rows from database overlaps
+     * with processing them. Default not enabled.
+     * <p>
+     * The background thread copies column values into a ring of blocks, each holding blockSize rows; at most blocks
+     * blocks are filled ahead, bounding the memory used. Blob and Clob values are copied into memory. Getters with
+     * Calendar or type map, getAsciiStream, and getString of blob or long binary columns, are not supported when
+     * mapping rows.
+     * Closing the stream stops the background thread, and cancels the statement if rows remain.
+     * <p>
+     * Not applied to queries running on a shared connection, in transaction or pinned by withConnection, as reading in
+     * background thread or cancelling the statement would interfere with other statements on the connection.
+     *
+     * @param blockSize rows in one block
+     * @param blocks    the number of blocks, at least 2
+     */
+    @SuppressWarnings("unchecked")
+    public S prefetch(int blockSize, int blocks) {
+        if (blockSize < 1 || blocks < 2) {
+            throw new IllegalArgumentException("illegal prefetch block size or blocks: " + blockSize + ", " + blocks);
+        }
+        this.prefetchBlockSize = blockSize;
+        this.prefetchBlocks = blocks;
+        return (S) this;
+    }
+
+    /**
+     * Apply database default settings, for values not set. The result limits are applied separately by
+     * {@link #applyDefaultLimits}.
+     */
+    @SuppressWarnings("unchecked")
+    S applySettings(ExecutorSettings settings) {
+        if (timeoutNanos == 0) {
+            timeoutNanos = settings.timeoutNanos;
+        }
+        leakDetector = settings.leakDetector;
+        this.settings = settings;
+        return (S) this;
+    }
+
+    /**
+     * Apply database default result limits, for values not set. Only for queries; the generated keys of inserts are
+     * not limited, as the rows are already inserted when keys are read.
+     */
+    @SuppressWarnings("unchecked")
+    S applyDefaultLimits(ExecutorSettings settings) {
+        if (maxRows == 0) {
+            maxRows = settings.maxRows;
+        }
+        if (maxBytes == 0) {
+            maxBytes = settings.maxBytes;
+        }
+        return (S) this;
+    }
+
+    /**
+     * Set the sql clause, for diagnosing
+     */
+    @SuppressWarnings("unchecked")
+    S clause(String clause) {
+        this.clause = clause;
+        this.tuningKey = null;
+        return (S) this;
+    }
+
+    /**
+     * The sql clause, null if not set
+     */
+    @Nullable
+    String clause() {
+        return clause;
+    }
+
+    /**
+     * Copy options set to another context
+     */
+    void copyOptionsTo(AbstractQueryContext<?> context) {
+        context.keyColumns = keyColumns;
+        context.fetchSize = fetchSize;
+        context.maxRows = maxRows;
+        context.maxBytes = maxBytes;
+        context.timeoutNanos = timeoutNanos;
+        context.prefetchBlockSize = prefetchBlockSize;
+        context.prefetchBlocks = prefetchBlocks;
+        context.clause = clause;
+        context.tuningKey = tuningKey;
+        context.leakDetector = leakDetector;
+        context.settings = settings;
+    }
+
     /**
      * Handler result with single row or no row, and return converted value
      */
@@ -51,7 +198,8 @@ abstract class AbstractQueryContext<S extends AbstractQueryContext<S>> {
             if (!rs.next()) {
                 return null;
             }
-            T value = mapper.map(columnNamesProvider(rs), rs);
+            ResultColumns provider = columnNamesProvider(rs);
+            T value = bind(mapper, provider, rs).map(provider, rs);
             if (rs.next()) {
                 throw new TooManyResultException(1);
             }
@@ -65,11 +213,15 @@ abstract class AbstractQueryContext<S extends AbstractQueryContext<S>> {
     protected <T> List<T> convertToList(RowMapper<T> mapper) {
         return handle(rs -> {
             List<T> list = new ArrayList<>();
-            ColumnNamesProvider provider = columnNamesProvider(rs);
-            while (rs.next()) {
-                T value = mapper.map(provider, rs);
-                list.add(value);
+            if (!rs.next()) {
+                return list;
             }
+            ResultColumns provider = columnNamesProvider(rs);
+            RowMapper<T> boundMapper = bind(mapper, provider, rs);
+            do {
+                T value = boundMapper.map(provider, rs);
+                list.add(value);
+            } while (rs.next());
             return list;
         });
     }
@@ -77,11 +229,18 @@ abstract class AbstractQueryContext<S extends AbstractQueryContext<S>> {
     /**
      * Handler result, and return converted values
      */
+    @SuppressWarnings("try")
     public <T> T handle(ResultSetHandler<T> handler) {
-        try (MyConnection conn = retrieveConnection();
-             PreparedStatement statement = prepare(fetchSize, keyColumns, conn)) {
-            try (ResultSet resultSet = execute(fetchSize, statement)) {
-                return handler.handle(resultSet);
+        long start = System.nanoTime();
+        try (MyConnection conn = retrieveConnection()) {
+            int fetchSize = requestedFetchSize();
+            int driverFetchSize = driverFetchSize(conn, fetchSize);
+            try (PreparedStatement statement = prepare(driverFetchSize, keyColumns, conn);
+                 StatementTimer timer = StatementTimer.start(statement, start, timeoutNanos)) {
+                applyLimits(statement);
+                try (ResultSet resultSet = tune(execute(driverFetchSize, statement), fetchSize)) {
+                    return handler.handle(limit(resultSet, statement));
+                }
             }
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
@@ -93,15 +252,19 @@ abstract class AbstractQueryContext<S extends AbstractQueryContext<S>> {
      * Make sure stream is closed when no longer used.
      */
     public <T> Stream<T> asStream(RowMapper<T> mapper) {
+        long start = System.nanoTime();
         MyConnection conn;
         try {
             conn = retrieveConnection();
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
         }
+        int fetchSize = requestedFetchSize();
+        int driverFetchSize;
         PreparedStatement statement;
         try {
-            statement = prepare(fetchSize, keyColumns, conn);
+            driverFetchSize = driverFetchSize(conn, fetchSize);
+            statement = prepare(driverFetchSize, keyColumns, conn);
         } catch (SQLException e) {
             close(e, conn);
             throw new UncheckedSQLException(e);
@@ -110,31 +273,147 @@ abstract class AbstractQueryContext<S extends AbstractQueryContext<S>> {
             throw t;
         }
 
+        StatementTimer timer;
         ResultSet resultSet;
         try {
-            resultSet = execute(fetchSize, statement);
+            timer = StatementTimer.start(statement, start, timeoutNanos);
+        } catch (SQLException e) {
+            close(e, statement, conn);
+            throw new UncheckedSQLException(e);
+        } catch (Throwable t) {
+            close(t, statement, conn);
+            throw t;
+        }
+        try {
+            applyLimits(statement);
+            resultSet = prefetch(limit(tune(execute(driverFetchSize, statement), fetchSize), statement), statement,
+                    conn);
         } catch (SQLException e) {
+            timer.close();
             close(e, statement, conn);
             throw new UncheckedSQLException(e);
         } catch (Throwable t) {
+            timer.close();
             close(t, statement, conn);
             throw t;
         }
-        return asStream(resultSet, mapper, statement, conn);
+        return asStream(resultSet, mapper, timer, statement, conn);
     }
 
     /**
      * Wrap resultSet as stream. Make sure stream is closed when no longer used.
      */
-    private <T> Stream<T> asStream(ResultSet resultSet, RowMapper<T> mapper, Statement statement, MyConnection conn) {
+    private <T> Stream<T> asStream(ResultSet resultSet, RowMapper<T> mapper, StatementTimer timer,
+                                   Statement statement, MyConnection conn) {
         Iterator<T> iterator = asIterator(resultSet, mapper);
         Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, 0);
         Stream<T> stream = StreamSupport.stream(spliterator, false);
-        return stream.onClose(wrapRunnable(resultSet::close))
+        if (leakDetector != null) {
+            // track the iterator, which is reachable as long as the stream, or the iterator got from it, is in use
+            LeakDetector.Tracker tracker = leakDetector.track(iterator, "Stream", clause, resultSet, statement, conn);
+            stream = stream.onClose(tracker::closed);
+        }
+        return stream.onClose(timer::close)
+                .onClose(wrapRunnable(resultSet::close))
                 .onClose(wrapRunnable(statement::close))
                 .onClose(wrapRunnable(conn::close));
     }
 
+    /**
+     * The fetch size set by user, else the fetch size learned by tuner, 0 if neither
+     */
+    private int requestedFetchSize() {
+        if (fetchSize > 0) {
+            return fetchSize;
+        }
+        AdaptiveTuner tuner = tuner();
+        return tuner == null ? fetchSize : tuner.fetchSize(tuningKey());
+    }
+
+    /**
+     * The tuner, null if not set, or the fetch size is replaced by dialect so tuning it is useless
+     */
+    @Nullable
+    private AdaptiveTuner tuner() {
+        AdaptiveTuner tuner = settings == null ? null : settings.tuner;
+        if (tuner == null || clause == null) {
+            return null;
+        }
+        Dialect dialect = settings.dialect;
+        String url = settings.url;
+        if (dialect != null && url != null && dialect.replacesFetchSize(url)) {
+            return null;
+        }
+        return tuner;
+    }
+
+    private String tuningKey() {
+        if (tuningKey == null) {
+            tuningKey = SQLFingerprint.of(clause);
+        }
+        return tuningKey;
+    }
+
+    /**
+     * The fetch size passed to driver, which makes driver stream result for the requested fetch size
+     */
+    private int driverFetchSize(MyConnection conn, int fetchSize) throws SQLException {
+        if (fetchSize <= 0 || settings == null) {
+            return fetchSize;
+        }
+        Dialect dialect = settings.dialect;
+        String url = settings.url;
+        if (dialect == null || url == null) {
+            return fetchSize;
+        }
+        return dialect.prepareStreaming(conn, fetchSize, url);
+    }
+
+    /**
+     * Wrap ResultSet for reporting statistics to tuner, if tuner is set
+     */
+    private ResultSet tune(ResultSet resultSet, int fetchSize) {
+        AdaptiveTuner tuner = tuner();
+        if (tuner == null || resultSet == null) {
+            return resultSet;
+        }
+        return new TuningResultSet(resultSet, tuner, tuningKey(), fetchSize);
+    }
+
+    /**
+     * Wrap ResultSet for reading ahead from background thread, if prefetch is enabled and connection not shared
+     */
+    private ResultSet prefetch(ResultSet resultSet, Statement statement, MyConnection conn) throws SQLException {
+        if (prefetchBlocks == 0 || resultSet == null || conn.isShared()) {
+            return resultSet;
+        }
+        PrefetchResultSet prefetched;
+        try {
+            prefetched = new PrefetchResultSet(resultSet, statement, prefetchBlockSize, prefetchBlocks);
+        } catch (SQLException | RuntimeException e) {
+            try {
+                resultSet.close();
+            } catch (Throwable t) {
+                e.addSuppressed(t);
+            }
+            throw e;
+        }
+        return prefetched.start();
+    }
+
+    private void applyLimits(Statement statement) throws SQLException {
+        if (maxRows > 0) {
+            LimitedResultSet.setMaxRows(statement, maxRows);
+        }
+    }
+
+    private ResultSet limit(ResultSet resultSet, Statement statement) {
+        if (maxRows == 0 && maxBytes == 0) {
+            return resultSet;
+        }
+        return new LimitedResultSet(resultSet, statement, maxRows, maxBytes);
+    }
+
     private static void close(Throwable t, Connection connection) {
         try {
             connection.close();
@@ -173,8 +452,9 @@ abstract class AbstractQueryContext<S extends AbstractQueryContext<S>> {
     }
 
     protected <T> Iterator<T> asIterator(ResultSet rs, RowMapper<T> mapper) {
-        ColumnNamesProvider provider = columnNamesProvider(rs);
+        ResultColumns provider = columnNamesProvider(rs);
         return new Iterator<T>() {
+            RowMapper<T> boundMapper;
             int row = 0;
             boolean hasNext;
             boolean inspected;
@@ -203,7 +483,10 @@ abstract class AbstractQueryContext<S extends AbstractQueryContext<S>> {
                 }
                 row++;
                 try {
-                    T value = mapper.map(provider, rs);
+                    if (boundMapper == null) {
+                        boundMapper = bind(mapper, provider, rs);
+                    }
+                    T value = boundMapper.map(provider, rs);
                     inspected = false;
                     return value;
                 } catch (SQLException e) {
@@ -213,23 +496,86 @@ abstract class AbstractQueryContext<S extends AbstractQueryContext<S>> {
         };
     }
 
-    private ColumnNamesProvider columnNamesProvider(ResultSet rs) {
-        return new ColumnNamesProvider() {
-            private String[] names;
+    ResultColumns columnNamesProvider(ResultSet rs) {
+        return new ResultColumns(rs);
+    }
 
-            @Override
-            public String[] get() throws SQLException {
-                if (names == null) {
-                    names = getColumnNames(rs);
-                }
-                return names;
+    /**
+     * The column names of result, from cache if column cache enabled
+     */
+    String[] getColumnNames(ResultSet rs) throws SQLException {
+        return new ResultColumns(rs).get();
+    }
+
+    /**
+     * Bind mapper to result, or get the cached bound mapper if column cache enabled
+     */
+    <T> RowMapper<T> bind(RowMapper<T> mapper, ResultColumns columns, ResultSet rs) throws SQLException {
+        if (ColumnCache.cacheable(mapper)) {
+            ColumnCache.Entry entry = columns.entry();
+            if (entry != null) {
+                return entry.bind(mapper, columns, rs);
             }
-        };
+        }
+        return mapper.bind(columns, rs);
+    }
+
+    /**
+     * The column names of a result, and its column cache entry. Resolved once and lazily, so ResultSetMetaData is read
+     * at most once for an execution.
+     */
+    class ResultColumns implements ColumnNamesProvider {
+        private final ResultSet rs;
+        private String[] names;
+        @Nullable
+        private ColumnCache.Entry entry;
+
+        private ResultColumns(ResultSet rs) {
+            this.rs = rs;
+        }
+
+        @Override
+        public String[] get() throws SQLException {
+            resolve();
+            return names;
+        }
+
+        /**
+         * The column cache entry of this sql, validated by column count. Null if cache disabled
+         */
+        @Nullable
+        ColumnCache.Entry entry() throws SQLException {
+            resolve();
+            return entry;
+        }
+
+        private void resolve() throws SQLException {
+            if (names != null) {
+                return;
+            }
+            ResultSetMetaData metaData = rs.getMetaData();
+            int count = metaData.getColumnCount();
+            entry = columnCacheEntry(metaData, count);
+            names = entry != null ? entry.names() : readColumnNames(metaData, count);
+        }
+    }
+
+    @Nullable
+    private ColumnCache.Entry columnCacheEntry(ResultSetMetaData metaData, int count) throws SQLException {
+        ColumnCache cache = settings == null ? null : settings.columnCache;
+        if (cache == null || clause == null) {
+            return null;
+        }
+        // keys result differs by key columns
+        String key = keyColumns.length == 0 ? clause : clause + '\0' + String.join(",", keyColumns);
+        ColumnCache.Entry entry = cache.get(key, count);
+        if (entry == null) {
+            entry = cache.put(key, readColumnNames(metaData, count));
+        }
+        return entry;
     }
 
-    private String[] getColumnNames(ResultSet rs) throws SQLException {
-        ResultSetMetaData metaData = rs.getMetaData();
-        int count = metaData.getColumnCount();
+    private static String[] readColumnNames(ResultSetMetaData metaData, int count) throws SQLException {
         String[] names = new String[count];
         for (int i = 1; i <= count; i++) {
             String columnName = metaData.getColumnLabel(i);
@@ -0,0 +1,273 @@
+package net.dongliu.dbutils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tune fetch size of queries and chunk size of batches, for each sql fingerprint, from observed row width and
+ * round-trip latency.
+ * <p>
+ * Fetch size is moved toward the rows fitting in target bytes per round-trip, and not more than the rows usually
+ * returned, as some drivers allocate buffers by fetch size. Batch chunk size is searched by doubling or halving, toward
+ * lower latency per row, capped by target bytes per round-trip.
+ * <p>
+ * Only applied to queries without fetch size set, to batchUpdate in transactions, and to upsert / batchInsertBeans.
+ * Fetch size is not tuned for MySQL without useCursorFetch, whose driver only streams with fetch size
+ * Integer.MIN_VALUE. Statistics are kept for at most 1024 sql fingerprints, and are all dropped when exceeded.
+ * Set by {@link Database#tuner(AdaptiveTuner)}.
+ *
+ * @author Liu Dong
+ */
+public class AdaptiveTuner {
+    private static final int maxEntries = 1024;
+
+    private volatile long targetBytes = 1024 * 1024;
+    private volatile int maxFetchSize = 10000;
+    private volatile int minBatchSize = 16;
+    private volatile int maxBatchSize = 5000;
+    private volatile int initialBatchSize = 256;
+
+    private final ConcurrentHashMap<String, Stats> statsMap = new ConcurrentHashMap<>();
+
+    /**
+     * The target bytes transferred in one round-trip. Default 1MB
+     */
+    public AdaptiveTuner targetBytes(long targetBytes) {
+        if (targetBytes <= 0) {
+            throw new IllegalArgumentException("illegal target bytes: " + targetBytes);
+        }
+        this.targetBytes = targetBytes;
+        return this;
+    }
+
+    /**
+     * The upper bound of fetch size. Default 10000
+     */
+    public AdaptiveTuner maxFetchSize(int maxFetchSize) {
+        if (maxFetchSize <= 0) {
+            throw new IllegalArgumentException("illegal max fetch size: " + maxFetchSize);
+        }
+        this.maxFetchSize = maxFetchSize;
+        return this;
+    }
+
+    /**
+     * The bounds of batch chunk size, and the size for first batch. Default 16, 5000, and 256
+     */
+    public AdaptiveTuner batchSize(int min, int max, int initial) {
+        if (min <= 0 || max < min || initial < min || initial > max) {
+            throw new IllegalArgumentException("illegal batch sizes: " + min + ", " + max + ", " + initial);
+        }
+        this.minBatchSize = min;
+        this.maxBatchSize = max;
+        this.initialBatchSize = initial;
+        return this;
+    }
+
+    /**
+     * The learned values, by sql fingerprint. The map is a live view.
+     */
+    public Map<String, Stats> stats() {
+        return Collections.unmodifiableMap(statsMap);
+    }
+
+    /**
+     * The learned values for sql
+     *
+     * @return null if no statistics for the sql
+     */
+    public Stats stats(String clause) {
+        return statsMap.get(SQLFingerprint.of(clause));
+    }
+
+    private Stats statsOf(String key) {
+        Stats stats = statsMap.get(key);
+        if (stats != null) {
+            return stats;
+        }
+        if (statsMap.size() >= maxEntries) {
+            // sqls with literals not recognized may fill the map, just start over
+            statsMap.clear();
+        }
+        return statsMap.computeIfAbsent(key, k -> new Stats());
+    }
+
+    /**
+     * The fetch size to use for query, 0 if not learned yet
+     *
+     * @param key the fingerprint of sql, by {@link SQLFingerprint#of(String)}
+     */
+    int fetchSize(String key) {
+        Stats stats = statsMap.get(key);
+        return stats == null ? 0 : stats.fetchSize;
+    }
+
+    /**
+     * Record a finished query
+     *
+     * @param key        the fingerprint of sql
+     * @param rowWidth   estimated bytes of one row
+     * @param rows       rows read
+     * @param fetchSize  the fetch size used, 0 if driver default used
+     * @param fetchNanos the time spent in fetching rows by ResultSet.next
+     */
+    void recordQuery(String key, int rowWidth, long rows, int fetchSize, long fetchNanos) {
+        Stats stats = statsOf(key);
+        synchronized (stats) {
+            stats.queries++;
+            stats.rowWidth = rowWidth;
+            stats.avgRows = stats.queries == 1 ? rows : ewma(stats.avgRows, rows);
+            // at least one round-trip
+            long roundTrips = 1 + (fetchSize > 0 ? rows / fetchSize : 0);
+            stats.roundTripNanos = ewma(stats.roundTripNanos, fetchNanos / roundTrips);
+
+            long target = targetBytes / Math.max(1, rowWidth);
+            // no need to fetch more than the rows usually returned
+            target = Math.min(target, (long) Math.ceil(stats.avgRows) + 1);
+            target = Math.max(1, Math.min(target, maxFetchSize));
+            int current = stats.fetchSize == 0 ? (int) target : stats.fetchSize;
+            // move half way, to smooth out outliers
+            stats.fetchSize = (int) Math.max(1, (current + target) / 2);
+        }
+    }
+
+    /**
+     * The chunk size for batch
+     *
+     * @param key the fingerprint of sql
+     */
+    int batchSize(String key) {
+        Stats stats = statsMap.get(key);
+        return stats == null || stats.batchSize == 0 ? initialBatchSize : stats.batchSize;
+    }
+
+    /**
+     * Record a executed batch chunk
+     *
+     * @param key      the fingerprint of sql
+     * @param rows     rows in this chunk
+     * @param rowBytes estimated bytes of params per row, averaged over the chunk
+     * @param nanos    the time executing this chunk
+     */
+    void recordBatch(String key, int rows, int rowBytes, long nanos) {
+        Stats stats = statsOf(key);
+        synchronized (stats) {
+            stats.batches++;
+            stats.roundTripNanos = ewma(stats.roundTripNanos, nanos);
+            int size = stats.batchSize == 0 ? initialBatchSize : stats.batchSize;
+            if (rows < size) {
+                // the last chunk of a batch, not comparable
+                return;
+            }
+            double nanosPerRow = (double) nanos / rows;
+            if (stats.lastNanosPerRow > 0 && nanosPerRow > stats.lastNanosPerRow) {
+                // got worse, reverse the direction
+                stats.growing = !stats.growing;
+            }
+            stats.lastNanosPerRow = nanosPerRow;
+            long next = stats.growing ? (long) size * 2 : size / 2;
+            long cap = targetBytes / Math.max(1, rowBytes);
+            next = Math.max(minBatchSize, Math.min(next, Math.min(maxBatchSize, cap)));
+            stats.batchSize = (int) next;
+        }
+    }
+
+    private static double ewma(double average, double value) {
+        return average == 0 ? value : average * 0.8 + value * 0.2;
+    }
+
+    private static long ewma(long average, long value) {
+        return average == 0 ? value : (average * 4 + value) / 5;
+    }
+
+    /**
+     * Estimate the bytes of batch params of one row
+     */
+    static int estimateParamBytes(Object[] params) {
+        int bytes = 0;
+        for (Object param : params) {
+            if (param == null) {
+                bytes += 1;
+            } else if (param instanceof CharSequence) {
+                bytes += ((CharSequence) param).length() + 4;
+            } else if (param instanceof byte[]) {
+                bytes += ((byte[]) param).length + 4;
+            } else {
+                bytes += 8;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * The learned values of one sql
+     */
+    public static class Stats {
+        private volatile int fetchSize;
+        private volatile int batchSize;
+        private volatile int rowWidth;
+        private volatile double avgRows;
+        private volatile long roundTripNanos;
+        private volatile long queries;
+        private volatile long batches;
+        // for batch size searching
+        private double lastNanosPerRow;
+        private boolean growing = true;
+
+        /**
+         * The tuned fetch size, 0 if not tuned
+         */
+        public int fetchSize() {
+            return fetchSize;
+        }
+
+        /**
+         * The tuned batch chunk size, 0 if not tuned
+         */
+        public int batchSize() {
+            return batchSize;
+        }
+
+        /**
+         * Estimated bytes of one result row
+         */
+        public int rowWidth() {
+            return rowWidth;
+        }
+
+        /**
+         * Average rows of query result
+         */
+        public double avgRows() {
+            return avgRows;
+        }
+
+        /**
+         * Average latency of one round-trip, in nanos
+         */
+        public long roundTripNanos() {
+            return roundTripNanos;
+        }
+
+        /**
+         * Count of queries recorded
+         */
+        public long queries() {
+            return queries;
+        }
+
+        /**
+         * Count of batch chunks recorded
+         */
+        public long batches() {
+            return batches;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{fetchSize=" + fetchSize + ", batchSize=" + batchSize + ", rowWidth=" + rowWidth
+                    + ", avgRows=" + avgRows + ", roundTripNanos=" + roundTripNanos + "}";
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package net.dongliu.dbutils;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.TimeMilliVector;
+import org.apache.arrow.vector.TimeStampMicroVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.ipc.ArrowWriter;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardOpenOption.*;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Export query results as Apache Arrow record batches, or IPC stream / file.
+ * <pre>{@code
+ * ArrowExporter.of(database.query("select * from item")).export(channel, ArrowFormat.stream());
+ * }</pre>
+ * Arrow types and column writers are chosen once from ResultSetMetaData, and values are read by typed ResultSet
+ * getters and set into vectors directly, no Record or boxed value is created for each cell.
+ * <p>
+ * Date is stored as days since epoch, time as milliseconds of day, and timestamp as microseconds of wall-clock time
+ * without time zone, as the JDBC types have no time zone either.
+ * <p>
+ * This requires arrow-vector, and an Arrow memory implementation such as arrow-memory-netty in classpath. Arrow is an
+ * optional dependency, only this class refers to it.
+ *
+ * @author Liu Dong
+ */
+public class ArrowExporter {
+    private final QueryContext context;
+
+    private ArrowExporter(QueryContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Create exporter for the query. The query is executed by each export call.
+     */
+    public static ArrowExporter of(QueryContext context) {
+        return new ArrowExporter(requireNonNull(context));
+    }
+
+    /**
+     * Export query result as Arrow IPC stream or file to channel, by record batches of the format's batch size.
+     * The channel is not closed after exported.
+     *
+     * @return the row count exported
+     */
+    public long export(WritableByteChannel channel, ArrowFormat format) {
+        requireNonNull(channel);
+        requireNonNull(format);
+        return context.handle(rs -> {
+            try {
+                return new VectorFiller(context.getColumnNames(rs), rs.getMetaData()).export(rs, channel, format);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Export query result as Arrow IPC stream or file. If file already exists, it is truncated.
+     *
+     * @return the row count exported
+     * @see #export(WritableByteChannel, ArrowFormat)
+     */
+    public long export(Path file, ArrowFormat format) {
+        try (FileChannel channel = FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            return export(channel, format);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Read query result into Arrow vectors by batches, and pass the filled VectorSchemaRoot to consumer.
+     * The root is reused for next batch, and closed after all rows were read, so its data should be consumed or
+     * transferred before consumer returns.
+     *
+     * @param allocator the allocator for vector buffers
+     * @param batchSize the max row count of each batch
+     * @return the total row count
+     */
+    public long forEachBatch(BufferAllocator allocator, int batchSize, Consumer<VectorSchemaRoot> consumer) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("illegal batch size: " + batchSize);
+        }
+        requireNonNull(allocator);
+        requireNonNull(consumer);
+        return context.handle(rs -> new VectorFiller(context.getColumnNames(rs), rs.getMetaData())
+                .forEachBatch(rs, allocator, batchSize, consumer));
+    }
+
+    /**
+     * Fill ResultSet rows into vectors of the schema resolved from ResultSetMetaData
+     */
+    private static class VectorFiller {
+        private final Schema schema;
+        private final ColumnWriter[] writers;
+
+        VectorFiller(String[] names, ResultSetMetaData metaData) throws SQLException {
+            List<Field> fields = new ArrayList<>(names.length);
+            this.writers = new ColumnWriter[names.length];
+            for (int i = 0; i < names.length; i++) {
+                int column = i + 1;
+                ArrowType type = arrowType(metaData, column);
+                boolean nullable = metaData.isNullable(column) != ResultSetMetaData.columnNoNulls;
+                fields.add(new Field(names[i], new FieldType(nullable, type, null), null));
+                writers[i] = columnWriter(type);
+            }
+            this.schema = new Schema(fields);
+        }
+
+        /**
+         * Read rows into a batch for each time, and pass the filled root to consumer.
+         *
+         * @return the total row count
+         */
+        long forEachBatch(ResultSet rs, BufferAllocator allocator, int batchSize, Consumer<VectorSchemaRoot> consumer)
+                throws SQLException {
+            try (VectorSchemaRoot root = VectorSchemaRoot.create(schema, allocator)) {
+                long total = 0;
+                while (true) {
+                    int rows = fill(rs, root, batchSize);
+                    if (rows == 0) {
+                        break;
+                    }
+                    consumer.accept(root);
+                    total += rows;
+                    if (rows < batchSize) {
+                        break;
+                    }
+                }
+                return total;
+            }
+        }
+
+        /**
+         * Write all rows as Arrow IPC data.
+         *
+         * @return the row count exported
+         */
+        long export(ResultSet rs, WritableByteChannel channel, ArrowFormat format) throws SQLException, IOException {
+            try (BufferAllocator allocator = new RootAllocator();
+                 VectorSchemaRoot root = VectorSchemaRoot.create(schema, allocator);
+                 ArrowWriter writer = format.isFile() ? new ArrowFileWriter(root, null, channel)
+                         : new ArrowStreamWriter(root, null, channel)) {
+                writer.start();
+                long total = 0;
+                int batchSize = format.batchSize();
+                while (true) {
+                    int rows = fill(rs, root, batchSize);
+                    if (rows == 0) {
+                        break;
+                    }
+                    writer.writeBatch();
+                    total += rows;
+                    if (rows < batchSize) {
+                        break;
+                    }
+                }
+                writer.end();
+                return total;
+            }
+        }
+
+        /**
+         * Fill at most batchSize rows into root, return the row count filled.
+         */
+        private int fill(ResultSet rs, VectorSchemaRoot root, int batchSize) throws SQLException {
+            List<FieldVector> vectors = root.getFieldVectors();
+            FieldVector[] columns = vectors.toArray(new FieldVector[0]);
+            for (FieldVector vector : columns) {
+                vector.setInitialCapacity(batchSize);
+            }
+            root.allocateNew();
+            int rows = 0;
+            while (rows < batchSize && rs.next()) {
+                for (int i = 0; i < columns.length; i++) {
+                    writers[i].write(rs, i + 1, columns[i], rows);
+                }
+                rows++;
+            }
+            root.setRowCount(rows);
+            return rows;
+        }
+    }
+
+    private static ArrowType arrowType(ResultSetMetaData metaData, int column) throws SQLException {
+        boolean signed = metaData.isSigned(column);
+        switch (metaData.getColumnType(column)) {
+            case Types.BIGINT:
+                return signed ? new ArrowType.Int(64, true) : new ArrowType.Decimal(20, 0, 128);
+            case Types.INTEGER:
+                return new ArrowType.Int(signed ? 32 : 64, true);
+            case Types.SMALLINT:
+                return new ArrowType.Int(signed ? 16 : 32, true);
+            case Types.TINYINT:
+                return new ArrowType.Int(signed ? 8 : 16, true);
+            case Types.BOOLEAN:
+                return ArrowType.Bool.INSTANCE;
+            case Types.BIT:
+                return metaData.getPrecision(column) <= 1 ? ArrowType.Bool.INSTANCE : ArrowType.Binary.INSTANCE;
+            case Types.REAL:
+                return new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE);
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                int precision = metaData.getPrecision(column);
+                int scale = metaData.getScale(column);
+                if (precision <= 0 || precision > 38 || scale < 0 || scale > precision) {
+                    // unknown or too large precision, keep as text
+                    return ArrowType.Utf8.INSTANCE;
+                }
+                return new ArrowType.Decimal(precision, scale, 128);
+            case Types.DATE:
+                return new ArrowType.Date(DateUnit.DAY);
+            case Types.TIME:
+                return new ArrowType.Time(TimeUnit.MILLISECOND, 32);
+            case Types.TIMESTAMP:
+                return new ArrowType.Timestamp(TimeUnit.MICROSECOND, null);
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return ArrowType.Binary.INSTANCE;
+            default:
+                // string types, and others which have a string representation
+                return ArrowType.Utf8.INSTANCE;
+        }
+    }
+
+    private static ColumnWriter columnWriter(ArrowType type) {
+        switch (type.getTypeID()) {
+            case Int:
+                switch (((ArrowType.Int) type).getBitWidth()) {
+                    case 64:
+                        return ArrowExporter::writeBigInt;
+                    case 32:
+                        return ArrowExporter::writeInt;
+                    case 16:
+                        return ArrowExporter::writeSmallInt;
+                    default:
+                        return ArrowExporter::writeTinyInt;
+                }
+            case Bool:
+                return ArrowExporter::writeBit;
+            case FloatingPoint:
+                return ((ArrowType.FloatingPoint) type).getPrecision() == FloatingPointPrecision.SINGLE
+                        ? ArrowExporter::writeFloat4 : ArrowExporter::writeFloat8;
+            case Decimal:
+                return ArrowExporter::writeDecimal;
+            case Date:
+                return ArrowExporter::writeDate;
+            case Time:
+                return ArrowExporter::writeTime;
+            case Timestamp:
+                return ArrowExporter::writeTimestamp;
+            case Binary:
+                return ArrowExporter::writeBinary;
+            default:
+                return ArrowExporter::writeString;
+        }
+    }
+
+    private static void writeBigInt(ResultSet rs, int column, FieldVector vector, int index) throws SQLException {
+        long value = rs.getLong(column);
+        if (rs.wasNull()) {
+            ((BigIntVector) vector).setNull(index);
+        } else {
+            ((BigIntVector) vector).setSafe(index, value);
+        }
+    }
+
+    private static void writeInt(ResultSet rs, int column, FieldVector vector, int index) throws SQLException {
+        int value = rs.getInt(column);
+        if (rs.wasNull()) {
+            ((IntVector) vector).setNull(index);
+        } else {
+            ((IntVector) vector).setSafe(index, value);
+        }
+    }
+
+    private static void writeSmallInt(ResultSet rs, int column, FieldVector vector, int index) throws SQLException {
+        short value = rs.getShort(column);
+        if (rs.wasNull()) {
+            ((SmallIntVector) vector).setNull(index);
+        } else {
+            ((SmallIntVector) vector).setSafe(index, value);
+        }
+    }
+
+    private static void writeTinyInt(ResultSet rs, int column, FieldVector vector, int index) throws SQLException {
+        byte value = rs.getByte(column);
+        if (rs.wasNull()) {
+            ((TinyIntVector) vector).setNull(index);
+        } else {
+            ((TinyIntVector) vector).setSafe(index, value);
+        }
+    }
+
+    private static void writeBit(ResultSet rs, int column, FieldVector vector, int index) throws SQLException {
+        boolean value = rs.getBoolean(column);
+        if (rs.wasNull()) {
+            ((BitVector) vector).setNull(index);
+        } else {
+            ((BitVector) vector).setSafe(index, value ? 1 : 0);
+        }
+    }
+
+    private static void writeFloat4(ResultSet rs, int column, FieldVector vector, int index) throws SQLException {
+        float value = rs.getFloat(column);
+        if (rs.wasNull()) {
+            ((Float4Vector) vector).setNull(index);
+        } else {
+            ((Float4Vector) vector).setSafe(index, value);
+        }
+    }
+
+    private static void writeFloat8(ResultSet rs, int column, FieldVector vector, int index) throws SQLException {
+        double value = rs.getDouble(column);
+        if (rs.wasNull()) {
+            ((Float8Vector) vector).setNull(index);
+        } else {
+            ((Float8Vector) vector).setSafe(index, value);
+        }
+    }
+
+    private static void writeDecimal(ResultSet rs, int column, FieldVector vector, int index) throws SQLException {
+        BigDecimal value = rs.getBigDecimal(column);
+        if (value == null) {
+            ((DecimalVector) vector).setNull(index);
+        } else {
+            DecimalVector decimalVector = (DecimalVector) vector;
+            decimalVector.setSafe(index, value.setScale(decimalVector.getScale(), RoundingMode.UNNECESSARY));
+        }
+    }
+
+    private static void writeDate(ResultSet rs, int column, FieldVector vector, int index) throws SQLException {
+        Date value = rs.getDate(column);
+        if (value == null) {
+            ((DateDayVector) vector).setNull(index);
+        } else {
+            ((DateDayVector) vector).setSafe(index, (int) value.toLocalDate().toEpochDay());
+        }
+    }
+
+    private static void writeTime(ResultSet rs, int column, FieldVector vector, int index) throws SQLException {
+        Time value = rs.getTime(column);
+        if (value == null) {
+            ((TimeMilliVector) vector).setNull(index);
+        } else {
+            ((TimeMilliVector) vector).setSafe(index, (int) (value.toLocalTime().toNanoOfDay() / 1_000_000));
+        }
+    }
+
+    private static void writeTimestamp(ResultSet rs, int column, FieldVector vector, int index)
+            throws SQLException {
+        Timestamp value = rs.getTimestamp(column);
+        if (value == null) {
+            ((TimeStampMicroVector) vector).setNull(index);
+        } else {
+            LocalDateTime dateTime = value.toLocalDateTime();
+            long micros = dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1000;
+            ((TimeStampMicroVector) vector).setSafe(index, micros);
+        }
+    }
+
+    private static void writeBinary(ResultSet rs, int column, FieldVector vector, int index) throws SQLException {
+        byte[] value = rs.getBytes(column);
+        if (value == null) {
+            ((VarBinaryVector) vector).setNull(index);
+        } else {
+            ((VarBinaryVector) vector).setSafe(index, value);
+        }
+    }
+
+    private static void writeString(ResultSet rs, int column, FieldVector vector, int index) throws SQLException {
+        String value = rs.getString(column);
+        if (value == null) {
+            ((VarCharVector) vector).setNull(index);
+        } else {
+            ((VarCharVector) vector).setSafe(index, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @FunctionalInterface
+    private interface ColumnWriter {
+        void write(ResultSet rs, int column, FieldVector vector, int index) throws SQLException;
+    }
+}
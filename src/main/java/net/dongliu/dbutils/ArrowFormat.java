@@ -0,0 +1,58 @@
+package net.dongliu.dbutils;
+
+/**
+ * Apache Arrow IPC format for exporting query results. This class is immutable.
+ * <ul>
+ * <li>stream: the Arrow IPC streaming format, can be read sequentially</li>
+ * <li>file: the Arrow IPC file format, with footer for random access to record batches</li>
+ * </ul>
+ *
+ * @author Liu Dong
+ */
+public class ArrowFormat {
+    private final boolean fileFormat;
+    private final int batchSize;
+
+    private ArrowFormat(boolean fileFormat, int batchSize) {
+        this.fileFormat = fileFormat;
+        this.batchSize = batchSize;
+    }
+
+    private static final ArrowFormat stream = new ArrowFormat(false, 8192);
+    private static final ArrowFormat file = new ArrowFormat(true, 8192);
+
+    /**
+     * Arrow IPC streaming format, with 8192 rows for each record batch.
+     */
+    public static ArrowFormat stream() {
+        return stream;
+    }
+
+    /**
+     * Arrow IPC file format, with 8192 rows for each record batch.
+     */
+    public static ArrowFormat file() {
+        return file;
+    }
+
+    /**
+     * Return a new format, with the max row count of each record batch
+     */
+    public ArrowFormat withBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("illegal batch size: " + batchSize);
+        }
+        return new ArrowFormat(fileFormat, batchSize);
+    }
+
+    /**
+     * If is file format, else stream format
+     */
+    public boolean isFile() {
+        return fileFormat;
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+}
@@ -0,0 +1,243 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.exception.BeanMappingException;
+import net.dongliu.dbutils.mapper.BeanMapper;
+import net.dongliu.dbutils.mapping.BeanMapping;
+import net.dongliu.dbutils.mapping.Property;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bind bean properties to insert/update statement params, by MethodHandle getters compiled once per class, or by the
+ * mapper generated at compile time if present.
+ * Primitive properties are bound by setLong/setInt etc. without boxing. The generated sqls are cached per table.
+ * Column names are the Column annotation values or the property names, not converted to snake case.
+ */
+class BeanBinder {
+    private static final ClassValue<BeanBinder> cache = new ClassValue<BeanBinder>() {
+        @Override
+        protected BeanBinder computeValue(Class<?> type) {
+            BeanMapper<?> generated = BeanMapper.generated(type);
+            if (generated != null) {
+                return new BeanBinder(generated);
+            }
+            return new BeanBinder(BeanMapping.getBeanMapping(type));
+        }
+    };
+
+    private final String[] columns;
+    private final String[] properties;
+    @Nullable
+    private final Binding[] bindings;
+    @Nullable
+    private final BeanMapper<Object> generated;
+    private final ConcurrentHashMap<String, String> insertClauses = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Update> updates = new ConcurrentHashMap<>();
+
+    private BeanBinder(BeanMapping mapping) {
+        List<String> columns = new ArrayList<>(mapping.columnNames());
+        if (columns.isEmpty()) {
+            throw new BeanMappingException("No property to bind");
+        }
+        this.columns = columns.toArray(new String[0]);
+        this.properties = new String[columns.size()];
+        this.bindings = new Binding[columns.size()];
+        for (int i = 0; i < bindings.length; i++) {
+            bindings[i] = new Binding(mapping.getProperty(columns.get(i)));
+            properties[i] = bindings[i].property.name();
+        }
+        this.generated = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private BeanBinder(BeanMapper<?> generated) {
+        this.columns = generated.columns();
+        this.properties = generated.properties();
+        if (columns.length == 0) {
+            throw new BeanMappingException("No property to bind");
+        }
+        this.bindings = null;
+        this.generated = (BeanMapper<Object>) generated;
+    }
+
+    static BeanBinder of(Class<?> cls) {
+        return cache.get(cls);
+    }
+
+    /**
+     * The insert sql for table, with all bean properties as columns
+     */
+    String insertClause(String table) {
+        return insertClauses.computeIfAbsent(table, t -> "INSERT INTO " + t + " (" + String.join(", ", columns)
+                + ") VALUES (" + String.join(", ", Arrays.asList(placeholders(columns.length))) + ")");
+    }
+
+    private static String[] placeholders(int size) {
+        String[] placeholders = new String[size];
+        Arrays.fill(placeholders, "?");
+        return placeholders;
+    }
+
+    /**
+     * Bind all properties as params, in the order of insert sql
+     */
+    void bindInsert(PreparedStatement stmt, Object bean) throws SQLException {
+        for (int i = 0; i < columns.length; i++) {
+            bind(stmt, i + 1, bean, i);
+        }
+    }
+
+    private void bind(PreparedStatement stmt, int paramIndex, Object bean, int column) throws SQLException {
+        if (generated != null) {
+            generated.setParam(stmt, paramIndex, bean, column);
+        } else {
+            bindings[column].bind(stmt, paramIndex, bean);
+        }
+    }
+
+    /**
+     * The update sql for table, which set non-key columns by key columns
+     *
+     * @param keys the column names or property names of keys
+     */
+    Update update(String table, String[] keys) {
+        return updates.computeIfAbsent(table + '\0' + String.join("\0", keys), k -> newUpdate(table, keys));
+    }
+
+    private Update newUpdate(String table, String[] keys) {
+        if (keys.length == 0) {
+            throw new IllegalArgumentException("key properties not set");
+        }
+        int[] keyIndexes = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keyIndexes[i] = indexOf(keys[i]);
+        }
+        int[] order = new int[columns.length];
+        StringBuilder sb = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        int p = 0;
+        for (int i = 0; i < columns.length; i++) {
+            int index = i;
+            if (Arrays.stream(keyIndexes).anyMatch(k -> k == index)) {
+                continue;
+            }
+            if (p > 0) {
+                sb.append(", ");
+            }
+            sb.append(columns[i]).append(" = ?");
+            order[p++] = i;
+        }
+        if (p == 0) {
+            throw new IllegalArgumentException("no non-key property to update");
+        }
+        sb.append(" WHERE ");
+        for (int i = 0; i < keyIndexes.length; i++) {
+            if (i > 0) {
+                sb.append(" AND ");
+            }
+            sb.append(columns[keyIndexes[i]]).append(" = ?");
+            order[p++] = keyIndexes[i];
+        }
+        return new Update(sb.toString(), Arrays.copyOf(order, p));
+    }
+
+    private int indexOf(String key) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equalsIgnoreCase(key)) {
+                return i;
+            }
+        }
+        for (int i = 0; i < properties.length; i++) {
+            if (properties[i].equalsIgnoreCase(key)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("key property not found: " + key);
+    }
+
+    /**
+     * Bind properties as params, in the order of update sql
+     */
+    void bindUpdate(PreparedStatement stmt, Update update, Object bean) throws SQLException {
+        int[] order = update.order;
+        for (int i = 0; i < order.length; i++) {
+            bind(stmt, i + 1, bean, order[i]);
+        }
+    }
+
+    /**
+     * The property values of bean, in the order of insert sql
+     */
+    Object[] values(Object bean) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = generated != null ? generated.value(bean, i) : bindings[i].property.get(bean);
+        }
+        return values;
+    }
+
+    /**
+     * Update sql, and the index of bound property for each param
+     */
+    static class Update {
+        private final String clause;
+        private final int[] order;
+
+        private Update(String clause, int[] order) {
+            this.clause = clause;
+            this.order = order;
+        }
+
+        String clause() {
+            return clause;
+        }
+    }
+
+    private static class Binding {
+        private final Property property;
+        private final Class<?> type;
+        // of type (Object) -> property type
+        private final MethodHandle getter;
+
+        private Binding(Property property) {
+            this.property = property;
+            this.type = property.type();
+            this.getter = property.getter();
+        }
+
+        private void bind(PreparedStatement stmt, int index, Object bean) throws SQLException {
+            try {
+                if (!type.isPrimitive()) {
+                    SQLExecutor.setParam(stmt, index, (Object) getter.invoke(bean));
+                } else if (type == long.class) {
+                    stmt.setLong(index, (long) getter.invoke(bean));
+                } else if (type == int.class) {
+                    stmt.setInt(index, (int) getter.invoke(bean));
+                } else if (type == boolean.class) {
+                    stmt.setBoolean(index, (boolean) getter.invoke(bean));
+                } else if (type == double.class) {
+                    stmt.setDouble(index, (double) getter.invoke(bean));
+                } else if (type == float.class) {
+                    stmt.setFloat(index, (float) getter.invoke(bean));
+                } else if (type == short.class) {
+                    stmt.setShort(index, (short) getter.invoke(bean));
+                } else if (type == byte.class) {
+                    stmt.setByte(index, (byte) getter.invoke(bean));
+                } else {
+                    stmt.setString(index, String.valueOf((char) getter.invoke(bean)));
+                }
+            } catch (SQLException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new BeanMappingException(new InvocationTargetException(t));
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package net.dongliu.dbutils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A small pool of byte and char arrays, for copying stream data.
+ * Buffers not fit in pool are just dropped.
+ */
+class BufferPool {
+    static final int bufferSize = 64 * 1024;
+    private static final int maxPooled = 16;
+
+    private static final ArrayBlockingQueue<byte[]> byteBuffers = new ArrayBlockingQueue<>(maxPooled);
+    private static final ArrayBlockingQueue<char[]> charBuffers = new ArrayBlockingQueue<>(maxPooled);
+
+    static byte[] acquireByteBuffer() {
+        byte[] buffer = byteBuffers.poll();
+        if (buffer == null) {
+            return new byte[bufferSize];
+        }
+        return buffer;
+    }
+
+    static void release(byte[] buffer) {
+        byteBuffers.offer(buffer);
+    }
+
+    static char[] acquireCharBuffer() {
+        char[] buffer = charBuffers.poll();
+        if (buffer == null) {
+            return new char[bufferSize / 2];
+        }
+        return buffer;
+    }
+
+    static void release(char[] buffer) {
+        charBuffers.offer(buffer);
+    }
+}
@@ -0,0 +1,85 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.mapper.BeanRowMapper;
+import net.dongliu.dbutils.mapper.ColumnNamesProvider;
+import net.dongliu.dbutils.mapper.RecordRowMapper;
+import net.dongliu.dbutils.mapper.RowMapper;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache the column names of query result, and the mappers bound to them, by sql clause. So later executions of the
+ * same sql need not read column labels from ResultSetMetaData, and need not resolve mapper again.
+ * <p>
+ * The cached entry is validated by column count, and replaced if count changed, for example when columns are added to
+ * table selected by {@code select *}. Only mappers provided by this library are cached, as they hold no state of rows.
+ * A column renamed or retyped with count unchanged is not noticed, so the cache is opt-in, set by
+ * {@link Database#columnCache(boolean)}.
+ */
+class ColumnCache {
+    private static final int maxEntries = 1024;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Get the entry for sql, null if not cached or column count not match
+     */
+    @Nullable
+    Entry get(String key, int columnCount) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.names.length != columnCount) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    Entry put(String key, String[] names) {
+        if (entries.size() >= maxEntries) {
+            // sqls with literals inlined may fill the cache, just start over
+            entries.clear();
+        }
+        Entry entry = new Entry(names);
+        entries.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * If the mapper bound to ResultSet can be reused across executions
+     */
+    static boolean cacheable(RowMapper<?> mapper) {
+        return mapper instanceof RecordRowMapper || mapper instanceof BeanRowMapper;
+    }
+
+    static class Entry {
+        private final String[] names;
+        private final ConcurrentHashMap<RowMapper<?>, RowMapper<?>> boundMappers = new ConcurrentHashMap<>();
+
+        private Entry(String[] names) {
+            this.names = names;
+        }
+
+        String[] names() {
+            return names;
+        }
+
+        /**
+         * Get the cached bound mapper, or bind mapper and cache it
+         */
+        @SuppressWarnings("unchecked")
+        <T> RowMapper<T> bind(RowMapper<T> mapper, ColumnNamesProvider provider, ResultSet rs) throws SQLException {
+            RowMapper<T> bound = (RowMapper<T>) boundMappers.get(mapper);
+            if (bound == null) {
+                bound = mapper.bind(provider, rs);
+                boundMappers.putIfAbsent(mapper, bound);
+            }
+            return bound;
+        }
+    }
+}
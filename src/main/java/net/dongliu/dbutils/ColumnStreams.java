@@ -0,0 +1,103 @@
+package net.dongliu.dbutils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Utils to stream BLOB/CLOB (or other binary / character) column values of current ResultSet row to channel or writer,
+ * without reading the whole value into heap. Can be used in {@link ResultSetHandler}.
+ * <p>
+ * Data is read from the driver stream into a pooled buffer, and written to target from that buffer.
+ *
+ * @author Liu Dong
+ */
+public class ColumnStreams {
+
+    private ColumnStreams() {
+    }
+
+    /**
+     * Write binary column value of current row to channel.
+     *
+     * @param column the column index, start from 1 as JDBC
+     * @return bytes written, or -1 if column value is null
+     */
+    public static long transfer(ResultSet rs, int column, WritableByteChannel target) throws SQLException, IOException {
+        try (InputStream in = rs.getBinaryStream(column)) {
+            if (in == null) {
+                return -1;
+            }
+            return transfer(in, target);
+        }
+    }
+
+    /**
+     * Write binary column value of current row to channel.
+     *
+     * @param column the column label
+     * @return bytes written, or -1 if column value is null
+     */
+    public static long transfer(ResultSet rs, String column, WritableByteChannel target)
+            throws SQLException, IOException {
+        return transfer(rs, rs.findColumn(column), target);
+    }
+
+    /**
+     * Write character column value of current row to writer.
+     *
+     * @param column the column index, start from 1 as JDBC
+     * @return chars written, or -1 if column value is null
+     */
+    public static long transfer(ResultSet rs, int column, Writer target) throws SQLException, IOException {
+        try (Reader reader = rs.getCharacterStream(column)) {
+            if (reader == null) {
+                return -1;
+            }
+            char[] buffer = BufferPool.acquireCharBuffer();
+            try {
+                long total = 0;
+                int read;
+                while ((read = reader.read(buffer)) != -1) {
+                    target.write(buffer, 0, read);
+                    total += read;
+                }
+                return total;
+            } finally {
+                BufferPool.release(buffer);
+            }
+        }
+    }
+
+    /**
+     * Write character column value of current row to writer.
+     *
+     * @param column the column label
+     * @return chars written, or -1 if column value is null
+     */
+    public static long transfer(ResultSet rs, String column, Writer target) throws SQLException, IOException {
+        return transfer(rs, rs.findColumn(column), target);
+    }
+
+    private static long transfer(InputStream in, WritableByteChannel target) throws IOException {
+        byte[] buffer = BufferPool.acquireByteBuffer();
+        try {
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                ByteBuffer wrapped = ByteBuffer.wrap(buffer, 0, read);
+                while (wrapped.hasRemaining()) {
+                    total += target.write(wrapped);
+                }
+            }
+            return total;
+        } finally {
+            BufferPool.release(buffer);
+        }
+    }
+}
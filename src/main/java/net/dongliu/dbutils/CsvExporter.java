@@ -0,0 +1,496 @@
+package net.dongliu.dbutils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Write ResultSet rows as CSV/TSV text.
+ * Column encoders are chosen once from ResultSetMetaData, and values are encoded as UTF-8 directly into a reusable
+ * byte buffer, which is written to channel (or compressed) when full.
+ */
+class CsvExporter {
+    private static final int blockSize = 256 * 1024;
+    private static final byte[] trueBytes = {'t', 'r', 'u', 'e'};
+    private static final byte[] falseBytes = {'f', 'a', 'l', 's', 'e'};
+
+    private final CsvFormat format;
+    private final BlockWriter writer;
+    private final byte delimiter;
+    private final byte quote;
+    private final byte[] nullBytes;
+    // quote empty string, to distinguish it from null which is written as empty field
+    private final boolean quoteEmpty;
+    private byte[] buffer = new byte[blockSize];
+    private int position;
+
+    CsvExporter(CsvFormat format, WritableByteChannel channel) {
+        this.format = format;
+        if (!format.gzip()) {
+            this.writer = new ChannelBlockWriter(channel);
+        } else if (format.compressThreads() == 1) {
+            this.writer = new GzipBlockWriter(channel);
+        } else {
+            this.writer = new ParallelGzipBlockWriter(channel, format.compressThreads());
+        }
+        this.delimiter = (byte) format.delimiter();
+        this.quote = (byte) format.quote();
+        this.nullBytes = format.nullString().getBytes(StandardCharsets.UTF_8);
+        this.quoteEmpty = format.quoting() && nullBytes.length == 0;
+    }
+
+    /**
+     * Write all rows of ResultSet.
+     *
+     * @return the row count exported
+     */
+    long export(ResultSet rs) throws SQLException, IOException {
+        try {
+            ResultSetMetaData metaData = rs.getMetaData();
+            int columnCount = metaData.getColumnCount();
+            ColumnEncoder[] encoders = new ColumnEncoder[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                encoders[i] = columnEncoder(metaData, i + 1);
+            }
+            if (format.header()) {
+                for (int i = 1; i <= columnCount; i++) {
+                    if (i > 1) {
+                        writeByte(delimiter);
+                    }
+                    String name = metaData.getColumnLabel(i);
+                    if (name == null || name.isEmpty()) {
+                        name = metaData.getColumnName(i);
+                    }
+                    writeText(name);
+                }
+                writeByte((byte) '\n');
+            }
+
+            long rows = 0;
+            while (rs.next()) {
+                for (int i = 0; i < columnCount; i++) {
+                    if (i > 0) {
+                        writeByte(delimiter);
+                    }
+                    encoders[i].encode(rs, i + 1);
+                }
+                writeByte((byte) '\n');
+                rows++;
+            }
+            flushBlock();
+            writer.finish();
+            return rows;
+        } finally {
+            writer.close();
+        }
+    }
+
+    private ColumnEncoder columnEncoder(ResultSetMetaData metaData, int column) throws SQLException {
+        switch (metaData.getColumnType(column)) {
+            case Types.BIGINT:
+                return metaData.isSigned(column) ? this::encodeLong : this::encodeString;
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return this::encodeLong;
+            case Types.BOOLEAN:
+                return this::encodeBoolean;
+            case Types.BIT:
+                return metaData.getPrecision(column) <= 1 ? this::encodeBoolean : this::encodeString;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return this::encodeDouble;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return this::encodeDecimal;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+                return this::encodeBytes;
+            default:
+                // string types, and date/time types which have ISO like toString
+                return this::encodeString;
+        }
+    }
+
+    private void encodeLong(ResultSet rs, int column) throws SQLException, IOException {
+        long value = rs.getLong(column);
+        if (rs.wasNull()) {
+            writeNull();
+        } else {
+            writeLong(value);
+        }
+    }
+
+    private void encodeBoolean(ResultSet rs, int column) throws SQLException, IOException {
+        boolean value = rs.getBoolean(column);
+        if (rs.wasNull()) {
+            writeNull();
+        } else {
+            writeBytes(value ? trueBytes : falseBytes);
+        }
+    }
+
+    private void encodeDouble(ResultSet rs, int column) throws SQLException, IOException {
+        double value = rs.getDouble(column);
+        if (rs.wasNull()) {
+            writeNull();
+        } else {
+            writeAscii(Double.toString(value));
+        }
+    }
+
+    private void encodeDecimal(ResultSet rs, int column) throws SQLException, IOException {
+        BigDecimal value = rs.getBigDecimal(column);
+        if (value == null) {
+            writeNull();
+        } else {
+            writeAscii(value.toPlainString());
+        }
+    }
+
+    private void encodeBytes(ResultSet rs, int column) throws SQLException, IOException {
+        byte[] value = rs.getBytes(column);
+        if (value == null) {
+            writeNull();
+        } else {
+            // base64 contains no chars need to escape
+            writeBytes(Base64.getEncoder().encode(value));
+        }
+    }
+
+    private void encodeString(ResultSet rs, int column) throws SQLException, IOException {
+        String value = rs.getString(column);
+        if (value == null) {
+            writeNull();
+        } else {
+            writeText(value);
+        }
+    }
+
+    private void writeNull() throws IOException {
+        writeBytes(nullBytes);
+    }
+
+    private void writeByte(byte b) throws IOException {
+        if (position == buffer.length) {
+            flushBlock();
+        }
+        buffer[position++] = b;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * Write string only contains ascii chars
+     */
+    private void writeAscii(String str) throws IOException {
+        int len = str.length();
+        ensureCapacity(len);
+        for (int i = 0; i < len; i++) {
+            buffer[position++] = (byte) str.charAt(i);
+        }
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position = end;
+    }
+
+    /**
+     * Write text value, escape or quote it when needed, encoded with UTF-8
+     */
+    private void writeText(String str) throws IOException {
+        int len = str.length();
+        // each char takes at most 3 bytes in utf-8, or 2 bytes when escaped
+        ensureCapacity(3 * len + 2);
+        if (format.quoting()) {
+            boolean quoted = len == 0 ? quoteEmpty : needQuote(str);
+            if (quoted) {
+                buffer[position++] = quote;
+            }
+            for (int i = 0; i < len; i++) {
+                char c = str.charAt(i);
+                if (quoted && c == quote) {
+                    buffer[position++] = quote;
+                }
+                i = encodeChar(str, i, c);
+            }
+            if (quoted) {
+                buffer[position++] = quote;
+            }
+        } else {
+            for (int i = 0; i < len; i++) {
+                char c = str.charAt(i);
+                if (c == delimiter) {
+                    buffer[position++] = '\\';
+                    buffer[position++] = c == '\t' ? (byte) 't' : (byte) c;
+                } else if (c == '\n') {
+                    buffer[position++] = '\\';
+                    buffer[position++] = 'n';
+                } else if (c == '\r') {
+                    buffer[position++] = '\\';
+                    buffer[position++] = 'r';
+                } else if (c == '\\') {
+                    buffer[position++] = '\\';
+                    buffer[position++] = '\\';
+                } else {
+                    i = encodeChar(str, i, c);
+                }
+            }
+        }
+    }
+
+    private boolean needQuote(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c == delimiter || c == quote || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Encode char at index as UTF-8, return the index of last char consumed.
+     */
+    private int encodeChar(String str, int index, char c) {
+        byte[] b = buffer;
+        int p = position;
+        if (c < 0x80) {
+            b[p++] = (byte) c;
+        } else if (c < 0x800) {
+            b[p++] = (byte) (0xC0 | (c >> 6));
+            b[p++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+            if (Character.isHighSurrogate(c) && index + 1 < str.length()
+                    && Character.isLowSurrogate(str.charAt(index + 1))) {
+                int cp = Character.toCodePoint(c, str.charAt(++index));
+                b[p++] = (byte) (0xF0 | (cp >> 18));
+                b[p++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                b[p++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                // malformed surrogate, as String.getBytes does
+                b[p++] = '?';
+            }
+        } else {
+            b[p++] = (byte) (0xE0 | (c >> 12));
+            b[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            b[p++] = (byte) (0x80 | (c & 0x3F));
+        }
+        position = p;
+        return index;
+    }
+
+    private void ensureCapacity(int size) throws IOException {
+        if (position + size > buffer.length) {
+            flushBlock();
+            if (size > buffer.length) {
+                buffer = new byte[size];
+            }
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (position > 0) {
+            writer.write(buffer, position);
+            position = 0;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ColumnEncoder {
+        void encode(ResultSet rs, int column) throws SQLException, IOException;
+    }
+
+    /**
+     * Where filled blocks go. The block data can be reused after write returned.
+     */
+    private interface BlockWriter {
+        void write(byte[] block, int size) throws IOException;
+
+        /**
+         * Write all pending data. Called once after all blocks were written.
+         */
+        void finish() throws IOException;
+
+        /**
+         * Release resources, the channel is not closed
+         */
+        void close();
+    }
+
+    private static class ChannelBlockWriter implements BlockWriter {
+        private final WritableByteChannel channel;
+
+        ChannelBlockWriter(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(byte[] block, int size) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(block, 0, size);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        public void finish() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class GzipBlockWriter implements BlockWriter {
+        private final ChannelGzipStream out;
+
+        GzipBlockWriter(WritableByteChannel channel) {
+            try {
+                // never close this stream, for not closing the channel
+                this.out = new ChannelGzipStream(channel);
+            } catch (IOException e) {
+                // only thrown when writing gzip header to the channel
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void write(byte[] block, int size) throws IOException {
+            out.write(block, 0, size);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.finish();
+            out.flush();
+        }
+
+        @Override
+        public void close() {
+            out.end();
+        }
+    }
+
+    /**
+     * Gzip stream to channel, which can release its deflater without closing the channel
+     */
+    private static class ChannelGzipStream extends GZIPOutputStream {
+        ChannelGzipStream(WritableByteChannel channel) throws IOException {
+            super(Channels.newOutputStream(channel), blockSize);
+        }
+
+        void end() {
+            def.end();
+        }
+    }
+
+    /**
+     * Compress blocks in parallel, each block as a gzip member, and write compressed members in order.
+     */
+    private static class ParallelGzipBlockWriter implements BlockWriter {
+        private final ChannelBlockWriter channelWriter;
+        private final ExecutorService executor;
+        private final int maxPending;
+        private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+
+        ParallelGzipBlockWriter(WritableByteChannel channel, int threads) {
+            this.channelWriter = new ChannelBlockWriter(channel);
+            this.executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "dbutils-csv-compress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.maxPending = threads * 2;
+        }
+
+        @Override
+        public void write(byte[] block, int size) throws IOException {
+            byte[] data = Arrays.copyOf(block, size);
+            pending.add(executor.submit(() -> compress(data)));
+            while (pending.size() > maxPending) {
+                writeHead();
+            }
+        }
+
+        private static byte[] compress(byte[] data) throws IOException {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 4 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(bos, blockSize)) {
+                out.write(data);
+            }
+            return bos.toByteArray();
+        }
+
+        private void writeHead() throws IOException {
+            byte[] compressed;
+            try {
+                compressed = pending.remove().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException(cause);
+            }
+            channelWriter.write(compressed, compressed.length);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            while (!pending.isEmpty()) {
+                writeHead();
+            }
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package net.dongliu.dbutils;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Text format for exporting/importing table data. This class is immutable.
+ * <ul>
+ * <li>CSV: fields containing delimiter, quote char or line breaks are quoted, quote char is escaped by doubling it</li>
+ * <li>TSV: fields are never quoted, tab, line breaks and back slash are escaped as \t, \n, \r, \\</li>
+ * </ul>
+ * Text is always encoded in UTF-8, and rows are separated by '\n'.
+ *
+ * @author Liu Dong
+ */
+public class CsvFormat {
+    private final char delimiter;
+    private final char quote;
+    private final boolean quoting;
+    private final boolean header;
+    private final String nullString;
+    private final boolean gzip;
+    private final int compressThreads;
+
+    private CsvFormat(char delimiter, char quote, boolean quoting, boolean header, String nullString, boolean gzip,
+                      int compressThreads) {
+        this.delimiter = delimiter;
+        this.quote = quote;
+        this.quoting = quoting;
+        this.header = header;
+        this.nullString = requireNonNull(nullString);
+        this.gzip = gzip;
+        this.compressThreads = compressThreads;
+    }
+
+    private static final CsvFormat csv = new CsvFormat(',', '"', true, true, "", false, 1);
+    private static final CsvFormat tsv = new CsvFormat('\t', '"', false, true, "\\N", false, 1);
+
+    /**
+     * Comma separated values, with header row, null written as empty field, and empty string as quoted "".
+     */
+    public static CsvFormat csv() {
+        return csv;
+    }
+
+    /**
+     * Tab separated values, with header row, null written as \N.
+     */
+    public static CsvFormat tsv() {
+        return tsv;
+    }
+
+    /**
+     * Return a new format with the delimiter, which should be an ascii char
+     */
+    public CsvFormat withDelimiter(char delimiter) {
+        if (delimiter > 127 || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("illegal delimiter: " + delimiter);
+        }
+        return new CsvFormat(delimiter, quote, quoting, header, nullString, gzip, compressThreads);
+    }
+
+    /**
+     * Return a new format, which has or has not a header row of column names
+     */
+    public CsvFormat withHeader(boolean header) {
+        return new CsvFormat(delimiter, quote, quoting, header, nullString, gzip, compressThreads);
+    }
+
+    /**
+     * Return a new format, using the string to represent null value
+     */
+    public CsvFormat withNullString(String nullString) {
+        return new CsvFormat(delimiter, quote, quoting, header, nullString, gzip, compressThreads);
+    }
+
+    /**
+     * Return a new format, which is (or is not) gzip compressed
+     */
+    public CsvFormat withGzip(boolean gzip) {
+        return new CsvFormat(delimiter, quote, quoting, header, nullString, gzip, compressThreads);
+    }
+
+    /**
+     * Return a new format, which use multi threads to compress when gzip is enabled.
+     * When more than one thread is used, data is split into blocks and each block is compressed as a separated gzip
+     * member; the concatenated members are still a valid gzip file.
+     */
+    public CsvFormat withCompressThreads(int compressThreads) {
+        if (compressThreads < 1) {
+            throw new IllegalArgumentException("illegal compress threads: " + compressThreads);
+        }
+        return new CsvFormat(delimiter, quote, quoting, header, nullString, gzip, compressThreads);
+    }
+
+    public char delimiter() {
+        return delimiter;
+    }
+
+    public char quote() {
+        return quote;
+    }
+
+    /**
+     * If true, use quote to escape fields(CSV), else using back slash escape(TSV)
+     */
+    public boolean quoting() {
+        return quoting;
+    }
+
+    public boolean header() {
+        return header;
+    }
+
+    public String nullString() {
+        return nullString;
+    }
+
+    public boolean gzip() {
+        return gzip;
+    }
+
+    public int compressThreads() {
+        return compressThreads;
+    }
+}
@@ -0,0 +1,738 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.exception.UncheckedSQLException;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardOpenOption.*;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Import CSV/TSV file into table.
+ * <p>
+ * The file is memory-mapped, and split into segments on line boundaries; segments are parsed in parallel, each using
+ * its own connection, and rows are inserted by batches, each batch is committed separately.
+ * Field values are converted to the types of table columns. Lines which can not be parsed or converted are
+ * rejected, and written to reject file if set. If the database rejects a batch, the batch is rolled back and its rows
+ * are inserted one by one, each committed separately, and the rows failed are rejected too; connection failures still
+ * abort the import.
+ * <p>
+ * Quoted fields containing line breaks are supported; for CSV the segment boundaries are found by scanning quote
+ * state from file start, so a record is never split across segments.
+ * Gzip compressed files are not supported.
+ *
+ * @author Liu Dong
+ */
+public class CsvImport {
+    private final Database database;
+    private final Path file;
+    private final String table;
+    private final String[] columns;
+
+    private CsvFormat format = CsvFormat.csv();
+    private int batchSize = 1000;
+    private int parallelism = Math.min(4, Runtime.getRuntime().availableProcessors());
+    private long segmentSize = 64 * 1024 * 1024;
+    @Nullable
+    private Path rejectFile;
+
+    private final AtomicLong importedRows = new AtomicLong();
+    private final AtomicLong rejectedRows = new AtomicLong();
+    private final AtomicLong processedBytes = new AtomicLong();
+    private volatile long totalBytes;
+
+    CsvImport(Database database, Path file, String table, String[] columns) {
+        this.database = requireNonNull(database);
+        this.file = requireNonNull(file);
+        this.table = requireNonNull(table);
+        this.columns = requireNonNull(columns);
+    }
+
+    /**
+     * Set the file format. Default is csv with header.
+     */
+    public CsvImport format(CsvFormat format) {
+        if (format.gzip()) {
+            throw new IllegalArgumentException("gzip file not supported");
+        }
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * The rows for each batch insert. Default 1000.
+     */
+    public CsvImport batchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("illegal batch size: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * The num of segments parsed and inserted concurrently, each use one connection.
+     */
+    public CsvImport parallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("illegal parallelism: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * The approximate size of file segments. Default 64M.
+     */
+    public CsvImport segmentSize(long segmentSize) {
+        if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("illegal segment size: " + segmentSize);
+        }
+        this.segmentSize = segmentSize;
+        return this;
+    }
+
+    /**
+     * Write rejected lines to this file.
+     */
+    public CsvImport rejectFile(Path rejectFile) {
+        this.rejectFile = requireNonNull(rejectFile);
+        return this;
+    }
+
+    /**
+     * Rows inserted and committed till now
+     */
+    public long importedRows() {
+        return importedRows.get();
+    }
+
+    /**
+     * Rows rejected till now
+     */
+    public long rejectedRows() {
+        return rejectedRows.get();
+    }
+
+    /**
+     * File bytes processed till now
+     */
+    public long processedBytes() {
+        return processedBytes.get();
+    }
+
+    /**
+     * The file size, available after import started
+     */
+    public long totalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Do import, and return rows imported.
+     */
+    public long execute() {
+        try (FileChannel channel = FileChannel.open(file, READ);
+             FileChannel rejectChannel = rejectFile == null ? null :
+                     FileChannel.open(rejectFile, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            totalBytes = channel.size();
+            int[] types = columnTypes();
+            String clause = insertClause(types.length);
+            List<long[]> segments = splitSegments(channel);
+
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread thread = new Thread(r, "dbutils-csv-import");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (long[] segment : segments) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, segment[0],
+                            segment[1] - segment[0]);
+                    SegmentLoader loader = new SegmentLoader(buffer, types, clause, rejectChannel);
+                    futures.add(executor.submit(() -> {
+                        loader.load();
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    waitFor(future);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            return importedRows.get();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    private static void waitFor(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            // restore the flag for caller; the loaders are stopped by executor shutdown
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("interrupted while importing"));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw new UncheckedSQLException((SQLException) cause);
+            }
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new UncheckedSQLException((Exception) cause);
+        }
+    }
+
+    /**
+     * Get sql types of columns to insert, using an empty query
+     */
+    private int[] columnTypes() throws SQLException {
+        String select = columns.length == 0 ? "*" : String.join(", ", columns);
+        try (MyConnection conn = database.supplyConnection();
+             PreparedStatement statement = conn.prepareStatement("select " + select + " from " + table + " where 1=0");
+             ResultSet rs = statement.executeQuery()) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            int[] types = new int[metaData.getColumnCount()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = metaData.getColumnType(i + 1);
+            }
+            return types;
+        }
+    }
+
+    private String insertClause(int columnCount) {
+        StringBuilder sb = new StringBuilder("insert into ").append(table);
+        if (columns.length > 0) {
+            sb.append('(').append(String.join(", ", columns)).append(')');
+        }
+        sb.append(" values(");
+        for (int i = 0; i < columnCount; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * Split file into segments of [start, end), each ends at line break.
+     */
+    private List<long[]> splitSegments(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<long[]> segments = new ArrayList<>();
+        long start = 0;
+        if (format.header()) {
+            start = nextRecordStart(channel, 0, 0, size);
+            processedBytes.addAndGet(start);
+        }
+        while (start < size) {
+            long end = start + segmentSize >= size ? size
+                    : nextRecordStart(channel, start, start + segmentSize, size);
+            segments.add(new long[]{start, end});
+            start = end;
+        }
+        return segments;
+    }
+
+    /**
+     * Find the start of the first record begins at or after target position.
+     *
+     * @param recordStart a record start before target, from where the quote state is tracked
+     */
+    private long nextRecordStart(FileChannel channel, long recordStart, long target, long size) throws IOException {
+        if (!format.quoting()) {
+            // line breaks in TSV fields are always escaped
+            return nextLineStart(channel, target, size);
+        }
+        byte delimiter = (byte) format.delimiter();
+        byte quote = (byte) format.quote();
+        // same as parser: a quote only opens quoted field at field start, and a doubled quote is escaped quote
+        boolean fieldStart = true;
+        boolean inQuote = false;
+        boolean quoteInQuote = false;
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long position = recordStart;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (inQuote) {
+                    if (quoteInQuote) {
+                        quoteInQuote = false;
+                        if (b == quote) {
+                            continue;
+                        }
+                        // the quote closed the field
+                        inQuote = false;
+                    } else {
+                        if (b == quote) {
+                            quoteInQuote = true;
+                        }
+                        continue;
+                    }
+                }
+                if (b == '\n') {
+                    if (position + i + 1 >= target) {
+                        return position + i + 1;
+                    }
+                    fieldStart = true;
+                } else if (b == delimiter) {
+                    fieldStart = true;
+                } else {
+                    inQuote = fieldStart && b == quote;
+                    fieldStart = false;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Find the position after next line break
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Parse and insert one file segment
+     */
+    private class SegmentLoader {
+        private final MappedByteBuffer buffer;
+        private final int[] types;
+        private final String clause;
+        @Nullable
+        private final FileChannel rejectChannel;
+
+        private final byte delimiter;
+        private final byte quote;
+        private final byte[] nullBytes;
+        // current record fields, field i is in scratch [fieldStarts[i], fieldEnds[i])
+        private final int[] fieldStarts;
+        private final int[] fieldEnds;
+        private final boolean[] fieldQuoted;
+        // if the raw field text, before unescaped, is the null string
+        private final boolean[] fieldNull;
+        // start and end positions of the records in current batch, for inserting them one by one if batch failed
+        private final int[] batchRecords;
+        private byte[] scratch = new byte[1024];
+        private int scratchSize;
+        private int fieldCount;
+        @Nullable
+        private String error;
+
+        SegmentLoader(MappedByteBuffer buffer, int[] types, String clause, @Nullable FileChannel rejectChannel) {
+            this.buffer = buffer;
+            this.types = types;
+            this.clause = clause;
+            this.rejectChannel = rejectChannel;
+            this.delimiter = (byte) format.delimiter();
+            this.quote = (byte) format.quote();
+            this.nullBytes = format.nullString().getBytes(StandardCharsets.UTF_8);
+            this.fieldStarts = new int[types.length];
+            this.fieldEnds = new int[types.length];
+            this.fieldQuoted = new boolean[types.length];
+            this.fieldNull = new boolean[types.length];
+            this.batchRecords = new int[batchSize * 2];
+        }
+
+        void load() throws SQLException, IOException {
+            int end = buffer.limit();
+            try (MyConnection conn = database.supplyConnection()) {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try (PreparedStatement statement = conn.prepareStatement(clause)) {
+                    int batched = 0;
+                    int position = 0;
+                    while (position < end) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            throw new InterruptedIOException("import interrupted");
+                        }
+                        int recordStart = position;
+                        position = parseRecord(position, end);
+                        processedBytes.addAndGet(position - recordStart);
+                        if (error == null && fieldCount == 1 && fieldEnds[0] == fieldStarts[0] && !fieldQuoted[0]
+                                && types.length > 1) {
+                            // empty line
+                            continue;
+                        }
+                        if (error == null && fieldCount != types.length) {
+                            error = "expect " + types.length + " fields, but got " + fieldCount;
+                        }
+                        if (error == null) {
+                            bindRecord(statement);
+                        }
+                        if (error != null) {
+                            reject(recordStart, position);
+                            continue;
+                        }
+                        statement.addBatch();
+                        batchRecords[batched * 2] = recordStart;
+                        batchRecords[batched * 2 + 1] = position;
+                        if (++batched == batchSize) {
+                            executeBatch(statement, conn, batched);
+                            batched = 0;
+                        }
+                    }
+                    if (batched > 0) {
+                        executeBatch(statement, conn, batched);
+                    }
+                } catch (Throwable t) {
+                    conn.rollback();
+                    throw t;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            }
+        }
+
+        private void executeBatch(PreparedStatement statement, Connection conn, int rows)
+                throws SQLException, IOException {
+            try {
+                statement.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                if (isConnectionError(e)) {
+                    throw e;
+                }
+                conn.rollback();
+                statement.clearBatch();
+                executeOneByOne(statement, conn, rows);
+                return;
+            }
+            importedRows.addAndGet(rows);
+        }
+
+        /**
+         * Insert the records of failed batch one by one, and reject the records database refused
+         */
+        private void executeOneByOne(PreparedStatement statement, Connection conn, int rows)
+                throws SQLException, IOException {
+            for (int i = 0; i < rows; i++) {
+                int recordStart = batchRecords[i * 2];
+                int recordEnd = batchRecords[i * 2 + 1];
+                // parsed and bound without error before
+                parseRecord(recordStart, recordEnd);
+                bindRecord(statement);
+                try {
+                    statement.executeUpdate();
+                    conn.commit();
+                } catch (SQLException e) {
+                    if (isConnectionError(e)) {
+                        throw e;
+                    }
+                    conn.rollback();
+                    reject(recordStart, recordEnd);
+                    continue;
+                }
+                importedRows.incrementAndGet();
+            }
+        }
+
+        private boolean isConnectionError(SQLException e) {
+            if (e instanceof SQLTransientConnectionException || e instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+            String state = e.getSQLState();
+            return state != null && state.startsWith("08");
+        }
+
+        private void reject(int recordStart, int recordEnd) throws IOException {
+            rejectedRows.incrementAndGet();
+            if (rejectChannel == null) {
+                return;
+            }
+            ByteBuffer record = buffer.duplicate();
+            record.limit(recordEnd).position(recordStart);
+            boolean lineEnded = recordEnd > recordStart && buffer.get(recordEnd - 1) == '\n';
+            synchronized (rejectChannel) {
+                while (record.hasRemaining()) {
+                    rejectChannel.write(record);
+                }
+                if (!lineEnded) {
+                    rejectChannel.write(ByteBuffer.wrap(new byte[]{'\n'}));
+                }
+            }
+        }
+
+        /**
+         * Parse one record into fields, return the position after this record.
+         * If record is malformed, set error and skip to next line.
+         */
+        private int parseRecord(int position, int end) {
+            fieldCount = 0;
+            scratchSize = 0;
+            error = null;
+            int p = position;
+            while (true) {
+                if (fieldCount == types.length) {
+                    error = "too many fields";
+                    return skipLine(p, end);
+                }
+                fieldStarts[fieldCount] = scratchSize;
+                boolean quoted = format.quoting() && p < end && buffer.get(p) == quote;
+                boolean isNull = false;
+                if (quoted) {
+                    p++;
+                    while (true) {
+                        if (p >= end) {
+                            error = "unclosed quote";
+                            return end;
+                        }
+                        byte b = buffer.get(p++);
+                        if (b == quote) {
+                            if (p < end && buffer.get(p) == quote) {
+                                append(quote);
+                                p++;
+                            } else {
+                                break;
+                            }
+                        } else {
+                            append(b);
+                        }
+                    }
+                } else {
+                    int rawStart = p;
+                    while (p < end) {
+                        byte b = buffer.get(p);
+                        if (b == delimiter || b == '\n') {
+                            break;
+                        }
+                        // CRLF line end, checked on raw bytes so an escaped \r at field end is kept
+                        if (b == '\r' && (p + 1 >= end || buffer.get(p + 1) == '\n')) {
+                            break;
+                        }
+                        p++;
+                        if (!format.quoting() && b == '\\' && p < end) {
+                            append(unescape(buffer.get(p++)));
+                        } else {
+                            append(b);
+                        }
+                    }
+                    isNull = isNull(rawStart, p);
+                    if (p < end && buffer.get(p) == '\r') {
+                        p++;
+                    }
+                }
+                fieldEnds[fieldCount] = scratchSize;
+                fieldQuoted[fieldCount] = quoted;
+                fieldNull[fieldCount] = isNull;
+                fieldCount++;
+
+                if (p >= end) {
+                    return end;
+                }
+                byte b = buffer.get(p);
+                if (quoted && b == '\r' && p + 1 < end && buffer.get(p + 1) == '\n') {
+                    b = buffer.get(++p);
+                }
+                if (b == delimiter) {
+                    p++;
+                } else if (b == '\n') {
+                    return p + 1;
+                } else {
+                    error = "unexpected char after quoted field";
+                    return skipLine(p, end);
+                }
+            }
+        }
+
+        private int skipLine(int p, int end) {
+            while (p < end) {
+                if (buffer.get(p++) == '\n') {
+                    return p;
+                }
+            }
+            return end;
+        }
+
+        private byte unescape(byte b) {
+            switch (b) {
+                case 't':
+                    return '\t';
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                default:
+                    return b;
+            }
+        }
+
+        private void append(byte b) {
+            if (scratchSize == scratch.length) {
+                scratch = Arrays.copyOf(scratch, scratchSize * 2);
+            }
+            scratch[scratchSize++] = b;
+        }
+
+        /**
+         * Convert fields and set to statement parameters
+         */
+        private void bindRecord(PreparedStatement statement) throws SQLException {
+            for (int i = 0; i < fieldCount; i++) {
+                int index = i + 1;
+                int type = types[i];
+                int start = fieldStarts[i];
+                int len = fieldEnds[i] - start;
+                if (fieldNull[i]) {
+                    statement.setNull(index, type);
+                    continue;
+                }
+                try {
+                    switch (type) {
+                        case Types.BIGINT:
+                            statement.setLong(index, parseLong(start, len));
+                            break;
+                        case Types.INTEGER:
+                        case Types.SMALLINT:
+                        case Types.TINYINT:
+                            statement.setInt(index, Math.toIntExact(parseLong(start, len)));
+                            break;
+                        case Types.REAL:
+                        case Types.FLOAT:
+                        case Types.DOUBLE:
+                            statement.setDouble(index, Double.parseDouble(string(start, len)));
+                            break;
+                        case Types.DECIMAL:
+                        case Types.NUMERIC:
+                            statement.setBigDecimal(index, new BigDecimal(string(start, len)));
+                            break;
+                        case Types.BOOLEAN:
+                        case Types.BIT:
+                            statement.setBoolean(index, parseBoolean(string(start, len)));
+                            break;
+                        case Types.DATE:
+                            statement.setDate(index, Date.valueOf(string(start, len)));
+                            break;
+                        case Types.TIME:
+                            statement.setTime(index, Time.valueOf(string(start, len)));
+                            break;
+                        case Types.TIMESTAMP:
+                            statement.setTimestamp(index, Timestamp.valueOf(string(start, len)));
+                            break;
+                        case Types.BINARY:
+                        case Types.VARBINARY:
+                        case Types.LONGVARBINARY:
+                        case Types.BLOB:
+                            statement.setBytes(index, Base64.getDecoder().decode(string(start, len)));
+                            break;
+                        default:
+                            statement.setString(index, string(start, len));
+                    }
+                } catch (IllegalArgumentException | ArithmeticException e) {
+                    error = "column " + index + ": " + e.getMessage();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * If the raw field bytes in buffer [start, end) is the null string
+         */
+        private boolean isNull(int start, int end) {
+            if (end - start != nullBytes.length) {
+                return false;
+            }
+            for (int i = 0; i < nullBytes.length; i++) {
+                if (buffer.get(start + i) != nullBytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String string(int start, int len) {
+            return new String(scratch, start, len, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Parse long from ascii digits, without creating string
+         */
+        private long parseLong(int start, int len) {
+            int p = start;
+            int end = start + len;
+            boolean negative = false;
+            if (p < end && (scratch[p] == '-' || scratch[p] == '+')) {
+                negative = scratch[p] == '-';
+                p++;
+            }
+            if (p == end || end - p > 19) {
+                // let jdk handle the edge cases
+                return Long.parseLong(string(start, len));
+            }
+            long value = 0;
+            for (; p < end; p++) {
+                int digit = scratch[p] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new NumberFormatException("not a number: " + string(start, len));
+                }
+                value = value * 10 + digit;
+                if (value < 0) {
+                    return Long.parseLong(string(start, len));
+                }
+            }
+            return negative ? -value : value;
+        }
+
+        private boolean parseBoolean(String str) {
+            switch (str.toLowerCase()) {
+                case "true":
+                case "t":
+                case "1":
+                    return true;
+                case "false":
+                case "f":
+                case "0":
+                    return false;
+                default:
+                    throw new IllegalArgumentException("not a boolean: " + str);
+            }
+        }
+    }
+}
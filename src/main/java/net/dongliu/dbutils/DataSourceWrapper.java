@@ -24,7 +24,7 @@ class DataSourceWrapper extends Database {
     }
 
     @Override
-    protected MyConnection supplyConnection() throws SQLException {
+    protected MyConnection openConnection() throws SQLException {
         Connection connection = this.dataSource.getConnection();
         return new MyConnection(connection, true);
     }
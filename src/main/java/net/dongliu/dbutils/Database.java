@@ -1,12 +1,20 @@
 package net.dongliu.dbutils;
 
 import net.dongliu.dbutils.exception.UncheckedSQLException;
+import net.dongliu.dbutils.mapper.RowMapper;
+import org.jetbrains.annotations.Nullable;
 
 import javax.sql.DataSource;
+import java.nio.file.Path;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
+import static java.util.Objects.requireNonNull;
+
 /**
  * Parent class for which can execute sql. As the name DataSource is already taken, we use Database as name.
  *
@@ -14,6 +22,12 @@ import java.util.function.Function;
  */
 public abstract class Database extends SQLExecutor {
 
+    private final ExecutorSettings settings = new ExecutorSettings();
+    // connection pinned to current thread by withConnection
+    private final ThreadLocal<MyConnection> pinnedConnection = new ThreadLocal<>();
+    // if a transaction is active on the pinned connection of current thread
+    private final ThreadLocal<Boolean> pinnedTransaction = new ThreadLocal<>();
+
     /**
      * Create a sql runner from data source.
      */
@@ -28,19 +42,152 @@ public abstract class Database extends SQLExecutor {
         return new DataSourceWrapper(SimpleDataSource.create(jdbcUrl, user, password));
     }
 
+    @Override
+    ExecutorSettings settings() {
+        return settings;
+    }
+
+    /**
+     * Return the connection pinned to current thread if exists, else open a new connection.
+     */
+    @Override
+    protected MyConnection supplyConnection() throws SQLException {
+        MyConnection connection = pinnedConnection.get();
+        if (connection != null) {
+            return new MyConnection(connection, false);
+        }
+        return openDetectedConnection();
+    }
+
+    /**
+     * Open a new connection, and detect dialect and url from it if not detected yet
+     */
+    MyConnection openDetectedConnection() throws SQLException {
+        MyConnection connection = openConnection();
+        if (settings.url == null) {
+            try {
+                DatabaseMetaData metaData = connection.getMetaData();
+                if (settings.dialect == null) {
+                    settings.dialect = Dialect.of(metaData);
+                }
+                String url = metaData.getURL();
+                settings.dialect.checkUrl(url == null ? "" : url);
+                settings.url = url == null ? "" : url;
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    connection.close();
+                } catch (SQLException ce) {
+                    e.addSuppressed(ce);
+                }
+                throw e;
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Open a new connection from the underlying data source.
+     */
+    protected abstract MyConnection openConnection() throws SQLException;
+
+    /**
+     * Pin one connection to current thread, and execute function. All sqls executed by this Database in the function
+     * and current thread, reuse this connection, without starting a transaction.
+     * The connection is released after function finished. If current thread already has a pinned connection, just
+     * reuse it.
+     * Streams returned by asStream should be consumed and closed inside the function.
+     * <p>
+     * A transaction started in the function runs on the pinned connection, and is committed or rolled back when it
+     * ends. Only one transaction can be active on the pinned connection; starting another one before it ends throws
+     * IllegalStateException, instead of joining it.
+     */
+    public <T> T withConnection(Function<Database, T> function) {
+        if (pinnedConnection.get() != null) {
+            return function.apply(this);
+        }
+        try (MyConnection connection = openDetectedConnection()) {
+            pinnedConnection.set(connection);
+            try {
+                return function.apply(this);
+            } finally {
+                pinnedConnection.remove();
+            }
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Set the default max rows of query results. Default 0, means no limit.
+     * When a query returns more rows, the statement is cancelled and ResultLimitExceededException is thrown.
+     * This can be overridden by setting maxRows of each query. The generated keys returned by inserts are not limited.
+     */
+    public Database maxRows(long maxRows) {
+        if (maxRows < 0) {
+            throw new IllegalArgumentException("illegal max rows: " + maxRows);
+        }
+        settings.maxRows = maxRows;
+        return this;
+    }
+
+    /**
+     * Set the default max estimated bytes of query results. Default 0, means no limit.
+     * When a query returns more data, the statement is cancelled and ResultLimitExceededException is thrown.
+     * This can be overridden by setting maxBytes of each query. The generated keys returned by inserts are not limited.
+     */
+    public Database maxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("illegal max bytes: " + maxBytes);
+        }
+        settings.maxBytes = maxBytes;
+        return this;
+    }
+
     /**
      * Start a transaction, and return transaction context for executing sql.
      *
      * @return a transaction context to commit/rollback context
      */
     public TransactionContext startTransaction() {
+        boolean pinned = pinnedConnection.get() != null;
+        if (pinned && pinnedTransaction.get() != null) {
+            throw new IllegalStateException("Transaction already active on the connection pinned by withConnection");
+        }
         MyConnection connection;
         try {
             connection = supplyConnection();
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
         }
-        return new TransactionContext(connection);
+        TransactionContext ctx = new TransactionContext(connection, settings);
+        if (pinned) {
+            pinnedTransaction.set(Boolean.TRUE);
+            ctx.onEnd = pinnedTransaction::remove;
+        }
+        LeakDetector leakDetector = settings.leakDetector;
+        if (leakDetector != null) {
+            // the pinned connection is released by withConnection
+            AutoCloseable[] resources = pinned ? new AutoCloseable[0]
+                    : new AutoCloseable[]{reclaimer(connection, ctx.autoCommit)};
+            ctx.tracker = leakDetector.track(ctx, "Transaction", null, resources);
+        }
+        return ctx;
+    }
+
+    /**
+     * Release the connection of a leaked transaction: roll back, restore auto commit, then close.
+     * Should not reference the transaction context, or it never becomes unreachable.
+     */
+    private static AutoCloseable reclaimer(MyConnection connection, boolean autoCommit) {
+        return () -> {
+            try (Connection c = connection) {
+                try {
+                    c.rollback();
+                } finally {
+                    c.setAutoCommit(autoCommit);
+                }
+            }
+        };
     }
 
     /**
@@ -48,17 +195,191 @@ public abstract class Database extends SQLExecutor {
      * or rollback if exception occurred
      */
     public <T> T withTransaction(Function<TransactionContext, T> function) {
+        RetryPolicy retryPolicy = settings.retryPolicy;
+        if (retryPolicy != null) {
+            return withTransaction(retryPolicy, function);
+        }
+        return runTransaction(function, new AtomicBoolean());
+    }
+
+    /**
+     * Start a transaction, execute sql in function, and do commit after function finished,
+     * or rollback if exception occurred. If the transaction failed with transient error such as deadlock, roll back
+     * and re-run the function according to the retry policy, so the function should not have side effects other than
+     * the sqls executed in the transaction. A connection failure raised by commit is not retried, as the commit may
+     * have been applied.
+     */
+    public <T> T withTransaction(RetryPolicy retryPolicy, Function<TransactionContext, T> function) {
+        AtomicBoolean commitIssued = new AtomicBoolean();
+        return retryPolicy.call(() -> runTransaction(function, commitIssued), commitIssued::get);
+    }
+
+    /**
+     * @param commitIssued set to true when commit is issued
+     */
+    private <T> T runTransaction(Function<TransactionContext, T> function, AtomicBoolean commitIssued) {
+        commitIssued.set(false);
         TransactionContext ctx = startTransaction();
         try {
             T result = function.apply(ctx);
+            commitIssued.set(true);
             ctx.commit();
             return result;
         } catch (Throwable t) {
-            ctx.rollback();
+            if (commitIssued.get()) {
+                // commit released the connection, whether succeeded or not
+                throw t;
+            }
+            try {
+                ctx.rollback();
+            } catch (Throwable e) {
+                // keep the origin failure, which is used to decide retry
+                t.addSuppressed(e);
+            }
             throw t;
         }
     }
 
+    /**
+     * Set the default timeout of sqls executed by this Database and its transactions, including acquiring connection,
+     * executing, and fetching result. Null for no timeout, which is the default.
+     *
+     * @see QueryContext#timeout(Duration)
+     */
+    public Database timeout(@Nullable Duration timeout) {
+        if (timeout != null && (timeout.isNegative() || timeout.isZero())) {
+            throw new IllegalArgumentException("illegal timeout: " + timeout);
+        }
+        settings.timeoutNanos = timeout == null ? 0 : timeout.toNanos();
+        return this;
+    }
+
+    /**
+     * The dialect of database, detected from the first connection if not set
+     */
+    public Dialect dialect() {
+        Dialect dialect = settings.dialect;
+        if (dialect == null) {
+            try (MyConnection connection = supplyConnection()) {
+                dialect = Dialect.of(connection.getMetaData());
+            } catch (SQLException e) {
+                throw new UncheckedSQLException(e);
+            }
+        }
+        return dialect;
+    }
+
+    /**
+     * Set the dialect of database, instead of detecting from connection
+     */
+    public Database dialect(Dialect dialect) {
+        settings.dialect = requireNonNull(dialect);
+        return this;
+    }
+
+    /**
+     * Set the tuner, for tuning fetch size and batch chunk size from observed statistics. Null to disable, which is the
+     * default.
+     */
+    public Database tuner(@Nullable AdaptiveTuner tuner) {
+        settings.tuner = tuner;
+        return this;
+    }
+
+    /**
+     * If cache the column names of query result, and the mappers bound to them, by sql clause. Default false.
+     * The cache is validated by column count only, so only enable it if the columns of the same sql are not renamed or
+     * retyped while running.
+     */
+    public Database columnCache(boolean enabled) {
+        settings.columnCache = enabled ? new ColumnCache() : null;
+        return this;
+    }
+
+    /**
+     * Set the leak detector, for detecting streams and transactions not closed. Null to disable, which is the default.
+     */
+    public Database leakDetector(@Nullable LeakDetector leakDetector) {
+        settings.leakDetector = leakDetector;
+        return this;
+    }
+
+    /**
+     * Set the default retry policy used by {@link #withTransaction(Function)}. Null for no retry, which is the default.
+     */
+    public Database retryPolicy(@Nullable RetryPolicy retryPolicy) {
+        settings.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Create a executor which coalesce concurrent small writes into shared transactions, with 2ms window and at most
+     * 256 statements per transaction. The executor should be closed when no longer used.
+     */
+    public GroupCommitExecutor groupCommitExecutor() {
+        return groupCommitExecutor(Duration.ofMillis(2), 256);
+    }
+
+    /**
+     * Create a executor which coalesce concurrent small writes into shared transactions.
+     * The executor should be closed when no longer used.
+     *
+     * @param window        how long to wait for more writes, after the first write of a transaction arrived
+     * @param maxStatements max statements executed in one transaction
+     */
+    public GroupCommitExecutor groupCommitExecutor(Duration window, int maxStatements) {
+        return new GroupCommitExecutor(this, window, maxStatements);
+    }
+
+    /**
+     * Create a loader which merges concurrent single key lookups into IN queries, with 2ms window and at most 100 keys
+     * per query. The loader should be closed when no longer used.
+     *
+     * @param clause the select sql ending with {@code IN}, such as {@code select * from user where id in}. The IN list
+     *               of keys is appended to it
+     * @param mapper map row to value
+     * @param keyOf  get the key from value
+     */
+    public <K, V> KeyedLoader<K, V> keyedLoader(String clause, RowMapper<V> mapper,
+                                                Function<? super V, ? extends K> keyOf) {
+        return keyedLoader(clause, mapper, keyOf, Duration.ofMillis(2), 100);
+    }
+
+    /**
+     * Create a loader which merges concurrent single key lookups into IN queries.
+     * The loader should be closed when no longer used.
+     *
+     * @param clause   the select sql ending with {@code IN}, such as {@code select * from user where id in}. The IN
+     *                 list of keys is appended to it
+     * @param mapper   map row to value
+     * @param keyOf    get the key from value
+     * @param window   how long to wait for more keys, after the first key of a query arrived
+     * @param maxBatch max keys requested in one query
+     */
+    public <K, V> KeyedLoader<K, V> keyedLoader(String clause, RowMapper<V> mapper,
+                                                Function<? super V, ? extends K> keyOf, Duration window,
+                                                int maxBatch) {
+        return new KeyedLoader<>(this, clause, mapper, keyOf, window, maxBatch);
+    }
+
+    /**
+     * Create a write-behind queue, which executes submitted sqls asynchronously with jdbc batch.
+     * The queue should be closed when no longer used, to flush pending rows.
+     */
+    public WriteBehindQueue writeBehindQueue() {
+        return new WriteBehindQueue(this);
+    }
+
+    /**
+     * Import CSV/TSV file into table. Call execute method of returned CsvImport to start importing.
+     *
+     * @param file    the file to import
+     * @param table   the table name
+     * @param columns the columns which fields of file are inserted to, in order. If empty, all columns of table
+     */
+    public CsvImport importCsv(Path file, String table, String... columns) {
+        return new CsvImport(this, file, table, columns);
+    }
 
     /**
      * For holding transaction
@@ -70,9 +391,16 @@ public abstract class Database extends SQLExecutor {
         // for backup/restore origin auto commit value
         private final boolean autoCommit;
         private final MyConnection connection;
+        private final ExecutorSettings settings;
+        @Nullable
+        LeakDetector.Tracker tracker;
+        // called when transaction ended
+        @Nullable
+        Runnable onEnd;
 
-        TransactionContext(MyConnection connection) {
+        TransactionContext(MyConnection connection, ExecutorSettings settings) {
             this.connection = connection;
+            this.settings = settings;
             try {
                 this.autoCommit = connection.getAutoCommit();
                 this.connection.setAutoCommit(false);
@@ -111,6 +439,12 @@ public abstract class Database extends SQLExecutor {
          * called when transaction ended
          */
         private void restoreAndRelease() {
+            if (tracker != null) {
+                tracker.closed();
+            }
+            if (onEnd != null) {
+                onEnd.run();
+            }
             try (Connection c = connection) {
                 c.setAutoCommit(autoCommit);
             } catch (SQLException e) {
@@ -122,5 +456,10 @@ public abstract class Database extends SQLExecutor {
         protected MyConnection supplyConnection() {
             return new MyConnection(connection, false);
         }
+
+        @Override
+        ExecutorSettings settings() {
+            return settings;
+        }
     }
 }
@@ -0,0 +1,57 @@
+package net.dongliu.dbutils;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Thread-local deadline for sql executing. All sqls executed in the action, including acquiring connection,
+ * executing and fetching, should finish before the deadline; the query timeout of each statement is shrunk to the
+ * remaining time. Nested deadlines can only shrink the outer deadline.
+ *
+ * @author Liu Dong
+ */
+public final class Deadline {
+    private static final ThreadLocal<Long> current = new ThreadLocal<>();
+
+    private Deadline() {
+    }
+
+    /**
+     * Run action with deadline, which is timeout after now.
+     */
+    public static <T> T withTimeout(Duration timeout, Supplier<T> action) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Long outer = current.get();
+        if (outer != null && outer - deadline < 0) {
+            deadline = outer;
+        }
+        current.set(deadline);
+        try {
+            return action.get();
+        } finally {
+            if (outer == null) {
+                current.remove();
+            } else {
+                current.set(outer);
+            }
+        }
+    }
+
+    /**
+     * Run action with deadline, which is timeout after now.
+     */
+    public static void withTimeout(Duration timeout, Runnable action) {
+        withTimeout(timeout, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * The remaining nanos of current thread's deadline, Long.MAX_VALUE if no deadline set.
+     */
+    static long remainingNanos() {
+        Long deadline = current.get();
+        return deadline == null ? Long.MAX_VALUE : deadline - System.nanoTime();
+    }
+}
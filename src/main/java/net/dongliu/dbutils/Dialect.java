@@ -0,0 +1,244 @@
+package net.dongliu.dbutils;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Database dialects, for generating database specific sqls.
+ *
+ * @author Liu Dong
+ */
+public enum Dialect {
+    MYSQL,
+    POSTGRESQL,
+    SQLITE,
+    H2,
+    DERBY,
+    ORACLE,
+    SQLSERVER,
+    /**
+     * Databases not recognized, standard sql is used
+     */
+    GENERIC;
+
+    private static final Logger logger = Logger.getLogger(Dialect.class.getName());
+
+    // only warn once per dialect for unsupported streaming
+    private final AtomicBoolean streamingWarned = new AtomicBoolean();
+
+    /**
+     * Detect dialect from database meta data
+     */
+    public static Dialect of(DatabaseMetaData metaData) throws SQLException {
+        return of(metaData.getDatabaseProductName());
+    }
+
+    /**
+     * Detect dialect from database product name
+     */
+    public static Dialect of(String productName) {
+        String name = productName.toLowerCase(Locale.ROOT);
+        if (name.contains("mysql") || name.contains("mariadb")) {
+            return MYSQL;
+        }
+        if (name.contains("postgresql")) {
+            return POSTGRESQL;
+        }
+        if (name.contains("sqlite")) {
+            return SQLITE;
+        }
+        if (name.equals("h2")) {
+            return H2;
+        }
+        if (name.contains("derby")) {
+            return DERBY;
+        }
+        if (name.contains("oracle")) {
+            return ORACLE;
+        }
+        if (name.contains("sql server")) {
+            return SQLSERVER;
+        }
+        return GENERIC;
+    }
+
+    /**
+     * Check connection url, and log a hint if batch statements would not be rewritten to multi-row statements by
+     * driver.
+     */
+    void checkUrl(String url) {
+        if (this == MYSQL && !hasUrlFlag(url, "rewriteBatchedStatements")) {
+            logger.info("MySQL driver sends batch statements one by one, add rewriteBatchedStatements=true to url "
+                    + "to rewrite them into multi-row statements");
+        } else if (this == POSTGRESQL && !hasUrlFlag(url, "reWriteBatchedInserts")) {
+            logger.info("PostgreSQL driver sends batch inserts one by one, add reWriteBatchedInserts=true to url "
+                    + "to rewrite them into multi-row inserts");
+        }
+    }
+
+    private static boolean hasUrlFlag(String url, String flag) {
+        return url.toLowerCase(Locale.ROOT).contains(flag.toLowerCase(Locale.ROOT) + "=true");
+    }
+
+    /**
+     * Prepare connection for reading result by streaming, and return the fetch size which makes driver stream result.
+     * <p>
+     * MySQL driver only streams with fetch size Integer.MIN_VALUE, unless useCursorFetch is set;
+     * PostgreSQL driver only uses cursor when auto commit is off, so auto commit is disabled until connection closed.
+     *
+     * @param fetchSize the fetch size set by user, should be positive
+     */
+    int prepareStreaming(MyConnection connection, int fetchSize, String url) throws SQLException {
+        switch (this) {
+            case MYSQL:
+                if (hasUrlFlag(url, "useCursorFetch")) {
+                    return fetchSize;
+                }
+                if (connection.isShared()) {
+                    warnStreaming("MySQL streaming result blocks other statements on the same connection until "
+                            + "fully read; do not execute sql in the same transaction before the result consumed");
+                }
+                return Integer.MIN_VALUE;
+            case POSTGRESQL:
+                connection.suspendAutoCommit();
+                return fetchSize;
+            case GENERIC:
+                warnStreaming("Unknown database, fetch size is passed to driver as is, result may not be streamed");
+                return fetchSize;
+            default:
+                return fetchSize;
+        }
+    }
+
+    /**
+     * If the fetch size passed to driver is replaced by {@link #prepareStreaming}, so the fetch size requested takes
+     * no effect
+     */
+    boolean replacesFetchSize(String url) {
+        return this == MYSQL && !hasUrlFlag(url, "useCursorFetch");
+    }
+
+    private void warnStreaming(String message) {
+        if (streamingWarned.compareAndSet(false, true)) {
+            logger.warning(message);
+        }
+    }
+
+    /**
+     * Generate single statement upsert sql: insert the row, or update the non-key columns if row with the same key
+     * exists.
+     *
+     * @param columns    all columns to insert, should contain the key columns
+     * @param keyColumns the columns of primary key or unique key
+     */
+    Upsert upsert(String table, String[] keyColumns, String[] columns) {
+        if (keyColumns.length == 0) {
+            throw new IllegalArgumentException("key columns not set");
+        }
+        List<String> columnList = Arrays.asList(columns);
+        for (String keyColumn : keyColumns) {
+            if (!columnList.contains(keyColumn)) {
+                throw new IllegalArgumentException("key column " + keyColumn + " not in columns");
+            }
+        }
+        String[] updateColumns = columnList.stream().filter(c -> !Arrays.asList(keyColumns).contains(c))
+                .toArray(String[]::new);
+        String columnNames = String.join(", ", columns);
+        String placeholders = Arrays.stream(columns).map(c -> "?").collect(joining(", "));
+        int[] identity = new int[columns.length];
+        for (int i = 0; i < identity.length; i++) {
+            identity[i] = i;
+        }
+
+        switch (this) {
+            case MYSQL: {
+                String updates = updateColumns.length == 0 ? keyColumns[0] + " = " + keyColumns[0]
+                        : Arrays.stream(updateColumns).map(c -> c + " = VALUES(" + c + ")").collect(joining(", "));
+                return new Upsert("INSERT INTO " + table + " (" + columnNames + ") VALUES (" + placeholders + ")"
+                        + " ON DUPLICATE KEY UPDATE " + updates, identity);
+            }
+            case POSTGRESQL:
+            case SQLITE: {
+                String action = updateColumns.length == 0 ? "DO NOTHING" : "DO UPDATE SET "
+                        + Arrays.stream(updateColumns).map(c -> c + " = EXCLUDED." + c).collect(joining(", "));
+                return new Upsert("INSERT INTO " + table + " (" + columnNames + ") VALUES (" + placeholders + ")"
+                        + " ON CONFLICT (" + String.join(", ", keyColumns) + ") " + action, identity);
+            }
+            case H2:
+                return new Upsert("MERGE INTO " + table + " (" + columnNames + ") KEY (" + String.join(", ", keyColumns)
+                        + ") VALUES (" + placeholders + ")", identity);
+            case DERBY: {
+                // derby merge needs a source table, so values are passed in ON/SET/VALUES clauses directly
+                int[] indexes = new int[keyColumns.length + updateColumns.length + columns.length];
+                int p = 0;
+                for (String keyColumn : keyColumns) {
+                    indexes[p++] = columnList.indexOf(keyColumn);
+                }
+                for (String updateColumn : updateColumns) {
+                    indexes[p++] = columnList.indexOf(updateColumn);
+                }
+                System.arraycopy(identity, 0, indexes, p, identity.length);
+                String on = Arrays.stream(keyColumns).map(c -> table + "." + c + " = ?").collect(joining(" AND "));
+                String matched = updateColumns.length == 0 ? "" : " WHEN MATCHED THEN UPDATE SET "
+                        + Arrays.stream(updateColumns).map(c -> c + " = ?").collect(joining(", "));
+                return new Upsert("MERGE INTO " + table + " USING SYSIBM.SYSDUMMY1 ON " + on + matched
+                        + " WHEN NOT MATCHED THEN INSERT (" + columnNames + ") VALUES (" + placeholders + ")", indexes);
+            }
+            case ORACLE: {
+                String select = Arrays.stream(columns).map(c -> "? " + c).collect(joining(", "));
+                return new Upsert("MERGE INTO " + table + " t USING (SELECT " + select + " FROM dual) s ON ("
+                        + mergeOn(keyColumns) + ")" + mergeActions(columns, updateColumns), identity);
+            }
+            default: {
+                String merge = "MERGE INTO " + table + " t USING (VALUES (" + placeholders + ")) s (" + columnNames
+                        + ") ON " + mergeOn(keyColumns) + mergeActions(columns, updateColumns);
+                // sql server requires merge statement terminated by semicolon
+                return new Upsert(this == SQLSERVER ? merge + ";" : merge, identity);
+            }
+        }
+    }
+
+    private static String mergeOn(String[] keyColumns) {
+        return Arrays.stream(keyColumns).map(c -> "t." + c + " = s." + c).collect(joining(" AND "));
+    }
+
+    private static String mergeActions(String[] columns, String[] updateColumns) {
+        String matched = updateColumns.length == 0 ? "" : " WHEN MATCHED THEN UPDATE SET "
+                + Arrays.stream(updateColumns).map(c -> "t." + c + " = s." + c).collect(joining(", "));
+        return matched + " WHEN NOT MATCHED THEN INSERT (" + String.join(", ", columns) + ") VALUES ("
+                + Arrays.stream(columns).map(c -> "s." + c).collect(joining(", ")) + ")";
+    }
+
+    /**
+     * Upsert sql clause, and how to build statement params from row values
+     */
+    static class Upsert {
+        private final String clause;
+        // the index of row value for each param
+        private final int[] paramIndexes;
+
+        Upsert(String clause, int[] paramIndexes) {
+            this.clause = clause;
+            this.paramIndexes = paramIndexes;
+        }
+
+        String clause() {
+            return clause;
+        }
+
+        Object[] params(Object[] row) {
+            Object[] params = new Object[paramIndexes.length];
+            for (int i = 0; i < params.length; i++) {
+                params[i] = row[paramIndexes[i]];
+            }
+            return params;
+        }
+    }
+}
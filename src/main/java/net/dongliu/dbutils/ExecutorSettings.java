@@ -0,0 +1,24 @@
+package net.dongliu.dbutils;
+
+/**
+ * Default settings of a Database, shared with the transactions started from it.
+ */
+class ExecutorSettings {
+    // 0 means no limit
+    volatile long maxRows;
+    volatile long maxBytes;
+    // 0 means no timeout
+    volatile long timeoutNanos;
+    // null means no retry
+    volatile RetryPolicy retryPolicy;
+    // null means not detecting leaks
+    volatile LeakDetector leakDetector;
+    // detected from the first connection, if not set
+    volatile Dialect dialect;
+    // the jdbc url, got from the first connection
+    volatile String url;
+    // null means not tuning
+    volatile AdaptiveTuner tuner;
+    // null means not caching column names
+    volatile ColumnCache columnCache;
+}
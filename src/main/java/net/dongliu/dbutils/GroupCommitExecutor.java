@@ -0,0 +1,255 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.exception.UncheckedSQLException;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesce many small concurrent writes into shared transactions.
+ * <p>
+ * Write requests submitted in a short window, or up to max statements, are executed on one connection in a single
+ * transaction, then committed together. Consecutive requests with the same sql clause are executed as one jdbc batch.
+ * If a batch failed, its requests are re-executed one by one, each under a savepoint, so a failing statement only fails
+ * its own future. The database should support savepoints; releasing them is optional.
+ * <p>
+ * The future of a request is completed with its affected row count after the transaction committed. Requests from the
+ * same thread are executed in the order submitted. If the driver does not report row counts of batched statements,
+ * the count is {@link Statement#SUCCESS_NO_INFO}.
+ *
+ * @author Liu Dong
+ */
+public class GroupCommitExecutor implements AutoCloseable {
+    // queued by close, to wake up and stop the worker
+    private static final Request STOP = new Request("", new Object[0]);
+
+    private final Database database;
+    private final long windowNanos;
+    private final int maxStatements;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread worker;
+    private volatile boolean closed;
+
+    GroupCommitExecutor(Database database, Duration window, int maxStatements) {
+        if (maxStatements < 1) {
+            throw new IllegalArgumentException("maxStatements should be positive");
+        }
+        this.database = database;
+        this.windowNanos = window.toNanos();
+        this.maxStatements = maxStatements;
+        this.worker = new Thread(this::run, "dbutils-group-commit");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Submit a insert/update/delete sql. The returned future is completed with affected row num after committed,
+     * or {@link Statement#SUCCESS_NO_INFO} if the driver does not report it for batched statements.
+     */
+    public CompletableFuture<Integer> submit(String clause, Object... params) {
+        Request request = new Request(clause, params);
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("GroupCommitExecutor already closed");
+            }
+            queue.add(request);
+        }
+        return request.future;
+    }
+
+    /**
+     * Submit a insert/update/delete sql. The returned future is completed with affected row num after committed.
+     */
+    public CompletableFuture<Integer> submit(SQL sql) {
+        return submit(sql.clause(), sql.params());
+    }
+
+    /**
+     * Stop accepting new requests, and wait the submitted requests to be committed.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!closed) {
+                closed = true;
+                queue.add(STOP);
+            }
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Request> group = new ArrayList<>();
+        boolean stop = false;
+        while (!stop) {
+            Request first;
+            try {
+                first = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (first == STOP) {
+                break;
+            }
+            group.add(first);
+            long deadline = System.nanoTime() + windowNanos;
+            try {
+                while (group.size() < maxStatements) {
+                    long remain = deadline - System.nanoTime();
+                    Request request = remain > 0 ? queue.poll(remain, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (request == null) {
+                        break;
+                    }
+                    if (request == STOP) {
+                        stop = true;
+                        break;
+                    }
+                    group.add(request);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            execute(group);
+            group.clear();
+        }
+        // fail the requests that can not be executed any more
+        Request request;
+        while ((request = queue.poll()) != null) {
+            if (request == STOP) {
+                continue;
+            }
+            request.future.completeExceptionally(new IllegalStateException("GroupCommitExecutor stopped"));
+        }
+    }
+
+    private void execute(List<Request> group) {
+        try (MyConnection connection = database.supplyConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                int start = 0;
+                while (start < group.size()) {
+                    int end = start + 1;
+                    String clause = group.get(start).clause;
+                    while (end < group.size() && group.get(end).clause.equals(clause)) {
+                        end++;
+                    }
+                    executeRun(connection, group.subList(start, end));
+                    start = end;
+                }
+                connection.commit();
+            } catch (Throwable t) {
+                try {
+                    connection.rollback();
+                } catch (SQLException e) {
+                    t.addSuppressed(e);
+                }
+                throw t;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            setFailure(group, new UncheckedSQLException(e));
+        } catch (Throwable t) {
+            setFailure(group, t);
+        }
+        for (Request request : group) {
+            if (request.failure != null) {
+                request.future.completeExceptionally(request.failure);
+            } else {
+                request.future.complete(request.count);
+            }
+        }
+    }
+
+    private static void setFailure(List<Request> group, Throwable failure) {
+        for (Request request : group) {
+            request.failure = failure;
+        }
+    }
+
+    /**
+     * Execute requests with the same sql clause, as one batch
+     */
+    private static void executeRun(MyConnection connection, List<Request> requests) throws SQLException {
+        String clause = requests.get(0).clause;
+        Savepoint savepoint = connection.setSavepoint();
+        try (PreparedStatement stmt = connection.prepareStatement(clause)) {
+            if (requests.size() == 1) {
+                SQLExecutor.fillStatement(stmt, requests.get(0).params);
+                requests.get(0).count = stmt.executeUpdate();
+                releaseSavepoint(connection, savepoint);
+                return;
+            }
+            for (Request request : requests) {
+                SQLExecutor.fillStatement(stmt, request.params);
+                stmt.addBatch();
+            }
+            int[] counts = stmt.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                requests.get(i).count = counts[i];
+            }
+            releaseSavepoint(connection, savepoint);
+            return;
+        } catch (SQLException e) {
+            connection.rollback(savepoint);
+            releaseSavepoint(connection, savepoint);
+            if (requests.size() == 1) {
+                requests.get(0).failure = new UncheckedSQLException(e);
+                return;
+            }
+        }
+
+        // isolate the failing statements
+        try (PreparedStatement stmt = connection.prepareStatement(clause)) {
+            for (Request request : requests) {
+                Savepoint sp = connection.setSavepoint();
+                try {
+                    SQLExecutor.fillStatement(stmt, request.params);
+                    request.count = stmt.executeUpdate();
+                } catch (SQLException e) {
+                    connection.rollback(sp);
+                    request.failure = new UncheckedSQLException(e);
+                }
+                releaseSavepoint(connection, sp);
+            }
+        }
+    }
+
+    /**
+     * Release savepoint if the driver supports it; Oracle does not, its savepoints end with the transaction
+     */
+    private static void releaseSavepoint(MyConnection connection, Savepoint savepoint) throws SQLException {
+        try {
+            connection.releaseSavepoint(savepoint);
+        } catch (SQLFeatureNotSupportedException ignore) {
+        }
+    }
+
+    private static class Request {
+        private final String clause;
+        private final Object[] params;
+        private final CompletableFuture<Integer> future = new CompletableFuture<>();
+        private int count;
+        private Throwable failure;
+
+        private Request(String clause, Object[] params) {
+            this.clause = clause;
+            this.params = params;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.mapper.RowMapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Merge concurrent single key lookups into batched IN queries.
+ * <p>
+ * Keys requested in a short window, or up to max batch size, are deduplicated and loaded by one query, which is the
+ * sql clause followed by a IN list of keys, such as {@code select * from user where id in (?, ?, ?)}. The IN list is
+ * padded to a power of two, or max batch size if less, by repeating the last key, so only a few distinct sqls are
+ * sent. Each loaded row is
+ * mapped, and the value is matched to requests by the key extracted from it; keys not found are completed with null.
+ * <p>
+ * The keys extracted from values should be equal to the requested keys, note that Integer and Long keys never equal.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author Liu Dong
+ */
+public class KeyedLoader<K, V> implements AutoCloseable {
+    private final Database database;
+    private final String clause;
+    private final RowMapper<V> mapper;
+    private final Function<? super V, ? extends K> keyOf;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final BlockingQueue<Request<K, V>> queue = new LinkedBlockingQueue<>();
+    private final Thread worker;
+    // queued by close, to wake up and stop the worker
+    private final Request<K, V> stop = new Request<>(null);
+    private volatile boolean closed;
+
+    KeyedLoader(Database database, String clause, RowMapper<V> mapper, Function<? super V, ? extends K> keyOf,
+                Duration window, int maxBatch) {
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("maxBatch should be positive");
+        }
+        this.database = database;
+        this.clause = requireNonNull(clause);
+        this.mapper = requireNonNull(mapper);
+        this.keyOf = requireNonNull(keyOf);
+        this.windowNanos = window.toNanos();
+        this.maxBatch = maxBatch;
+        this.worker = new Thread(this::run, "dbutils-keyed-loader");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Load value by key. The returned future is completed with the value, or null if not found.
+     */
+    public CompletableFuture<V> load(K key) {
+        Request<K, V> request = new Request<>(requireNonNull(key));
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("KeyedLoader already closed");
+            }
+            queue.add(request);
+        }
+        return request.future;
+    }
+
+    /**
+     * Load value by key, and wait the result.
+     *
+     * @return the value, or null if not found
+     */
+    public V get(K key) {
+        try {
+            return load(key).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stop accepting new requests, and wait the submitted requests to be loaded.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!closed) {
+                closed = true;
+                queue.add(stop);
+            }
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Request<K, V>> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            Request<K, V> first;
+            try {
+                first = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (first == stop) {
+                break;
+            }
+            batch.add(first);
+            long deadline = System.nanoTime() + windowNanos;
+            try {
+                while (batch.size() < maxBatch) {
+                    long remain = deadline - System.nanoTime();
+                    Request<K, V> request = remain > 0 ? queue.poll(remain, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (request == null) {
+                        break;
+                    }
+                    if (request == stop) {
+                        stopping = true;
+                        break;
+                    }
+                    batch.add(request);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            execute(batch);
+            batch.clear();
+        }
+        // fail the requests that can not be executed any more
+        Request<K, V> request;
+        while ((request = queue.poll()) != null) {
+            if (request == stop) {
+                continue;
+            }
+            request.future.completeExceptionally(new IllegalStateException("KeyedLoader stopped"));
+        }
+    }
+
+    private void execute(List<Request<K, V>> batch) {
+        // dedupe keys
+        Map<K, List<Request<K, V>>> requests = new LinkedHashMap<>();
+        for (Request<K, V> request : batch) {
+            requests.computeIfAbsent(request.key, k -> new ArrayList<>(1)).add(request);
+        }
+        Map<K, V> values = new HashMap<>();
+        try {
+            List<V> list = database.query(inClause(requests.size()), padKeys(requests.keySet().toArray()))
+                    .map(mapper).getList();
+            for (V value : list) {
+                values.putIfAbsent(keyOf.apply(value), value);
+            }
+        } catch (Throwable t) {
+            for (Request<K, V> request : batch) {
+                request.future.completeExceptionally(t);
+            }
+            return;
+        }
+        for (Map.Entry<K, List<Request<K, V>>> entry : requests.entrySet()) {
+            V value = values.get(entry.getKey());
+            for (Request<K, V> request : entry.getValue()) {
+                request.future.complete(value);
+            }
+        }
+    }
+
+    /**
+     * The next power of two, not exceeding max batch size
+     */
+    private int paddedSize(int size) {
+        return size <= 1 ? 1 : Math.min(maxBatch, Integer.highestOneBit(size - 1) << 1);
+    }
+
+    private String inClause(int size) {
+        StringBuilder sb = new StringBuilder(clause).append(" (");
+        int padded = paddedSize(size);
+        for (int i = 0; i < padded; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.append(")").toString();
+    }
+
+    private Object[] padKeys(Object[] keys) {
+        int padded = paddedSize(keys.length);
+        if (padded == keys.length) {
+            return keys;
+        }
+        Object[] params = new Object[padded];
+        System.arraycopy(keys, 0, params, 0, keys.length);
+        for (int i = keys.length; i < padded; i++) {
+            params[i] = keys[keys.length - 1];
+        }
+        return params;
+    }
+
+    private static class Request<K, V> {
+        private final K key;
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+
+        private Request(K key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package net.dongliu.dbutils;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Detect leaked streams returned by asStream, and transactions never committed or rolled back, which hold connections.
+ * <p>
+ * Tracked objects are watched by phantom references. A warning is logged by java.util.logging, with the sql
+ * fingerprint, when a tracked object becomes unreachable but not closed, or is held open beyond the threshold.
+ * A sample of tracked objects capture the allocation stack trace, which is logged with the warning.
+ * If reclaim is enabled, the resources of unreachable objects are closed, so the connections go back to the pool.
+ * <p>
+ * Leak detection is opt-in, set by {@link Database#leakDetector(LeakDetector)}.
+ *
+ * @author Liu Dong
+ */
+public class LeakDetector {
+    private static final Logger logger = Logger.getLogger(LeakDetector.class.getName());
+
+    private volatile double stackSampleRate = 0.1;
+    private volatile long heldThresholdNanos = TimeUnit.MINUTES.toNanos(1);
+    private volatile boolean reclaim;
+
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    // keep the references reachable until the tracked object closed or collected
+    private final Set<Tracker> trackers = ConcurrentHashMap.newKeySet();
+    private Thread reaper;
+
+    private final AtomicLong leaked = new AtomicLong();
+    private final AtomicLong reclaimed = new AtomicLong();
+    private final AtomicLong heldTooLong = new AtomicLong();
+
+    /**
+     * The ratio of tracked objects which capture allocation stack trace, between 0 and 1. Default 0.1
+     */
+    public LeakDetector stackSampleRate(double stackSampleRate) {
+        if (stackSampleRate < 0 || stackSampleRate > 1) {
+            throw new IllegalArgumentException("illegal sample rate: " + stackSampleRate);
+        }
+        this.stackSampleRate = stackSampleRate;
+        return this;
+    }
+
+    /**
+     * Warn when tracked object is held open longer than this. Null to disable. Default 1 minute
+     */
+    public LeakDetector heldThreshold(@Nullable Duration heldThreshold) {
+        this.heldThresholdNanos = heldThreshold == null ? 0 : heldThreshold.toNanos();
+        return this;
+    }
+
+    /**
+     * If close the resources of tracked objects which become unreachable but not closed. Default false
+     */
+    public LeakDetector reclaim(boolean reclaim) {
+        this.reclaim = reclaim;
+        return this;
+    }
+
+    /**
+     * Count of tracked objects become unreachable but not closed
+     */
+    public long leaked() {
+        return leaked.get();
+    }
+
+    /**
+     * Count of leaked objects whose resources are closed by this detector
+     */
+    public long reclaimed() {
+        return reclaimed.get();
+    }
+
+    /**
+     * Count of tracked objects held open beyond threshold
+     */
+    public long heldTooLong() {
+        return heldTooLong.get();
+    }
+
+    /**
+     * Count of tracked objects not closed yet
+     */
+    public int active() {
+        return trackers.size();
+    }
+
+    /**
+     * Start tracking a object.
+     *
+     * @param owner     the object which is used by user
+     * @param kind      the kind of owner, for logging
+     * @param clause    the sql clause, may be null
+     * @param resources the resources held by owner, which are closed in order when reclaiming
+     */
+    Tracker track(Object owner, String kind, @Nullable String clause, AutoCloseable... resources) {
+        ensureStarted();
+        Throwable stack = null;
+        if (stackSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < stackSampleRate) {
+            stack = new Throwable("Allocated at");
+        }
+        Tracker tracker = new Tracker(owner, queue, kind, clause == null ? null : SQLFingerprint.of(clause), stack,
+                resources);
+        trackers.add(tracker);
+        return tracker;
+    }
+
+    private synchronized void ensureStarted() {
+        if (reaper != null) {
+            return;
+        }
+        reaper = new Thread(this::run, "dbutils-leak-detector");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    private void run() {
+        long lastScan = System.nanoTime();
+        while (true) {
+            Reference<?> reference;
+            try {
+                reference = queue.remove(1000);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (reference != null) {
+                onUnreachable((Tracker) reference);
+            }
+            long now = System.nanoTime();
+            if (now - lastScan >= TimeUnit.SECONDS.toNanos(1)) {
+                lastScan = now;
+                scanHeld(now);
+            }
+        }
+    }
+
+    private void onUnreachable(Tracker tracker) {
+        if (!trackers.remove(tracker)) {
+            // already closed
+            return;
+        }
+        leaked.incrementAndGet();
+        logger.log(Level.WARNING, tracker.kind + " was not closed before garbage collected" + sqlOf(tracker)
+                + (reclaim ? ", reclaiming its connection" : ""), tracker.stack);
+        if (reclaim) {
+            for (AutoCloseable resource : tracker.resources) {
+                try {
+                    resource.close();
+                } catch (Exception e) {
+                    logger.log(Level.FINE, "close leaked resource failed", e);
+                }
+            }
+            reclaimed.incrementAndGet();
+        }
+        tracker.resources = null;
+    }
+
+    private void scanHeld(long now) {
+        long threshold = heldThresholdNanos;
+        if (threshold <= 0) {
+            return;
+        }
+        for (Tracker tracker : trackers) {
+            if (!tracker.warnedHeld && now - tracker.startNanos > threshold) {
+                tracker.warnedHeld = true;
+                heldTooLong.incrementAndGet();
+                logger.log(Level.WARNING, tracker.kind + " has been open for "
+                        + TimeUnit.NANOSECONDS.toSeconds(now - tracker.startNanos) + "s" + sqlOf(tracker),
+                        tracker.stack);
+            }
+        }
+    }
+
+    private static String sqlOf(Tracker tracker) {
+        return tracker.fingerprint == null ? "" : ", sql: " + tracker.fingerprint;
+    }
+
+    /**
+     * Reference to tracked object. Call {@link #closed()} when the tracked object is closed.
+     */
+    class Tracker extends PhantomReference<Object> {
+        private final String kind;
+        @Nullable
+        private final String fingerprint;
+        @Nullable
+        private final Throwable stack;
+        private final long startNanos = System.nanoTime();
+        private volatile AutoCloseable[] resources;
+        private volatile boolean warnedHeld;
+
+        private Tracker(Object owner, ReferenceQueue<Object> queue, String kind, @Nullable String fingerprint,
+                        @Nullable Throwable stack, AutoCloseable[] resources) {
+            super(owner, queue);
+            this.kind = kind;
+            this.fingerprint = fingerprint;
+            this.stack = stack;
+            this.resources = resources;
+        }
+
+        void closed() {
+            if (trackers.remove(this)) {
+                resources = null;
+                clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.exception.ResultLimitExceededException;
+
+import java.sql.*;
+
+/**
+ * ResultSet which counts rows and estimated bytes, and cancel the statement once limits are exceeded.
+ */
+class LimitedResultSet extends ResultSetWrapper {
+    private final Statement statement;
+    private final long maxRows;
+    private final long maxBytes;
+    private long rows;
+    private long bytes;
+    private int rowWidth = -1;
+
+    /**
+     * @param maxRows  max rows, 0 for no limit
+     * @param maxBytes max estimated bytes, 0 for no limit
+     */
+    LimitedResultSet(ResultSet delegated, Statement statement, long maxRows, long maxBytes) {
+        super(delegated);
+        this.statement = statement;
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        if (!delegated.next()) {
+            return false;
+        }
+        rows++;
+        if (maxRows > 0 && rows > maxRows) {
+            abort("Query result exceeds max rows: " + maxRows);
+        }
+        if (maxBytes > 0) {
+            if (rowWidth < 0) {
+                rowWidth = estimateRowWidth(delegated.getMetaData());
+            }
+            bytes += rowWidth;
+            if (bytes > maxBytes) {
+                abort("Query result exceeds max estimated bytes: " + maxBytes);
+            }
+        }
+        return true;
+    }
+
+    private void abort(String message) {
+        ResultLimitExceededException e = new ResultLimitExceededException(message);
+        // stop server sending more data
+        try {
+            statement.cancel();
+        } catch (SQLException | RuntimeException t) {
+            e.addSuppressed(t);
+        }
+        throw e;
+    }
+
+    /**
+     * Push row limit to driver, so server sends no more rows than needed to detect limit exceeded.
+     * Limits not fit in int are only checked when reading rows, as some drivers (such as Derby) keep max rows as int
+     * even for setLargeMaxRows, and overflow.
+     */
+    static void setMaxRows(Statement statement, long maxRows) throws SQLException {
+        if (maxRows >= Integer.MAX_VALUE) {
+            return;
+        }
+        // one more row, for knowing limit exceeded
+        statement.setMaxRows((int) maxRows + 1);
+    }
+
+    /**
+     * Estimate the bytes of one row, from column types.
+     * For variable length columns the declared precision is used, capped, as real value length is unknown.
+     */
+    static int estimateRowWidth(ResultSetMetaData metaData) throws SQLException {
+        int width = 0;
+        int count = metaData.getColumnCount();
+        for (int i = 1; i <= count; i++) {
+            switch (metaData.getColumnType(i)) {
+                case Types.BIT:
+                case Types.BOOLEAN:
+                case Types.TINYINT:
+                    width += 1;
+                    break;
+                case Types.SMALLINT:
+                    width += 2;
+                    break;
+                case Types.INTEGER:
+                case Types.REAL:
+                case Types.DATE:
+                    width += 4;
+                    break;
+                case Types.BIGINT:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                case Types.TIME:
+                case Types.TIMESTAMP:
+                    width += 8;
+                    break;
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    width += metaData.getPrecision(i) / 2 + 2;
+                    break;
+                case Types.BLOB:
+                case Types.CLOB:
+                case Types.NCLOB:
+                case Types.LONGVARBINARY:
+                case Types.LONGVARCHAR:
+                case Types.LONGNVARCHAR:
+                    width += 1024;
+                    break;
+                default:
+                    int precision = metaData.getPrecision(i);
+                    width += precision <= 0 ? 32 : Math.min(precision, 256);
+            }
+        }
+        return width;
+    }
+}
@@ -12,6 +12,8 @@ class MyConnection implements Connection {
     private final boolean autoClose;
     private final Connection delegated;
     private boolean closed;
+    // auto commit was disabled temporarily, should be enabled when close
+    private boolean restoreAutoCommit;
 
     public MyConnection(Connection connection, boolean autoClose) {
         this.autoClose = autoClose;
@@ -68,12 +70,37 @@ class MyConnection implements Connection {
 
     @Override
     public void close() throws SQLException {
-        if (autoClose && !closed) {
-            delegated.close();
-            closed = true;
+        try {
+            if (restoreAutoCommit) {
+                restoreAutoCommit = false;
+                delegated.setAutoCommit(true);
+            }
+        } finally {
+            if (autoClose && !closed) {
+                delegated.close();
+                closed = true;
+            }
         }
     }
 
+    /**
+     * Disable auto commit until this connection closed, if auto commit is enabled.
+     */
+    void suspendAutoCommit() throws SQLException {
+        checkClosed();
+        if (!restoreAutoCommit && delegated.getAutoCommit()) {
+            delegated.setAutoCommit(false);
+            restoreAutoCommit = true;
+        }
+    }
+
+    /**
+     * If the underlying connection is shared with others, as in transaction, and not closed when this closed
+     */
+    boolean isShared() {
+        return !autoClose;
+    }
+
     @Override
     public boolean isClosed() throws SQLException {
         return closed;
@@ -0,0 +1,986 @@
+package net.dongliu.dbutils;
+
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.net.URL;
+import java.sql.*;
+import java.time.*;
+import java.util.Calendar;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ResultSet which reads ahead the wrapped ResultSet from a background thread, so network fetching overlaps with
+ * processing rows.
+ * <p>
+ * The producer thread advances the wrapped ResultSet, and copies column values into a bounded ring of row blocks;
+ * the consumer reads rows from the blocks, and returns consumed blocks to producer for reuse. Blob and Clob values
+ * are copied into memory, as they may be invalid once the cursor moved. Stream, calendar and type map getters are not
+ * supported. The wrapped ResultSet is only touched by producer until this ResultSet closed.
+ * <p>
+ * Values are copied by getObject, and typed getters convert them as JDBC drivers do, failing with SQLState 22003 if
+ * out of range, 22018 or 22007 for malformed numeric or datetime strings. For binary columns, the string from
+ * driver's getString is also copied, as its format is driver specific. If the wrapped ResultSet fails, rows read
+ * before the failure are returned first, then next() throws the error.
+ * <p>
+ * Only used for statements on their own connection, not shared with a transaction, as the statement is cancelled when
+ * closed early.
+ */
+class PrefetchResultSet extends ResultSetWrapper {
+    private static final ExecutorService producers = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "dbutils-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Statement statement;
+    private final ResultSetMetaData metaData;
+    private final int columnCount;
+    // columns whose getString is copied from driver, null if none
+    private final boolean[] textColumns;
+    private final BlockingQueue<Block> free;
+    private final BlockingQueue<Block> filled;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    // the wrapped ResultSet is closed by the last one of producer and consumer
+    private final AtomicInteger delegatedHolders = new AtomicInteger(2);
+    private volatile boolean stopped;
+
+    private Map<String, Integer> columnIndexes;
+    private Block current;
+    private int position;
+    private Object[] row;
+    private String[] rowTexts;
+    private boolean wasNull;
+    private boolean done;
+    private boolean closed;
+
+    /**
+     * @param blockSize rows in one block
+     * @param blocks    the number of blocks, at least 2, so producer can fill one block while consumer reads another
+     */
+    PrefetchResultSet(ResultSet delegated, Statement statement, int blockSize, int blocks) throws SQLException {
+        super(delegated);
+        this.statement = statement;
+        this.metaData = delegated.getMetaData();
+        this.columnCount = metaData.getColumnCount();
+        this.textColumns = textColumns(metaData, columnCount);
+        this.free = new ArrayBlockingQueue<>(blocks);
+        this.filled = new ArrayBlockingQueue<>(blocks);
+        for (int i = 0; i < blocks; i++) {
+            free.add(new Block(blockSize, columnCount, textColumns != null));
+        }
+    }
+
+    private static boolean[] textColumns(ResultSetMetaData metaData, int columnCount) throws SQLException {
+        boolean[] textColumns = new boolean[columnCount];
+        boolean found = false;
+        for (int i = 0; i < columnCount; i++) {
+            int type = metaData.getColumnType(i + 1);
+            if (type == Types.BINARY || type == Types.VARBINARY) {
+                textColumns[i] = true;
+                found = true;
+            }
+        }
+        return found ? textColumns : null;
+    }
+
+    /**
+     * Start the producer thread
+     */
+    PrefetchResultSet start() {
+        producers.execute(this::produce);
+        return this;
+    }
+
+    private void produce() {
+        try {
+            while (!stopped) {
+                Block block = free.poll(50, TimeUnit.MILLISECONDS);
+                if (block == null) {
+                    continue;
+                }
+                fill(block);
+                filled.add(block);
+                if (block.last) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Block block = new Block(0, 0, false);
+            block.error = e;
+            block.last = true;
+            filled.offer(block);
+        } finally {
+            finished.countDown();
+            if (releaseDelegated()) {
+                // consumer gave up waiting when closing
+                try {
+                    delegated.close();
+                } catch (SQLException | RuntimeException ignore) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Called once by producer and once by consumer, return true for the last caller, which should close the wrapped
+     * ResultSet
+     */
+    private boolean releaseDelegated() {
+        return delegatedHolders.decrementAndGet() == 0;
+    }
+
+    private void fill(Block block) {
+        block.size = 0;
+        try {
+            while (block.size < block.rows.length) {
+                if (stopped || !delegated.next()) {
+                    block.last = true;
+                    return;
+                }
+                Object[] values = block.rows[block.size];
+                for (int i = 0; i < columnCount; i++) {
+                    values[i] = copy(delegated.getObject(i + 1));
+                }
+                if (textColumns != null) {
+                    String[] texts = block.texts[block.size];
+                    for (int i = 0; i < columnCount; i++) {
+                        if (textColumns[i]) {
+                            texts[i] = delegated.getString(i + 1);
+                        }
+                    }
+                }
+                block.size++;
+            }
+        } catch (Throwable t) {
+            block.error = t;
+            block.last = true;
+        }
+    }
+
+    private static Object copy(Object value) throws SQLException {
+        if (value instanceof Blob) {
+            return new SerialBlob((Blob) value);
+        }
+        if (value instanceof Clob) {
+            return new SerialClob((Clob) value);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        checkClosed();
+        if (done) {
+            return false;
+        }
+        while (current == null || ++position >= current.size) {
+            if (current != null) {
+                if (current.error != null) {
+                    // rows read before the error are all delivered
+                    done = true;
+                    row = null;
+                    rowTexts = null;
+                    rethrow(current.error);
+                }
+                if (current.last) {
+                    done = true;
+                    row = null;
+                    rowTexts = null;
+                    return false;
+                }
+                free.add(current);
+            }
+            try {
+                current = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for prefetched rows", e);
+            }
+            position = -1;
+        }
+        row = current.rows[position];
+        rowTexts = current.texts == null ? null : current.texts[position];
+        return true;
+    }
+
+    private static void rethrow(Throwable t) throws SQLException {
+        if (t instanceof SQLException) {
+            throw (SQLException) t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new SQLException(t);
+    }
+
+    /**
+     * Stop the producer, then close the wrapped ResultSet. If producer is still fetching, the statement is cancelled,
+     * so remaining rows are not transferred. If interrupted while waiting the producer to stop, the wrapped ResultSet
+     * is closed by producer when it stopped.
+     */
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        row = null;
+        rowTexts = null;
+        stopped = true;
+        try {
+            if (finished.getCount() > 0) {
+                try {
+                    statement.cancel();
+                } catch (SQLException | RuntimeException e) {
+                    // driver may not support cancel, wait producer to see the stop flag
+                }
+                finished.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while stopping prefetch", e);
+        } finally {
+            filled.clear();
+            free.clear();
+            if (releaseDelegated()) {
+                delegated.close();
+            }
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void checkClosed() throws SQLException {
+        if (closed) {
+            throw new SQLException("ResultSet already closed");
+        }
+    }
+
+    private Object value(int columnIndex) throws SQLException {
+        checkClosed();
+        if (row == null) {
+            throw new SQLException("ResultSet not positioned on a row");
+        }
+        if (columnIndex < 1 || columnIndex > columnCount) {
+            throw new SQLException("Column index out of range: " + columnIndex);
+        }
+        Object value = row[columnIndex - 1];
+        wasNull = value == null;
+        return value;
+    }
+
+    @Override
+    public boolean wasNull() {
+        return wasNull;
+    }
+
+    @Override
+    public ResultSetMetaData getMetaData() {
+        return metaData;
+    }
+
+    @Override
+    public int findColumn(String columnLabel) throws SQLException {
+        if (columnIndexes == null) {
+            Map<String, Integer> indexes = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (int i = columnCount; i >= 1; i--) {
+                // the first column wins for duplicated labels
+                indexes.put(metaData.getColumnLabel(i), i);
+            }
+            columnIndexes = indexes;
+        }
+        Integer index = columnIndexes.get(columnLabel);
+        if (index == null) {
+            throw new SQLException("Column not found: " + columnLabel);
+        }
+        return index;
+    }
+
+    @Override
+    public int getRow() throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Object getObject(int columnIndex) throws SQLException {
+        return value(columnIndex);
+    }
+
+    @Override
+    public String getString(int columnIndex) throws SQLException {
+        Object value = value(columnIndex);
+        if (value == null) {
+            return null;
+        }
+        if (rowTexts != null && textColumns[columnIndex - 1]) {
+            return rowTexts[columnIndex - 1];
+        }
+        if (value instanceof Clob) {
+            Clob clob = (Clob) value;
+            return clob.getSubString(1, (int) clob.length());
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof byte[] || value instanceof Blob) {
+            // the format is driver specific
+            throw unsupported();
+        }
+        return value.toString();
+    }
+
+    @Override
+    public boolean getBoolean(int columnIndex) throws SQLException {
+        Object value = value(columnIndex);
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue() != 0;
+        }
+        if (value instanceof String) {
+            String str = ((String) value).trim();
+            return str.equalsIgnoreCase("true") || str.equals("1");
+        }
+        throw cannotConvert(value, boolean.class);
+    }
+
+    @Override
+    public byte getByte(int columnIndex) throws SQLException {
+        return (byte) getLong(columnIndex, Byte.MIN_VALUE, Byte.MAX_VALUE, byte.class);
+    }
+
+    @Override
+    public short getShort(int columnIndex) throws SQLException {
+        return (short) getLong(columnIndex, Short.MIN_VALUE, Short.MAX_VALUE, short.class);
+    }
+
+    @Override
+    public int getInt(int columnIndex) throws SQLException {
+        return (int) getLong(columnIndex, Integer.MIN_VALUE, Integer.MAX_VALUE, int.class);
+    }
+
+    @Override
+    public long getLong(int columnIndex) throws SQLException {
+        return getLong(columnIndex, Long.MIN_VALUE, Long.MAX_VALUE, long.class);
+    }
+
+    private static final BigDecimal minLong = BigDecimal.valueOf(Long.MIN_VALUE);
+    private static final BigDecimal maxLong = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    /**
+     * Get integral value, the fraction part is truncated
+     *
+     * @throws SQLException with SQLState 22003 if value out of range [min, max]
+     */
+    private long getLong(int columnIndex, long min, long max, Class<?> type) throws SQLException {
+        Object value = value(columnIndex);
+        if (value == null) {
+            return 0;
+        }
+        long result;
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            result = ((Number) value).longValue();
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            // (double) Long.MAX_VALUE is 2^63, which is out of range
+            if (Double.isNaN(d) || d < -0x1p63 || d >= 0x1p63) {
+                throw outOfRange(value, type);
+            }
+            result = (long) d;
+        } else if (value instanceof BigDecimal || value instanceof BigInteger || value instanceof String) {
+            BigDecimal decimal;
+            try {
+                decimal = value instanceof BigDecimal ? (BigDecimal) value
+                        : value instanceof BigInteger ? new BigDecimal((BigInteger) value)
+                        : new BigDecimal(((String) value).trim());
+            } catch (NumberFormatException e) {
+                throw invalidText(value, type);
+            }
+            if (decimal.compareTo(minLong) < 0 || decimal.compareTo(maxLong) > 0) {
+                throw outOfRange(value, type);
+            }
+            result = decimal.longValue();
+        } else if (value instanceof Boolean) {
+            result = (Boolean) value ? 1 : 0;
+        } else {
+            throw cannotConvert(value, type);
+        }
+        if (result < min || result > max) {
+            throw outOfRange(value, type);
+        }
+        return result;
+    }
+
+    @Override
+    public float getFloat(int columnIndex) throws SQLException {
+        double value = getDouble(columnIndex);
+        if (Math.abs(value) > Float.MAX_VALUE && !Double.isInfinite(value)) {
+            throw outOfRange(value, float.class);
+        }
+        return (float) value;
+    }
+
+    @Override
+    public double getDouble(int columnIndex) throws SQLException {
+        Object value = value(columnIndex);
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble(((String) value).trim());
+            } catch (NumberFormatException e) {
+                throw invalidText(value, double.class);
+            }
+        }
+        throw cannotConvert(value, double.class);
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+        Object value = value(columnIndex);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                throw outOfRange(value, BigDecimal.class);
+            }
+            // the shortest decimal which converts back to the same float, as drivers do
+            return value instanceof Float ? new BigDecimal(Float.toString((Float) value)) : BigDecimal.valueOf(d);
+        }
+        if (value instanceof String) {
+            try {
+                return new BigDecimal(((String) value).trim());
+            } catch (NumberFormatException e) {
+                throw invalidText(value, BigDecimal.class);
+            }
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? BigDecimal.ONE : BigDecimal.ZERO;
+        }
+        throw cannotConvert(value, BigDecimal.class);
+    }
+
+    @Override
+    @Deprecated
+    public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
+        BigDecimal value = getBigDecimal(columnIndex);
+        return value == null ? null : value.setScale(scale, RoundingMode.HALF_UP);
+    }
+
+    @Override
+    public byte[] getBytes(int columnIndex) throws SQLException {
+        Object value = value(columnIndex);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        if (value instanceof Blob) {
+            Blob blob = (Blob) value;
+            return blob.getBytes(1, (int) blob.length());
+        }
+        throw cannotConvert(value, byte[].class);
+    }
+
+    @Override
+    public Date getDate(int columnIndex) throws SQLException {
+        Object value = value(columnIndex);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Date) {
+            return (Date) value;
+        }
+        if (value instanceof LocalDate) {
+            return Date.valueOf((LocalDate) value);
+        }
+        if (value instanceof LocalDateTime) {
+            return Date.valueOf(((LocalDateTime) value).toLocalDate());
+        }
+        if (value instanceof Timestamp) {
+            // the time part dropped, as drivers do
+            return Date.valueOf(((Timestamp) value).toLocalDateTime().toLocalDate());
+        }
+        if (value instanceof String) {
+            try {
+                return Date.valueOf(((String) value).trim());
+            } catch (IllegalArgumentException e) {
+                throw invalidDatetime(value, Date.class);
+            }
+        }
+        throw cannotConvert(value, Date.class);
+    }
+
+    @Override
+    public Time getTime(int columnIndex) throws SQLException {
+        Object value = value(columnIndex);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Time) {
+            return (Time) value;
+        }
+        if (value instanceof LocalTime) {
+            return Time.valueOf((LocalTime) value);
+        }
+        if (value instanceof LocalDateTime) {
+            return Time.valueOf(((LocalDateTime) value).toLocalTime());
+        }
+        if (value instanceof Timestamp) {
+            return Time.valueOf(((Timestamp) value).toLocalDateTime().toLocalTime());
+        }
+        if (value instanceof String) {
+            try {
+                return Time.valueOf(((String) value).trim());
+            } catch (IllegalArgumentException e) {
+                throw invalidDatetime(value, Time.class);
+            }
+        }
+        throw cannotConvert(value, Time.class);
+    }
+
+    @Override
+    public Timestamp getTimestamp(int columnIndex) throws SQLException {
+        Object value = value(columnIndex);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Timestamp) {
+            return (Timestamp) value;
+        }
+        if (value instanceof LocalDateTime) {
+            return Timestamp.valueOf((LocalDateTime) value);
+        }
+        if (value instanceof LocalDate) {
+            return Timestamp.valueOf(((LocalDate) value).atStartOfDay());
+        }
+        if (value instanceof OffsetDateTime) {
+            return Timestamp.from(((OffsetDateTime) value).toInstant());
+        }
+        if (value instanceof Date) {
+            return Timestamp.valueOf(((Date) value).toLocalDate().atStartOfDay());
+        }
+        if (value instanceof String) {
+            try {
+                return Timestamp.valueOf(((String) value).trim());
+            } catch (IllegalArgumentException e) {
+                throw invalidDatetime(value, Timestamp.class);
+            }
+        }
+        throw cannotConvert(value, Timestamp.class);
+    }
+
+    @Override
+    public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+        Object value = value(columnIndex);
+        if (value == null || type.isInstance(value)) {
+            return type.cast(value);
+        }
+        Object converted;
+        if (type == String.class) {
+            converted = getString(columnIndex);
+        } else if (type == Boolean.class) {
+            converted = getBoolean(columnIndex);
+        } else if (type == Byte.class) {
+            converted = getByte(columnIndex);
+        } else if (type == Short.class) {
+            converted = getShort(columnIndex);
+        } else if (type == Integer.class) {
+            converted = getInt(columnIndex);
+        } else if (type == Long.class) {
+            converted = getLong(columnIndex);
+        } else if (type == Float.class) {
+            converted = getFloat(columnIndex);
+        } else if (type == Double.class) {
+            converted = getDouble(columnIndex);
+        } else if (type == BigDecimal.class) {
+            converted = getBigDecimal(columnIndex);
+        } else if (type == byte[].class) {
+            converted = getBytes(columnIndex);
+        } else if (type == Date.class) {
+            converted = getDate(columnIndex);
+        } else if (type == Time.class) {
+            converted = getTime(columnIndex);
+        } else if (type == Timestamp.class) {
+            converted = getTimestamp(columnIndex);
+        } else if (type == LocalDate.class) {
+            converted = getDate(columnIndex).toLocalDate();
+        } else if (type == LocalTime.class) {
+            converted = getTime(columnIndex).toLocalTime();
+        } else if (type == LocalDateTime.class) {
+            converted = getTimestamp(columnIndex).toLocalDateTime();
+        } else {
+            throw cannotConvert(value, type);
+        }
+        return type.cast(converted);
+    }
+
+    @Override
+    public Blob getBlob(int columnIndex) throws SQLException {
+        Object value = value(columnIndex);
+        if (value == null || value instanceof Blob) {
+            return (Blob) value;
+        }
+        if (value instanceof byte[]) {
+            return new SerialBlob((byte[]) value);
+        }
+        throw cannotConvert(value, Blob.class);
+    }
+
+    @Override
+    public Clob getClob(int columnIndex) throws SQLException {
+        Object value = value(columnIndex);
+        if (value == null || value instanceof Clob) {
+            return (Clob) value;
+        }
+        if (value instanceof String) {
+            return new SerialClob(((String) value).toCharArray());
+        }
+        throw cannotConvert(value, Clob.class);
+    }
+
+    @Override
+    public String getNString(int columnIndex) throws SQLException {
+        return getString(columnIndex);
+    }
+
+    @Override
+    public Array getArray(int columnIndex) throws SQLException {
+        return cast(columnIndex, Array.class);
+    }
+
+    @Override
+    public Ref getRef(int columnIndex) throws SQLException {
+        return cast(columnIndex, Ref.class);
+    }
+
+    @Override
+    public URL getURL(int columnIndex) throws SQLException {
+        return cast(columnIndex, URL.class);
+    }
+
+    @Override
+    public RowId getRowId(int columnIndex) throws SQLException {
+        return cast(columnIndex, RowId.class);
+    }
+
+    @Override
+    public SQLXML getSQLXML(int columnIndex) throws SQLException {
+        return cast(columnIndex, SQLXML.class);
+    }
+
+    @Override
+    public NClob getNClob(int columnIndex) throws SQLException {
+        return cast(columnIndex, NClob.class);
+    }
+
+    private <T> T cast(int columnIndex, Class<T> type) throws SQLException {
+        Object value = value(columnIndex);
+        if (value == null || type.isInstance(value)) {
+            return type.cast(value);
+        }
+        throw cannotConvert(value, type);
+    }
+
+    @Override
+    public InputStream getBinaryStream(int columnIndex) throws SQLException {
+        byte[] bytes = getBytes(columnIndex);
+        return bytes == null ? null : new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public Reader getCharacterStream(int columnIndex) throws SQLException {
+        String str = getString(columnIndex);
+        return str == null ? null : new StringReader(str);
+    }
+
+    @Override
+    public Reader getNCharacterStream(int columnIndex) throws SQLException {
+        return getCharacterStream(columnIndex);
+    }
+
+    @Override
+    public InputStream getAsciiStream(int columnIndex) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    @Deprecated
+    public InputStream getUnicodeStream(int columnIndex) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Date getDate(int columnIndex, Calendar cal) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Time getTime(int columnIndex, Calendar cal) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException {
+        throw unsupported();
+    }
+
+    // getters by column label
+
+    @Override
+    public Object getObject(String columnLabel) throws SQLException {
+        return getObject(findColumn(columnLabel));
+    }
+
+    @Override
+    public String getString(String columnLabel) throws SQLException {
+        return getString(findColumn(columnLabel));
+    }
+
+    @Override
+    public boolean getBoolean(String columnLabel) throws SQLException {
+        return getBoolean(findColumn(columnLabel));
+    }
+
+    @Override
+    public byte getByte(String columnLabel) throws SQLException {
+        return getByte(findColumn(columnLabel));
+    }
+
+    @Override
+    public short getShort(String columnLabel) throws SQLException {
+        return getShort(findColumn(columnLabel));
+    }
+
+    @Override
+    public int getInt(String columnLabel) throws SQLException {
+        return getInt(findColumn(columnLabel));
+    }
+
+    @Override
+    public long getLong(String columnLabel) throws SQLException {
+        return getLong(findColumn(columnLabel));
+    }
+
+    @Override
+    public float getFloat(String columnLabel) throws SQLException {
+        return getFloat(findColumn(columnLabel));
+    }
+
+    @Override
+    public double getDouble(String columnLabel) throws SQLException {
+        return getDouble(findColumn(columnLabel));
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+        return getBigDecimal(findColumn(columnLabel));
+    }
+
+    @Override
+    @Deprecated
+    public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
+        return getBigDecimal(findColumn(columnLabel), scale);
+    }
+
+    @Override
+    public byte[] getBytes(String columnLabel) throws SQLException {
+        return getBytes(findColumn(columnLabel));
+    }
+
+    @Override
+    public Date getDate(String columnLabel) throws SQLException {
+        return getDate(findColumn(columnLabel));
+    }
+
+    @Override
+    public Time getTime(String columnLabel) throws SQLException {
+        return getTime(findColumn(columnLabel));
+    }
+
+    @Override
+    public Timestamp getTimestamp(String columnLabel) throws SQLException {
+        return getTimestamp(findColumn(columnLabel));
+    }
+
+    @Override
+    public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+        return getObject(findColumn(columnLabel), type);
+    }
+
+    @Override
+    public Blob getBlob(String columnLabel) throws SQLException {
+        return getBlob(findColumn(columnLabel));
+    }
+
+    @Override
+    public Clob getClob(String columnLabel) throws SQLException {
+        return getClob(findColumn(columnLabel));
+    }
+
+    @Override
+    public String getNString(String columnLabel) throws SQLException {
+        return getNString(findColumn(columnLabel));
+    }
+
+    @Override
+    public Array getArray(String columnLabel) throws SQLException {
+        return getArray(findColumn(columnLabel));
+    }
+
+    @Override
+    public Ref getRef(String columnLabel) throws SQLException {
+        return getRef(findColumn(columnLabel));
+    }
+
+    @Override
+    public URL getURL(String columnLabel) throws SQLException {
+        return getURL(findColumn(columnLabel));
+    }
+
+    @Override
+    public RowId getRowId(String columnLabel) throws SQLException {
+        return getRowId(findColumn(columnLabel));
+    }
+
+    @Override
+    public SQLXML getSQLXML(String columnLabel) throws SQLException {
+        return getSQLXML(findColumn(columnLabel));
+    }
+
+    @Override
+    public NClob getNClob(String columnLabel) throws SQLException {
+        return getNClob(findColumn(columnLabel));
+    }
+
+    @Override
+    public InputStream getBinaryStream(String columnLabel) throws SQLException {
+        return getBinaryStream(findColumn(columnLabel));
+    }
+
+    @Override
+    public Reader getCharacterStream(String columnLabel) throws SQLException {
+        return getCharacterStream(findColumn(columnLabel));
+    }
+
+    @Override
+    public Reader getNCharacterStream(String columnLabel) throws SQLException {
+        return getNCharacterStream(findColumn(columnLabel));
+    }
+
+    @Override
+    public InputStream getAsciiStream(String columnLabel) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    @Deprecated
+    public InputStream getUnicodeStream(String columnLabel) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Date getDate(String columnLabel, Calendar cal) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Time getTime(String columnLabel, Calendar cal) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Timestamp getTimestamp(String columnLabel, Calendar cal) throws SQLException {
+        throw unsupported();
+    }
+
+    private static SQLException cannotConvert(Object value, Class<?> type) {
+        return new SQLException("Can not convert " + value.getClass().getName() + " to " + type.getName(), "22005");
+    }
+
+    private static SQLException invalidText(Object value, Class<?> type) {
+        return new SQLException("Invalid character value " + value + " for " + type.getName(), "22018");
+    }
+
+    private static SQLException invalidDatetime(Object value, Class<?> type) {
+        return new SQLException("Invalid datetime value " + value + " for " + type.getName(), "22007");
+    }
+
+    private static SQLException outOfRange(Object value, Class<?> type) {
+        return new SQLException("Value " + value + " out of range of " + type.getName(), "22003");
+    }
+
+    private static SQLFeatureNotSupportedException unsupported() {
+        return new SQLFeatureNotSupportedException("Not supported by prefetching ResultSet");
+    }
+
+    /**
+     * A block of rows. The row arrays are reused after consumer returned the block.
+     */
+    private static class Block {
+        private final Object[][] rows;
+        private final String[][] texts;
+        private int size;
+        private boolean last;
+        private Throwable error;
+
+        private Block(int blockSize, int columnCount, boolean hasTexts) {
+            this.rows = new Object[blockSize][columnCount];
+            this.texts = hasTexts ? new String[blockSize][columnCount] : null;
+        }
+    }
+}
@@ -6,13 +6,26 @@ import net.dongliu.dbutils.mapper.RecordRowMapper;
 import net.dongliu.dbutils.mapper.RowMapper;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Stream;
 
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -21,15 +34,26 @@ import static java.util.Objects.requireNonNull;
  * @author Liu Dong
  */
 public abstract class QueryContext extends AbstractQueryContext<QueryContext> {
+    private boolean javaTime;
 
     QueryContext() {
     }
 
+    /**
+     * If true, DATE/TIME/TIMESTAMP column values of Records are read as LocalDate/LocalTime/LocalDateTime, instead of
+     * java.sql Date/Time/Timestamp. Default false.
+     * The Record getters of java.sql time types still work, converting the java.time values.
+     */
+    public QueryContext javaTime(boolean javaTime) {
+        this.javaTime = javaTime;
+        return this;
+    }
+
     /**
      * Set RowMapper to convert the ResultSet
      */
     public <T> TypedQueryContext<T> map(RowMapper<T> rowMapper) {
-        return new TypedQueryContext<T>(requireNonNull(rowMapper)) {
+        TypedQueryContext<T> context = new TypedQueryContext<T>(requireNonNull(rowMapper)) {
             @Override
             protected PreparedStatement prepare(int fetchSize, String[] keyColumns, Connection connection)
                     throws SQLException {
@@ -46,6 +70,8 @@ public abstract class QueryContext extends AbstractQueryContext<QueryContext> {
                 return QueryContext.this.retrieveConnection();
             }
         };
+        copyOptionsTo(context);
+        return context;
     }
 
     /**
@@ -68,7 +94,38 @@ public abstract class QueryContext extends AbstractQueryContext<QueryContext> {
      * Return query result as List of Record
      */
     public List<Record> getList() {
-        return convertToList(RecordRowMapper.getInstance());
+        return convertToList(RecordRowMapper.getInstance(javaTime));
+    }
+
+    /**
+     * Return query result as List of Record, with a memory budget.
+     * When the estimated heap size of rows exceeds the budget, all rows are written to a temp file in compact binary
+     * format, and the returned list reads rows from the memory-mapped file, creating a new Record for each get call.
+     * Only the offsets of rows are kept in heap then.
+     *
+     * @param memoryBudget the max estimated bytes of rows kept in heap
+     */
+    public List<Record> getList(long memoryBudget) {
+        return handle(rs -> {
+            SpilledRecordList.Collector collector = new SpilledRecordList.Collector(memoryBudget);
+            try {
+                if (rs.next()) {
+                    ResultColumns provider = columnNamesProvider(rs);
+                    RowMapper<Record> mapper = bind(RecordRowMapper.getInstance(javaTime), provider, rs);
+                    do {
+                        collector.add(mapper.map(provider, rs));
+                    } while (rs.next());
+                }
+                return collector.finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                try {
+                    collector.close();
+                } catch (IOException ignore) {
+                }
+            }
+        });
     }
 
     /**
@@ -79,7 +136,7 @@ public abstract class QueryContext extends AbstractQueryContext<QueryContext> {
      */
     @Nullable
     public Record getOne() throws TooManyResultException {
-        return convertTo(RecordRowMapper.getInstance());
+        return convertTo(RecordRowMapper.getInstance(javaTime));
     }
 
     /**
@@ -87,6 +144,351 @@ public abstract class QueryContext extends AbstractQueryContext<QueryContext> {
      * Need to close this stream if not consumed.
      */
     public Stream<Record> asStream() {
-        return asStream(RecordRowMapper.getInstance());
+        return asStream(RecordRowMapper.getInstance(javaTime));
+    }
+
+    /**
+     * Return the first column of query result as long array.
+     * Values are read by ResultSet.getLong, without creating Record or boxing values.
+     *
+     * @throws NullPointerException if column value is null
+     */
+    public long[] getLongs() {
+        return handle(rs -> readLongs(rs, false, 0));
+    }
+
+    /**
+     * Return the first column of query result as long array.
+     *
+     * @param nullValue the value used when column value is null
+     */
+    public long[] getLongs(long nullValue) {
+        return handle(rs -> readLongs(rs, true, nullValue));
+    }
+
+    /**
+     * Return the first column of query result as int array.
+     * Values are read by ResultSet.getInt, without creating Record or boxing values.
+     *
+     * @throws NullPointerException if column value is null
+     */
+    public int[] getInts() {
+        return handle(rs -> readInts(rs, false, 0));
+    }
+
+    /**
+     * Return the first column of query result as int array.
+     *
+     * @param nullValue the value used when column value is null
+     */
+    public int[] getInts(int nullValue) {
+        return handle(rs -> readInts(rs, true, nullValue));
+    }
+
+    /**
+     * Return the first column of query result as double array.
+     * Values are read by ResultSet.getDouble, without creating Record or boxing values.
+     *
+     * @throws NullPointerException if column value is null
+     */
+    public double[] getDoubles() {
+        return handle(rs -> readDoubles(rs, false, 0));
+    }
+
+    /**
+     * Return the first column of query result as double array.
+     *
+     * @param nullValue the value used when column value is null
+     */
+    public double[] getDoubles(double nullValue) {
+        return handle(rs -> readDoubles(rs, true, nullValue));
+    }
+
+    /**
+     * Return the first column of query result as String List. Null column values are kept as null.
+     */
+    public List<String> getStringList() {
+        return handle(rs -> {
+            List<String> list = new ArrayList<>();
+            while (rs.next()) {
+                list.add(rs.getString(1));
+            }
+            return list;
+        });
+    }
+
+    /**
+     * Return the first column of query result with single row as long.
+     *
+     * @return null if no row returned, or column value is null
+     * @throws TooManyResultException if has more than one row
+     */
+    @Nullable
+    public Long getLong() throws TooManyResultException {
+        return handle(rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            long value = rs.getLong(1);
+            boolean isNull = rs.wasNull();
+            checkNoMoreRow(rs);
+            return isNull ? null : value;
+        });
+    }
+
+    /**
+     * Return the first column of query result with single row as int.
+     *
+     * @return null if no row returned, or column value is null
+     * @throws TooManyResultException if has more than one row
+     */
+    @Nullable
+    public Integer getInt() throws TooManyResultException {
+        return handle(rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            int value = rs.getInt(1);
+            boolean isNull = rs.wasNull();
+            checkNoMoreRow(rs);
+            return isNull ? null : value;
+        });
+    }
+
+    /**
+     * Return the first column of query result with single row as String.
+     *
+     * @return null if no row returned, or column value is null
+     * @throws TooManyResultException if has more than one row
+     */
+    @Nullable
+    public String getString() throws TooManyResultException {
+        return handle(rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            String value = rs.getString(1);
+            checkNoMoreRow(rs);
+            return value;
+        });
+    }
+
+    /**
+     * Stream binary(BLOB, etc.) column value of the single result row to channel, without reading whole value into
+     * heap.
+     *
+     * @param column the column label
+     * @return bytes written, or -1 if no row returned or column value is null
+     * @throws TooManyResultException if has more than one row
+     * @see ColumnStreams
+     */
+    public long transferTo(String column, WritableByteChannel target) throws TooManyResultException {
+        return handle(rs -> {
+            if (!rs.next()) {
+                return -1L;
+            }
+            long size;
+            try {
+                size = ColumnStreams.transfer(rs, column, target);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            checkNoMoreRow(rs);
+            return size;
+        });
+    }
+
+    /**
+     * Stream binary(BLOB, etc.) column value of the single result row to file.
+     * The value is written to a temp file in the same directory first, and moved to the file when all written, so an
+     * existing file is replaced only if the query succeeded. If no row returned or column value is null, the file is
+     * not touched.
+     *
+     * @param column the column label
+     * @return bytes written, or -1 if no row returned or column value is null
+     * @throws TooManyResultException if has more than one row
+     */
+    public long transferTo(String column, Path file) throws TooManyResultException {
+        Path dir = file.toAbsolutePath().getParent();
+        Path temp;
+        try {
+            temp = Files.createTempFile(dir, "." + file.getFileName(), ".tmp");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            long size;
+            try (FileChannel channel = FileChannel.open(temp, WRITE)) {
+                size = transferTo(column, channel);
+            }
+            if (size >= 0) {
+                moveTo(temp, file);
+            }
+            return size;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    private static void moveTo(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Stream character(CLOB, etc.) column value of the single result row to writer.
+     *
+     * @param column the column label
+     * @return chars written, or -1 if no row returned or column value is null
+     * @throws TooManyResultException if has more than one row
+     */
+    public long transferTo(String column, Writer target) throws TooManyResultException {
+        return handle(rs -> {
+            if (!rs.next()) {
+                return -1L;
+            }
+            long size;
+            try {
+                size = ColumnStreams.transfer(rs, column, target);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            checkNoMoreRow(rs);
+            return size;
+        });
+    }
+
+    /**
+     * Export query result as CSV/TSV text to channel. The channel is not closed after exported.
+     * Values are encoded directly from ResultSet into a reusable buffer, no Record is created for each row.
+     *
+     * @return the row count exported
+     */
+    public long exportTo(WritableByteChannel channel, CsvFormat format) {
+        requireNonNull(channel);
+        requireNonNull(format);
+        return handle(rs -> {
+            try {
+                return new CsvExporter(format, channel).export(rs);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Export query result as CSV/TSV text to file. If file already exists, it is truncated.
+     *
+     * @return the row count exported
+     */
+    public long exportTo(Path file, CsvFormat format) {
+        try (FileChannel channel = FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            return exportTo(channel, format);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Read query result row by row, and pass a view of current row to callback.
+     * Values are read from the ResultSet directly by the typed accessors of view, no Record is created for rows.
+     * The same view is passed for all rows, and it is only valid inside the callback.
+     *
+     * @return the total row count
+     * @see RowView
+     */
+    public long forEachRow(RowCallback callback) {
+        requireNonNull(callback);
+        return handle(rs -> {
+            if (!rs.next()) {
+                return 0L;
+            }
+            RowView row = new RowView(rs, getColumnNames(rs));
+            long rows = 0;
+            row.setValid(true);
+            try {
+                do {
+                    callback.accept(row);
+                    rows++;
+                } while (rs.next());
+            } finally {
+                row.setValid(false);
+            }
+            return rows;
+        });
+    }
+
+    private static void checkNoMoreRow(ResultSet rs) throws SQLException {
+        if (rs.next()) {
+            throw new TooManyResultException(1);
+        }
+    }
+
+    // initial capacity of primitive result arrays, grow by doubling
+    private static final int initialArraySize = 16;
+
+    private static long[] readLongs(ResultSet rs, boolean allowNull, long nullValue) throws SQLException {
+        long[] values = new long[initialArraySize];
+        int size = 0;
+        while (rs.next()) {
+            long value = rs.getLong(1);
+            if (rs.wasNull()) {
+                if (!allowNull) {
+                    throw new NullPointerException("null value at row " + (size + 1));
+                }
+                value = nullValue;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = value;
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    private static int[] readInts(ResultSet rs, boolean allowNull, int nullValue) throws SQLException {
+        int[] values = new int[initialArraySize];
+        int size = 0;
+        while (rs.next()) {
+            int value = rs.getInt(1);
+            if (rs.wasNull()) {
+                if (!allowNull) {
+                    throw new NullPointerException("null value at row " + (size + 1));
+                }
+                value = nullValue;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = value;
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    private static double[] readDoubles(ResultSet rs, boolean allowNull, double nullValue) throws SQLException {
+        double[] values = new double[initialArraySize];
+        int size = 0;
+        while (rs.next()) {
+            double value = rs.getDouble(1);
+            if (rs.wasNull()) {
+                if (!allowNull) {
+                    throw new NullPointerException("null value at row " + (size + 1));
+                }
+                value = nullValue;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = value;
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
     }
 }
@@ -359,7 +359,7 @@ public class Record implements Map<String, Object> {
     }
 
     /**
-     * Get value of column as java.sql.Date.
+     * Get value of column as java.sql.Date. LocalDate value is converted.
      *
      * @param index start from 0
      */
@@ -368,33 +368,42 @@ public class Record implements Map<String, Object> {
         if (value instanceof Date) {
             return (Date) value;
         }
+        if (value instanceof LocalDate) {
+            return Date.valueOf((LocalDate) value);
+        }
         throw new TypeNotMatchException(Date.class);
     }
 
     /**
-     * Get value of column as java.sql.Date.
+     * Get value of column as java.sql.Date. LocalDate value is converted.
      */
     public Date getDate(String column) {
         Object value = getObject(column);
         if (value instanceof Date) {
             return (Date) value;
         }
+        if (value instanceof LocalDate) {
+            return Date.valueOf((LocalDate) value);
+        }
         throw new TypeNotMatchException(Date.class);
     }
 
     /**
-     * Get value of column as java.sql.Time.
+     * Get value of column as java.sql.Time. LocalTime value is converted, with nanos of second dropped.
      */
     public Time getTime(String column) {
         Object value = getObject(column);
         if (value instanceof Time) {
             return (Time) value;
         }
+        if (value instanceof LocalTime) {
+            return Time.valueOf((LocalTime) value);
+        }
         throw new TypeNotMatchException(Time.class);
     }
 
     /**
-     * Get value of column as java.sql.Time.
+     * Get value of column as java.sql.Time. LocalTime value is converted, with nanos of second dropped.
      *
      * @param index start from 0
      */
@@ -403,22 +412,28 @@ public class Record implements Map<String, Object> {
         if (value instanceof Time) {
             return (Time) value;
         }
+        if (value instanceof LocalTime) {
+            return Time.valueOf((LocalTime) value);
+        }
         throw new TypeNotMatchException(Time.class);
     }
 
     /**
-     * Get value of column as java.sql.Timestamp.
+     * Get value of column as java.sql.Timestamp. LocalDateTime value is converted.
      */
     public Timestamp getTimestamp(String column) {
         Object value = getObject(column);
         if (value instanceof Timestamp) {
             return (Timestamp) value;
         }
+        if (value instanceof LocalDateTime) {
+            return Timestamp.valueOf((LocalDateTime) value);
+        }
         throw new TypeNotMatchException(Timestamp.class);
     }
 
     /**
-     * Get value of column as java.sql.Timestamp.
+     * Get value of column as java.sql.Timestamp. LocalDateTime value is converted.
      *
      * @param index start from 0
      */
@@ -427,6 +442,9 @@ public class Record implements Map<String, Object> {
         if (value instanceof Timestamp) {
             return (Timestamp) value;
         }
+        if (value instanceof LocalDateTime) {
+            return Timestamp.valueOf((LocalDateTime) value);
+        }
         throw new TypeNotMatchException(Timestamp.class);
     }
 
@@ -532,6 +550,9 @@ public class Record implements Map<String, Object> {
         if (value instanceof Timestamp) {
             return OffsetDateTime.ofInstant(((Timestamp) value).toInstant(), ZoneId.systemDefault());
         }
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).atZone(ZoneId.systemDefault()).toOffsetDateTime();
+        }
         throw new TypeNotMatchException(OffsetDateTime.class);
     }
 
@@ -548,6 +569,9 @@ public class Record implements Map<String, Object> {
         if (value instanceof Timestamp) {
             return OffsetDateTime.ofInstant(((Timestamp) value).toInstant(), ZoneId.systemDefault());
         }
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).atZone(ZoneId.systemDefault()).toOffsetDateTime();
+        }
         throw new TypeNotMatchException(OffsetDateTime.class);
     }
 
@@ -562,6 +586,9 @@ public class Record implements Map<String, Object> {
         if (value instanceof Timestamp) {
             return OffsetTime.ofInstant(((Timestamp) value).toInstant(), ZoneId.systemDefault());
         }
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).atZone(ZoneId.systemDefault()).toOffsetDateTime().toOffsetTime();
+        }
         throw new TypeNotMatchException(OffsetTime.class);
     }
 
@@ -578,6 +605,9 @@ public class Record implements Map<String, Object> {
         if (value instanceof Timestamp) {
             return OffsetTime.ofInstant(((Timestamp) value).toInstant(), ZoneId.systemDefault());
         }
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).atZone(ZoneId.systemDefault()).toOffsetDateTime().toOffsetTime();
+        }
         throw new TypeNotMatchException(OffsetTime.class);
     }
 
@@ -613,6 +643,13 @@ public class Record implements Map<String, Object> {
         return values;
     }
 
+    /**
+     * Return column names of row
+     */
+    String[] getNames() {
+        return names;
+    }
+
     @Override
     public int size() {
         return values.length;
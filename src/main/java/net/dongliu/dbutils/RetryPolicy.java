@@ -0,0 +1,204 @@
+package net.dongliu.dbutils;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Policy for retrying transactions failed by transient errors, such as deadlock, serialization failure, lock timeout
+ * and connection reset. Failed transactions are re-run with jittered exponential backoff, until max attempts or max
+ * elapsed time reached.
+ * <p>
+ * A connection failure raised after commit was issued is not retried, as the commit may have been applied, and running
+ * the transaction again could apply it twice.
+ * <p>
+ * A RetryPolicy is thread-safe, and can be shared by transactions. The retry counters are accumulated by all
+ * transactions using this policy.
+ *
+ * @author Liu Dong
+ */
+public class RetryPolicy {
+    private volatile int maxAttempts = 3;
+    private volatile long initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(20);
+    private volatile long maxBackoffNanos = TimeUnit.SECONDS.toNanos(1);
+    private volatile long maxElapsedNanos = TimeUnit.SECONDS.toNanos(10);
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    /**
+     * Max times to run the transaction, including the first run. Default 3
+     */
+    public RetryPolicy maxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts should be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * The backoff before first retry, and the upper bound of backoff. The backoff doubles for each retry, and the
+     * actual sleep time is randomly chosen between zero and the backoff. Default 20ms and 1s.
+     */
+    public RetryPolicy backoff(Duration initial, Duration max) {
+        if (initial.isNegative() || max.compareTo(initial) < 0) {
+            throw new IllegalArgumentException("invalid backoff: " + initial + ", " + max);
+        }
+        this.initialBackoffNanos = initial.toNanos();
+        this.maxBackoffNanos = max.toNanos();
+        return this;
+    }
+
+    /**
+     * Do not retry if the time elapsed since first run would exceed this after backoff. Default 10s
+     */
+    public RetryPolicy maxElapsed(Duration maxElapsed) {
+        this.maxElapsedNanos = maxElapsed.toNanos();
+        return this;
+    }
+
+    /**
+     * If the failure is transient, and the transaction can be retried.
+     * By default, check the SQLState and vendor code of all SQLExceptions in the cause chain, for deadlock,
+     * serialization failure, lock timeout, and connection failure. Query timeouts are not retryable. Override this to
+     * custom the classification.
+     */
+    public boolean isRetryable(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                for (SQLException e = (SQLException) cause; e != null; e = e.getNextException()) {
+                    if (isTransient(e)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTransient(SQLException e) {
+        if (e instanceof SQLTransactionRollbackException || e instanceof SQLTransientConnectionException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        if (state != null) {
+            // class 40: transaction rollback, including 40001 serialization failure, 40P01 postgresql deadlock,
+            // 40XL1/40XL2 derby lock timeout/deadlock
+            if (state.startsWith("40")) {
+                return true;
+            }
+            switch (state) {
+                case "08S01": // communication link failure
+                case "08006": // connection failure
+                case "55P03": // postgresql lock not available
+                    return true;
+                default:
+            }
+        }
+        switch (e.getErrorCode()) {
+            case 1213: // mysql deadlock
+            case 1205: // mysql lock wait timeout, sql server deadlock victim
+            case 60:   // oracle deadlock
+            case 8177: // oracle serialization failure
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Times of retries
+     */
+    public long retries() {
+        return retries.get();
+    }
+
+    /**
+     * Count of transactions succeeded after retry
+     */
+    public long recovered() {
+        return recovered.get();
+    }
+
+    /**
+     * Count of transactions failed with retryable error, but retry budget exhausted
+     */
+    public long exhausted() {
+        return exhausted.get();
+    }
+
+    /**
+     * Run action, and retry when retryable error occurred.
+     *
+     * @param commitIssued if commit was issued by the last run of action
+     */
+    <T> T call(Supplier<T> action, BooleanSupplier commitIssued) {
+        long start = System.nanoTime();
+        for (int attempt = 1; ; attempt++) {
+            T result;
+            try {
+                result = action.get();
+            } catch (RuntimeException e) {
+                if (!isRetryable(e) || commitIssued.getAsBoolean() && isConnectionFailure(e)) {
+                    throw e;
+                }
+                long sleep = backoffNanos(attempt);
+                if (attempt >= maxAttempts || System.nanoTime() - start + sleep > maxElapsedNanos) {
+                    exhausted.incrementAndGet();
+                    throw e;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    e.addSuppressed(ie);
+                    throw e;
+                }
+                retries.incrementAndGet();
+                continue;
+            }
+            if (attempt > 1) {
+                recovered.incrementAndGet();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * If there is connection failure in the cause chain, after which the outcome of commit is unknown
+     */
+    private static boolean isConnectionFailure(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                for (SQLException e = (SQLException) cause; e != null; e = e.getNextException()) {
+                    if (e instanceof SQLTransientConnectionException
+                            || e instanceof SQLNonTransientConnectionException) {
+                        return true;
+                    }
+                    String state = e.getSQLState();
+                    if (state != null && state.startsWith("08")) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private long backoffNanos(int attempt) {
+        long backoff = initialBackoffNanos << Math.min(attempt - 1, 30);
+        if (backoff > maxBackoffNanos || backoff < 0) {
+            backoff = maxBackoffNanos;
+        }
+        return backoff == 0 ? 0 : ThreadLocalRandom.current().nextLong(backoff + 1);
+    }
+}
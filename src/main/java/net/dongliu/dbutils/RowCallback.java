@@ -0,0 +1,19 @@
+package net.dongliu.dbutils;
+
+/**
+ * Callback for processing query result rows one by one.
+ *
+ * @author Liu Dong
+ * @see QueryContext#forEachRow(RowCallback)
+ */
+@FunctionalInterface
+public interface RowCallback {
+
+    /**
+     * Process one row.
+     *
+     * @param row the view of current row. The same instance is passed for all rows, and it is only valid inside this
+     *            method; do not keep it, copy it by {@link RowView#toRecord()} if needed.
+     */
+    void accept(RowView row);
+}
@@ -0,0 +1,370 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.exception.ColumnNotFoundException;
+import net.dongliu.dbutils.exception.UncheckedSQLException;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A mutable view of current row of a ResultSet. Values are read from the cursor directly when accessed, no Record or
+ * value array is created for rows. The primitive getters, and isNull on numeric and boolean columns, create no objects;
+ * the other getters return the objects the driver creates.
+ * <p>
+ * The view is only valid inside the {@link RowCallback} it is passed to. It moves to next row after the callback
+ * returned, and can not be accessed after the query finished.
+ *
+ * @author Liu Dong
+ */
+public final class RowView {
+    private final ResultSet rs;
+    private final String[] names;
+    // case-insensitive, so looking up needs no allocation
+    private final Map<String, Integer> index = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private boolean valid;
+    // jdbc types of columns, read when first needed
+    private int[] types;
+
+    RowView(ResultSet rs, String[] names) {
+        this.rs = rs;
+        this.names = names;
+        for (int i = names.length - 1; i >= 0; i--) {
+            // the first column wins, if names duplicated
+            index.put(names[i], i);
+        }
+    }
+
+    void setValid(boolean valid) {
+        this.valid = valid;
+    }
+
+    /**
+     * The column count
+     */
+    public int columnCount() {
+        return names.length;
+    }
+
+    /**
+     * The column name
+     *
+     * @param index start from 0
+     */
+    public String columnName(int index) {
+        return names[index];
+    }
+
+    /**
+     * Get the index of column
+     *
+     * @return start from 0
+     * @throws ColumnNotFoundException if column with name not exists
+     */
+    public int indexOf(String name) {
+        Integer i = index.get(name);
+        if (i == null) {
+            throw new ColumnNotFoundException(name);
+        }
+        return i;
+    }
+
+    /**
+     * If the value of column is null. Jdbc can only tell after reading the value, so for columns other than numeric and
+     * boolean types, the value object is created and dropped. Some drivers allow reading a LOB column only once, the
+     * isNull counts as a read.
+     *
+     * @param index start from 0
+     */
+    public boolean isNull(int index) {
+        int column = column(index);
+        try {
+            switch (type(index)) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    // read as double, which does not overflow for unsigned big integers
+                    rs.getDouble(column);
+                    break;
+                case Types.BIT:
+                case Types.BOOLEAN:
+                    rs.getBoolean(column);
+                    break;
+                default:
+                    rs.getObject(column);
+            }
+            return rs.wasNull();
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * If the value of column is null
+     */
+    public boolean isNull(String name) {
+        return isNull(indexOf(name));
+    }
+
+    /**
+     * Get value of column as object
+     *
+     * @param index start from 0
+     */
+    @Nullable
+    public Object getObject(int index) {
+        try {
+            return rs.getObject(column(index));
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Get value of column as object
+     */
+    @Nullable
+    public Object getObject(String name) {
+        return getObject(indexOf(name));
+    }
+
+    /**
+     * Get value of column as int
+     *
+     * @param index start from 0
+     * @throws NullPointerException if column value is null
+     */
+    public int getInt(int index) {
+        try {
+            int value = rs.getInt(column(index));
+            checkNotNull();
+            return value;
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Get value of column as int
+     *
+     * @throws NullPointerException if column value is null
+     */
+    public int getInt(String name) {
+        return getInt(indexOf(name));
+    }
+
+    /**
+     * Get value of column as long
+     *
+     * @param index start from 0
+     * @throws NullPointerException if column value is null
+     */
+    public long getLong(int index) {
+        try {
+            long value = rs.getLong(column(index));
+            checkNotNull();
+            return value;
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Get value of column as long
+     *
+     * @throws NullPointerException if column value is null
+     */
+    public long getLong(String name) {
+        return getLong(indexOf(name));
+    }
+
+    /**
+     * Get value of column as double
+     *
+     * @param index start from 0
+     * @throws NullPointerException if column value is null
+     */
+    public double getDouble(int index) {
+        try {
+            double value = rs.getDouble(column(index));
+            checkNotNull();
+            return value;
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Get value of column as double
+     *
+     * @throws NullPointerException if column value is null
+     */
+    public double getDouble(String name) {
+        return getDouble(indexOf(name));
+    }
+
+    /**
+     * Get value of column as boolean
+     *
+     * @param index start from 0
+     * @throws NullPointerException if column value is null
+     */
+    public boolean getBoolean(int index) {
+        try {
+            boolean value = rs.getBoolean(column(index));
+            checkNotNull();
+            return value;
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Get value of column as boolean
+     *
+     * @throws NullPointerException if column value is null
+     */
+    public boolean getBoolean(String name) {
+        return getBoolean(indexOf(name));
+    }
+
+    /**
+     * Get value of column as String
+     *
+     * @param index start from 0
+     */
+    @Nullable
+    public String getString(int index) {
+        try {
+            return rs.getString(column(index));
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Get value of column as String
+     */
+    @Nullable
+    public String getString(String name) {
+        return getString(indexOf(name));
+    }
+
+    /**
+     * Get value of column as BigDecimal
+     *
+     * @param index start from 0
+     */
+    @Nullable
+    public BigDecimal getDecimal(int index) {
+        try {
+            return rs.getBigDecimal(column(index));
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Get value of column as BigDecimal
+     */
+    @Nullable
+    public BigDecimal getDecimal(String name) {
+        return getDecimal(indexOf(name));
+    }
+
+    /**
+     * Get value of column as Timestamp
+     *
+     * @param index start from 0
+     */
+    @Nullable
+    public Timestamp getTimestamp(int index) {
+        try {
+            return rs.getTimestamp(column(index));
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Get value of column as Timestamp
+     */
+    @Nullable
+    public Timestamp getTimestamp(String name) {
+        return getTimestamp(indexOf(name));
+    }
+
+    /**
+     * Get value of column as byte array
+     *
+     * @param index start from 0
+     */
+    @Nullable
+    public byte[] getByteArray(int index) {
+        try {
+            return rs.getBytes(column(index));
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Get value of column as byte array
+     */
+    @Nullable
+    public byte[] getByteArray(String name) {
+        return getByteArray(indexOf(name));
+    }
+
+    /**
+     * Copy current row to a Record, which can be kept after callback returned.
+     */
+    public Record toRecord() {
+        Object[] values = new Object[names.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getObject(i);
+        }
+        return new Record(names, values);
+    }
+
+    /**
+     * Convert 0-based index to jdbc column index, and check the view is still valid
+     */
+    private int column(int index) {
+        if (!valid) {
+            throw new IllegalStateException("RowView can only be accessed inside RowCallback");
+        }
+        if (index < 0 || index >= names.length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", column count: " + names.length);
+        }
+        return index + 1;
+    }
+
+    private int type(int index) throws SQLException {
+        if (types == null) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            int[] types = new int[names.length];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = metaData.getColumnType(i + 1);
+            }
+            this.types = types;
+        }
+        return types[index];
+    }
+
+    private void checkNotNull() throws SQLException {
+        if (rs.wasNull()) {
+            throw new NullPointerException();
+        }
+    }
+}
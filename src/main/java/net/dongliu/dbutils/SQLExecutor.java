@@ -5,7 +5,11 @@ import net.dongliu.dbutils.exception.UncheckedSQLException;
 
 import java.sql.*;
 import java.time.*;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
 import java.util.Set;
 
 import static java.sql.ResultSet.CONCUR_READ_ONLY;
@@ -18,6 +22,11 @@ import static java.sql.Statement.RETURN_GENERATED_KEYS;
 abstract class SQLExecutor {
     protected abstract MyConnection supplyConnection() throws SQLException;
 
+    /**
+     * The default settings for sql executing
+     */
+    abstract ExecutorSettings settings();
+
     /**
      * Execute select sql, and return query result.
      */
@@ -43,15 +52,18 @@ abstract class SQLExecutor {
             protected MyConnection retrieveConnection() throws SQLException {
                 return supplyConnection();
             }
-        };
+        }.applySettings(settings()).applyDefaultLimits(settings()).clause(clause);
     }
 
     /**
      * Execute insert/update/delete sql, and return affected row num
      */
+    @SuppressWarnings("try")
     public int update(String clause, Object... params) {
+        long start = System.nanoTime();
         try (MyConnection ci = supplyConnection();
-             PreparedStatement stmt = ci.prepareStatement(clause)) {
+             PreparedStatement stmt = ci.prepareStatement(clause);
+             StatementTimer timer = StatementTimer.start(stmt, start, settings().timeoutNanos)) {
             fillStatement(stmt, params);
             return stmt.executeUpdate();
         } catch (SQLException e) {
@@ -83,20 +95,21 @@ abstract class SQLExecutor {
                 return supplyConnection();
             }
 
-        };
+        }.applySettings(settings()).clause(clause);
     }
 
     /**
-     * Execute batch insert/update/delete sql, and return affected row nums
+     * Execute batch insert/update/delete sql, and return affected row nums.
+     * If a tuner is set, and running in a transaction, rows are executed by chunks of the tuned size; in auto-commit
+     * mode rows are always executed as a single batch, so the rows are not partially committed by chunks.
      */
+    @SuppressWarnings("try")
     public int[] batchUpdate(String clause, List<Object[]> params) {
+        long start = System.nanoTime();
         try (MyConnection ci = supplyConnection();
-             PreparedStatement stmt = ci.prepareStatement(clause)) {
-            for (Object[] param : params) {
-                fillStatement(stmt, param);
-                stmt.addBatch();
-            }
-            return stmt.executeBatch();
+             PreparedStatement stmt = ci.prepareStatement(clause);
+             StatementTimer timer = StatementTimer.start(stmt, start, settings().timeoutNanos)) {
+            return executeBatch(stmt, clause, params, UnaryOperator.identity(), 0);
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
         }
@@ -129,7 +142,298 @@ abstract class SQLExecutor {
             protected MyConnection retrieveConnection() throws SQLException {
                 return supplyConnection();
             }
-        };
+        }.applySettings(settings()).clause(clause);
+    }
+
+    // rows of each batch executed by upsert
+    private static final int upsertBatchSize = 500;
+
+    /**
+     * Insert rows, or update the non-key columns if row with the same key exists, by dialect specific single
+     * statement upsert sql. Rows are executed by batches; in auto-commit mode, each batch is committed separately.
+     * The timeout covers all the batches.
+     *
+     * @param table      the table name
+     * @param keyColumns the columns of primary key or unique key, should be contained in columns
+     * @param columns    the columns to insert
+     * @param rows       the row values, in the order of columns
+     * @return the affected row nums returned by driver, which meaning is driver specific
+     */
+    @SuppressWarnings("try")
+    public int[] upsert(String table, String[] keyColumns, String[] columns, List<Object[]> rows) {
+        long start = System.nanoTime();
+        try (MyConnection ci = supplyConnection()) {
+            Dialect.Upsert upsert = dialect(ci).upsert(table, keyColumns, columns);
+            try (PreparedStatement stmt = ci.prepareStatement(upsert.clause());
+                 StatementTimer timer = StatementTimer.start(stmt, start, settings().timeoutNanos)) {
+                return executeBatch(stmt, upsert.clause(), rows, row -> {
+                    if (row.length != columns.length) {
+                        throw new IllegalArgumentException("row values size " + row.length
+                                + " not match columns size " + columns.length);
+                    }
+                    return upsert.params(row);
+                }, upsertBatchSize);
+            }
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * The dialect set, or detected when the first connection opened. Detected from the connection and kept if neither.
+     */
+    private Dialect dialect(MyConnection connection) throws SQLException {
+        Dialect dialect = settings().dialect;
+        if (dialect == null) {
+            dialect = Dialect.of(connection.getMetaData());
+            settings().dialect = dialect;
+        }
+        return dialect;
+    }
+
+    /**
+     * Execute rows by batch chunks. The chunk size is decided by tuner if set, else is the default chunk size.
+     *
+     * @param toParams         convert row to statement params
+     * @param defaultChunkSize 0 for executing all rows in one batch. Then the rows are not chunked in auto-commit mode
+     *                         even if tuner set, for not committing partially.
+     */
+    private int[] executeBatch(PreparedStatement stmt, String clause, List<Object[]> rows,
+                               UnaryOperator<Object[]> toParams, int defaultChunkSize) throws SQLException {
+        AdaptiveTuner tuner = settings().tuner;
+        if (tuner != null && defaultChunkSize == 0 && stmt.getConnection().getAutoCommit()) {
+            tuner = null;
+        }
+        String key = tuner == null ? null : SQLFingerprint.of(clause);
+        int[] counts = new int[rows.size()];
+        int start = 0;
+        while (start < rows.size()) {
+            int chunkSize = tuner != null ? tuner.batchSize(key)
+                    : defaultChunkSize > 0 ? defaultChunkSize : rows.size();
+            int end = Math.min(rows.size(), start + chunkSize);
+            long bytes = 0;
+            for (Object[] row : rows.subList(start, end)) {
+                Object[] params = toParams.apply(row);
+                if (tuner != null) {
+                    bytes += AdaptiveTuner.estimateParamBytes(params);
+                }
+                fillStatement(stmt, params);
+                stmt.addBatch();
+            }
+            long begin = System.nanoTime();
+            int[] result = stmt.executeBatch();
+            if (tuner != null) {
+                tuner.recordBatch(key, end - start, (int) (bytes / (end - start)), System.nanoTime() - begin);
+            }
+            if (start == 0 && end == rows.size()) {
+                return result;
+            }
+            System.arraycopy(result, 0, counts, start, Math.min(result.length, end - start));
+            start = end;
+        }
+        return counts;
+    }
+
+    /**
+     * Insert bean into table, with all mapped bean properties as columns. The sql is generated and cached per bean
+     * class and table, and property values are bound by getters compiled once per class.
+     * <p>
+     * The column name of a property is its {@link net.dongliu.dbutils.mapping.Column} value if annotated, else the
+     * property name as is. Unlike mapping rows to beans, where column user_name matches property userName, the
+     * property name is not converted to snake case, so annotate the property with {@code @Column("user_name")} if the
+     * table column is named so.
+     *
+     * @return affected row num
+     */
+    @SuppressWarnings("try")
+    public int insertBean(String table, Object bean) {
+        BeanBinder binder = BeanBinder.of(bean.getClass());
+        String clause = binder.insertClause(table);
+        long start = System.nanoTime();
+        try (MyConnection ci = supplyConnection();
+             PreparedStatement stmt = ci.prepareStatement(clause);
+             StatementTimer timer = StatementTimer.start(stmt, start, settings().timeoutNanos)) {
+            binder.bindInsert(stmt, bean);
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Update the row of bean in table, set all non-key properties by key properties. Columns are named as
+     * {@link #insertBean(String, Object)} does.
+     *
+     * @param keyProps the column names or property names of keys
+     * @return affected row num
+     */
+    @SuppressWarnings("try")
+    public int updateBean(String table, Object bean, String... keyProps) {
+        BeanBinder binder = BeanBinder.of(bean.getClass());
+        BeanBinder.Update update = binder.update(table, keyProps);
+        long start = System.nanoTime();
+        try (MyConnection ci = supplyConnection();
+             PreparedStatement stmt = ci.prepareStatement(update.clause());
+             StatementTimer timer = StatementTimer.start(stmt, start, settings().timeoutNanos)) {
+            binder.bindUpdate(stmt, update, bean);
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    // rows of each batch executed by batchInsertBeans, if tuner not set
+    private static final int beanBatchSize = 500;
+
+    /**
+     * Insert beans into table by batches, with all mapped bean properties as columns. Beans are read from the iterable
+     * as batches executed, so it can be a lazy source. All beans should be of the same class. In auto-commit mode,
+     * each batch is committed separately. Columns are named as {@link #insertBean(String, Object)} does.
+     *
+     * @return affected row nums
+     */
+    @SuppressWarnings("try")
+    public <T> int[] batchInsertBeans(String table, Iterable<T> beans) {
+        Iterator<T> iterator = beans.iterator();
+        if (!iterator.hasNext()) {
+            return new int[0];
+        }
+        T first = Objects.requireNonNull(iterator.next(), "bean is null");
+        Class<?> cls = first.getClass();
+        BeanBinder binder = BeanBinder.of(cls);
+        String clause = binder.insertClause(table);
+        AdaptiveTuner tuner = settings().tuner;
+        String key = tuner == null ? null : SQLFingerprint.of(clause);
+        long start = System.nanoTime();
+        try (MyConnection ci = supplyConnection();
+             PreparedStatement stmt = ci.prepareStatement(clause);
+             StatementTimer timer = StatementTimer.start(stmt, start, settings().timeoutNanos)) {
+            int[] counts = new int[0];
+            int size = 0;
+            T bean = first;
+            while (bean != null) {
+                int chunkSize = tuner != null ? tuner.batchSize(key) : beanBatchSize;
+                long bytes = 0;
+                int rows = 0;
+                while (bean != null && rows < chunkSize) {
+                    if (bean.getClass() != cls) {
+                        throw new IllegalArgumentException("bean class " + bean.getClass().getName()
+                                + " not match " + cls.getName());
+                    }
+                    if (tuner != null) {
+                        bytes += AdaptiveTuner.estimateParamBytes(binder.values(bean));
+                    }
+                    binder.bindInsert(stmt, bean);
+                    stmt.addBatch();
+                    rows++;
+                    bean = iterator.hasNext() ? Objects.requireNonNull(iterator.next(), "bean is null") : null;
+                }
+                long begin = System.nanoTime();
+                int[] result = stmt.executeBatch();
+                if (tuner != null) {
+                    tuner.recordBatch(key, rows, (int) (bytes / rows), System.nanoTime() - begin);
+                }
+                if (size + rows > counts.length) {
+                    counts = Arrays.copyOf(counts, Math.max(size + rows, counts.length * 2));
+                }
+                System.arraycopy(result, 0, counts, size, Math.min(result.length, rows));
+                size += rows;
+            }
+            return size == counts.length ? counts : Arrays.copyOf(counts, size);
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Execute insert sql, and return the auto-gen key as long. The key is read by ResultSet.getLong directly.
+     *
+     * @throws UncheckedSQLException if no key returned, or key is null
+     */
+    public long insertReturningLong(String clause, Object... params) {
+        return insert(clause, params).handle(rs -> {
+            if (!rs.next()) {
+                throw new UncheckedSQLException("No generated key returned");
+            }
+            long key = rs.getLong(1);
+            if (rs.wasNull()) {
+                throw new UncheckedSQLException("Generated key is null");
+            }
+            return key;
+        });
+    }
+
+    /**
+     * Execute batch insert sql, and return the auto-gen keys as long array, in the order returned by driver.
+     * Some drivers do not return keys for batch, then the array is empty.
+     */
+    public long[] batchInsertReturningKeys(String clause, List<Object[]> params) {
+        return batchInsertReturningKeys(clause, params, false);
+    }
+
+    /**
+     * Execute batch insert sql, and return the auto-gen keys as long array.
+     *
+     * @param sortAscending sort the keys, for drivers which return keys in a different order than the batch. For
+     *                      auto-increment keys, the sorted keys are in the order of batch rows.
+     */
+    public long[] batchInsertReturningKeys(String clause, List<Object[]> params, boolean sortAscending) {
+        if (params.isEmpty()) {
+            // some drivers return no generated keys result set for empty batch
+            return new long[0];
+        }
+        long[] keys = batchInsert(clause, params).getLongs();
+        if (sortAscending) {
+            Arrays.sort(keys);
+        }
+        return keys;
+    }
+
+    /**
+     * Execute batch insert sql, and return the values of key columns, for composite keys. Each element of returned
+     * array is the key values of one row, in the order of keyColumns.
+     *
+     * @param sortAscending sort the keys by the key values in order, for drivers which return keys in a different order
+     *                      than the batch
+     */
+    public long[][] batchInsertReturningKeys(String clause, List<Object[]> params, String[] keyColumns,
+                                             boolean sortAscending) {
+        if (params.isEmpty()) {
+            return new long[0][];
+        }
+        long[][] keys = batchInsert(clause, params).keyColumns(keyColumns).handle(rs -> {
+            int columns = keyColumns.length == 0 ? rs.getMetaData().getColumnCount() : keyColumns.length;
+            long[][] rows = new long[params.size()][];
+            int size = 0;
+            while (rs.next()) {
+                long[] key = new long[columns];
+                for (int i = 0; i < columns; i++) {
+                    key[i] = rs.getLong(i + 1);
+                    if (rs.wasNull()) {
+                        throw new UncheckedSQLException("Generated key is null");
+                    }
+                }
+                if (size == rows.length) {
+                    rows = Arrays.copyOf(rows, Math.max(16, size << 1));
+                }
+                rows[size++] = key;
+            }
+            return size == rows.length ? rows : Arrays.copyOf(rows, size);
+        });
+        if (sortAscending) {
+            Arrays.sort(keys, SQLExecutor::compareKeys);
+        }
+        return keys;
+    }
+
+    private static int compareKeys(long[] key1, long[] key2) {
+        for (int i = 0; i < key1.length; i++) {
+            int c = Long.compare(key1[i], key2[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
     }
 
     // Additional support for java8 time types.
@@ -147,39 +451,45 @@ abstract class SQLExecutor {
      * @param stmt   PreparedStatement to fill
      * @param params Query replacement parameters; null is a valid value to pass in.
      */
-    private static void fillStatement(PreparedStatement stmt, Object... params) throws SQLException {
+    static void fillStatement(PreparedStatement stmt, Object... params) throws SQLException {
 
         // check the parameter count, if we can
         for (int i = 0; i < params.length; i++) {
-            Object param = params[i];
-            if (param == null) {
-                // VARCHAR works with many drivers regardless
-                // of the actual column type. Oddly, NULL and
-                // OTHER don't work with Oracle's drivers.
-                stmt.setNull(i + 1, Types.VARCHAR);
-                continue;
-            }
-
-            Class<?> type = param.getClass();
-            if (type.isEnum()) {
-                // special handle for enum types
-                param = ((Enum) param).name();
-            } else if (java8TimeTypes.contains(type)) {
-                if (param instanceof LocalDate) {
-                    param = Date.valueOf((LocalDate) param);
-                } else if (param instanceof LocalDateTime) {
-                    param = Timestamp.valueOf((LocalDateTime) param);
-                } else if (param instanceof LocalTime) {
-                    param = Time.valueOf((LocalTime) param);
-                } else if (param instanceof OffsetDateTime) {
-                    param = Timestamp.from(Instant.from((OffsetDateTime) param));
-                } else if (param instanceof OffsetTime) {
-                    param = Timestamp.from(Instant.from((OffsetTime) param));
-                } else if (param instanceof Instant) {
-                    param = Timestamp.from((Instant) param);
-                }
+            setParam(stmt, i + 1, params[i]);
+        }
+    }
+
+    /**
+     * Set one parameter of PreparedStatement, with enum and java8 time values converted.
+     */
+    static void setParam(PreparedStatement stmt, int index, Object param) throws SQLException {
+        if (param == null) {
+            // VARCHAR works with many drivers regardless
+            // of the actual column type. Oddly, NULL and
+            // OTHER don't work with Oracle's drivers.
+            stmt.setNull(index, Types.VARCHAR);
+            return;
+        }
+
+        Class<?> type = param.getClass();
+        if (param instanceof Enum) {
+            // special handle for enum types, including constants with class body
+            param = ((Enum) param).name();
+        } else if (java8TimeTypes.contains(type)) {
+            if (param instanceof LocalDate) {
+                param = Date.valueOf((LocalDate) param);
+            } else if (param instanceof LocalDateTime) {
+                param = Timestamp.valueOf((LocalDateTime) param);
+            } else if (param instanceof LocalTime) {
+                param = Time.valueOf((LocalTime) param);
+            } else if (param instanceof OffsetDateTime) {
+                param = Timestamp.from(Instant.from((OffsetDateTime) param));
+            } else if (param instanceof OffsetTime) {
+                param = Timestamp.from(Instant.from((OffsetTime) param));
+            } else if (param instanceof Instant) {
+                param = Timestamp.from((Instant) param);
             }
-            stmt.setObject(i + 1, param);
         }
+        stmt.setObject(index, param);
     }
 }
@@ -0,0 +1,23 @@
+package net.dongliu.dbutils;
+
+import java.util.regex.Pattern;
+
+/**
+ * Normalized form of sql clause, for grouping the same sql with different literals, in logs and statistics.
+ */
+class SQLFingerprint {
+    private static final Pattern stringLiteral = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern numberLiteral = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern whitespace = Pattern.compile("\\s+");
+
+    /**
+     * Replace literals with ?, and collapse whitespaces. Costs several regex passes, compute once and keep if used
+     * repeatedly.
+     */
+    static String of(String clause) {
+        String s = stringLiteral.matcher(clause).replaceAll("?");
+        s = numberLiteral.matcher(s).replaceAll("?");
+        s = whitespace.matcher(s).replaceAll(" ").trim();
+        return s.length() <= 200 ? s : s.substring(0, 200) + "...";
+    }
+}
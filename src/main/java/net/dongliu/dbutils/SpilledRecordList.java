@@ -0,0 +1,368 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.exception.UncheckedSQLException;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.*;
+import java.util.*;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A read-only List of Records, which rows are stored in a temp file with compact binary format, and read from
+ * memory-mapped file when accessed. Each get call decode and create a new Record.
+ * <p>
+ * Only row offsets are kept in heap. The temp file is deleted once mapped if the OS allows, else deleted on jvm exit.
+ */
+class SpilledRecordList extends AbstractList<Record> implements RandomAccess {
+    // rows never cross region boundary, so one row can be read from one mapped buffer
+    private static final int regionShift = 30;
+    private static final long regionSize = 1L << regionShift;
+    private static final long regionMask = regionSize - 1;
+
+    private final String[] names;
+    private final long[] offsets;
+    private final int size;
+    private final MappedByteBuffer[] regions;
+
+    private SpilledRecordList(String[] names, long[] offsets, int size, MappedByteBuffer[] regions) {
+        this.names = names;
+        this.offsets = offsets;
+        this.size = size;
+        this.regions = regions;
+    }
+
+    @Override
+    public Record get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        long offset = offsets[index];
+        ByteBuffer buffer = regions[(int) (offset >>> regionShift)].duplicate();
+        buffer.position((int) (offset & regionMask));
+        Object[] values = new Object[names.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readValue(buffer);
+        }
+        return new Record(names, values);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // value type tags
+    private static final byte NULL = 0;
+    private static final byte LONG = 1;
+    private static final byte INT = 2;
+    private static final byte SHORT = 3;
+    private static final byte BYTE = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte FLOAT = 7;
+    private static final byte STRING = 8;
+    private static final byte DECIMAL = 9;
+    private static final byte BYTES = 10;
+    private static final byte DATE = 11;
+    private static final byte TIME = 12;
+    private static final byte TIMESTAMP = 13;
+    private static final byte LOCAL_DATE = 14;
+    private static final byte LOCAL_TIME = 15;
+    private static final byte LOCAL_DATE_TIME = 16;
+    private static final byte SERIALIZED = 17;
+
+    private static Object readValue(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case LONG:
+                return buffer.getLong();
+            case INT:
+                return buffer.getInt();
+            case SHORT:
+                return buffer.getShort();
+            case BYTE:
+                return buffer.get();
+            case BOOLEAN:
+                return buffer.get() != 0;
+            case DOUBLE:
+                return buffer.getDouble();
+            case FLOAT:
+                return buffer.getFloat();
+            case STRING:
+                return new String(readBytes(buffer), StandardCharsets.UTF_8);
+            case DECIMAL:
+                int scale = buffer.getInt();
+                return new BigDecimal(new BigInteger(readBytes(buffer)), scale);
+            case BYTES:
+                return readBytes(buffer);
+            case DATE:
+                return new Date(buffer.getLong());
+            case TIME:
+                return new Time(buffer.getLong());
+            case TIMESTAMP:
+                Timestamp timestamp = new Timestamp(buffer.getLong());
+                timestamp.setNanos(buffer.getInt());
+                return timestamp;
+            case LOCAL_DATE:
+                return LocalDate.ofEpochDay(buffer.getLong());
+            case LOCAL_TIME:
+                return LocalTime.ofNanoOfDay(buffer.getLong());
+            case LOCAL_DATE_TIME:
+                return LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+            case SERIALIZED:
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(readBytes(buffer)))) {
+                    return in.readObject();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (ClassNotFoundException e) {
+                    throw new UncheckedSQLException(e);
+                }
+            default:
+                throw new IllegalStateException("unknown value tag: " + tag);
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Collect records, keep them in heap until memory budget exceeded, then spill all rows to temp file.
+     */
+    static class Collector {
+        private final long memoryBudget;
+        private final List<Record> records = new ArrayList<>();
+        private long memoryUsed;
+        private String[] names;
+
+        // spill states
+        private Path file;
+        private FileChannel channel;
+        private long[] offsets;
+        private int size;
+        private long position;
+        private ByteBuffer rowBuffer = ByteBuffer.allocate(4096);
+        private final ByteBuffer writeBuffer = ByteBuffer.allocate(64 * 1024);
+
+        Collector(long memoryBudget) {
+            this.memoryBudget = memoryBudget;
+        }
+
+        void add(Record record) throws IOException {
+            if (names == null) {
+                names = record.getNames();
+            }
+            if (channel != null) {
+                writeRecord(record);
+                return;
+            }
+            records.add(record);
+            memoryUsed += estimateSize(record);
+            if (memoryUsed > memoryBudget) {
+                spill();
+            }
+        }
+
+        /**
+         * Return in-memory list if not spilled, else the spilled list
+         */
+        List<Record> finish() throws IOException {
+            if (channel == null) {
+                return records;
+            }
+            try {
+                flush();
+                int regionCount = (int) ((position + regionSize - 1) >>> regionShift);
+                MappedByteBuffer[] regions = new MappedByteBuffer[regionCount];
+                for (int i = 0; i < regionCount; i++) {
+                    long start = (long) i << regionShift;
+                    regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                            Math.min(regionSize, position - start));
+                }
+                return new SpilledRecordList(names, offsets, size, regions);
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * Release temp file when failed or finished. The mapped buffers are still valid after file deleted.
+         */
+        void close() throws IOException {
+            if (channel == null) {
+                return;
+            }
+            channel.close();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // some OS do not allow to delete mapped file
+                file.toFile().deleteOnExit();
+            }
+        }
+
+        private void spill() throws IOException {
+            file = Files.createTempFile("dbutils-spill-", ".bin");
+            channel = FileChannel.open(file, READ, WRITE);
+            offsets = new long[Math.max(16, records.size() * 2)];
+            for (Record record : records) {
+                writeRecord(record);
+            }
+            records.clear();
+        }
+
+        private void writeRecord(Record record) throws IOException {
+            rowBuffer.clear();
+            for (Object value : record.getValues()) {
+                writeValue(value);
+            }
+            rowBuffer.flip();
+            int length = rowBuffer.remaining();
+            if (length > regionSize) {
+                throw new UncheckedSQLException("row too large to spill: " + length);
+            }
+            // pad to next region, if row would cross region boundary
+            long regionEnd = (position | regionMask) + 1;
+            if (position + length > regionEnd) {
+                writeBytes(ByteBuffer.allocate((int) (regionEnd - position)));
+            }
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            offsets[size++] = position;
+            writeBytes(rowBuffer);
+        }
+
+        private void writeBytes(ByteBuffer data) throws IOException {
+            position += data.remaining();
+            while (data.hasRemaining()) {
+                if (!writeBuffer.hasRemaining()) {
+                    flush();
+                }
+                int len = Math.min(writeBuffer.remaining(), data.remaining());
+                int limit = data.limit();
+                data.limit(data.position() + len);
+                writeBuffer.put(data);
+                data.limit(limit);
+            }
+        }
+
+        private void flush() throws IOException {
+            writeBuffer.flip();
+            while (writeBuffer.hasRemaining()) {
+                channel.write(writeBuffer);
+            }
+            writeBuffer.clear();
+        }
+
+        private void ensureRowBuffer(int size) {
+            if (rowBuffer.remaining() < size) {
+                int capacity = Math.max(rowBuffer.capacity() * 2, rowBuffer.position() + size);
+                ByteBuffer buffer = ByteBuffer.allocate(capacity);
+                rowBuffer.flip();
+                buffer.put(rowBuffer);
+                rowBuffer = buffer;
+            }
+        }
+
+        private void writeValue(Object value) throws IOException {
+            ensureRowBuffer(17);
+            if (value == null) {
+                rowBuffer.put(NULL);
+            } else if (value instanceof Long) {
+                rowBuffer.put(LONG).putLong((Long) value);
+            } else if (value instanceof Integer) {
+                rowBuffer.put(INT).putInt((Integer) value);
+            } else if (value instanceof Short) {
+                rowBuffer.put(SHORT).putShort((Short) value);
+            } else if (value instanceof Byte) {
+                rowBuffer.put(BYTE).put((Byte) value);
+            } else if (value instanceof Boolean) {
+                rowBuffer.put(BOOLEAN).put((byte) ((Boolean) value ? 1 : 0));
+            } else if (value instanceof Double) {
+                rowBuffer.put(DOUBLE).putDouble((Double) value);
+            } else if (value instanceof Float) {
+                rowBuffer.put(FLOAT).putFloat((Float) value);
+            } else if (value instanceof String) {
+                rowBuffer.put(STRING);
+                putBytes(((String) value).getBytes(StandardCharsets.UTF_8));
+            } else if (value instanceof BigDecimal) {
+                BigDecimal decimal = (BigDecimal) value;
+                rowBuffer.put(DECIMAL).putInt(decimal.scale());
+                putBytes(decimal.unscaledValue().toByteArray());
+            } else if (value instanceof byte[]) {
+                rowBuffer.put(BYTES);
+                putBytes((byte[]) value);
+            } else if (value.getClass() == Date.class) {
+                rowBuffer.put(DATE).putLong(((Date) value).getTime());
+            } else if (value.getClass() == Time.class) {
+                rowBuffer.put(TIME).putLong(((Time) value).getTime());
+            } else if (value.getClass() == Timestamp.class) {
+                Timestamp timestamp = (Timestamp) value;
+                rowBuffer.put(TIMESTAMP).putLong(timestamp.getTime()).putInt(timestamp.getNanos());
+            } else if (value instanceof LocalDate) {
+                rowBuffer.put(LOCAL_DATE).putLong(((LocalDate) value).toEpochDay());
+            } else if (value instanceof LocalTime) {
+                rowBuffer.put(LOCAL_TIME).putLong(((LocalTime) value).toNanoOfDay());
+            } else if (value instanceof LocalDateTime) {
+                LocalDateTime dateTime = (LocalDateTime) value;
+                rowBuffer.put(LOCAL_DATE_TIME).putLong(dateTime.toEpochSecond(ZoneOffset.UTC))
+                        .putInt(dateTime.getNano());
+            } else if (value instanceof Serializable) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+                    out.writeObject(value);
+                }
+                rowBuffer.put(SERIALIZED);
+                putBytes(bos.toByteArray());
+            } else {
+                throw new UncheckedSQLException("value type not supported for spilling: " + value.getClass().getName());
+            }
+        }
+
+        private void putBytes(byte[] bytes) {
+            ensureRowBuffer(4 + bytes.length);
+            rowBuffer.putInt(bytes.length).put(bytes);
+        }
+
+        /**
+         * Estimate heap size of record, the names array is shared so not count
+         */
+        private static long estimateSize(Record record) {
+            Object[] values = record.getValues();
+            long size = 64 + 8L * values.length;
+            for (Object value : values) {
+                if (value == null) {
+                    continue;
+                }
+                if (value instanceof String) {
+                    size += 40 + 2L * ((String) value).length();
+                } else if (value instanceof byte[]) {
+                    size += 16 + ((byte[]) value).length;
+                } else if (value instanceof Number || value instanceof Boolean) {
+                    size += 16;
+                } else {
+                    size += 32;
+                }
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package net.dongliu.dbutils;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforce timeout of statement. The timeout is passed to driver by setQueryTimeout, which usually only covers
+ * executing; and the statement is cancelled by a shared timer thread if it is still running after timeout, which
+ * covers fetching.
+ * <p>
+ * The timer is usually a try-with-resources resource only to be closed, so the methods using it suppress the "try"
+ * lint warning.
+ */
+class StatementTimer implements AutoCloseable {
+    private static final ScheduledThreadPoolExecutor timer;
+
+    static {
+        timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "dbutils-statement-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // most statements finish before timeout, do not keep their cancelled tasks
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    private static final StatementTimer NONE = new StatementTimer(null);
+
+    private final ScheduledFuture<?> future;
+
+    private StatementTimer(ScheduledFuture<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * Start timer for statement
+     *
+     * @param startNanos   the nano time when the whole execution(including acquiring connection) started
+     * @param timeoutNanos the timeout, 0 for no timeout. The thread-local deadline is also applied.
+     * @throws SQLTimeoutException if already timeout
+     */
+    static StatementTimer start(Statement statement, long startNanos, long timeoutNanos) throws SQLException {
+        long remain = Deadline.remainingNanos();
+        if (timeoutNanos > 0) {
+            remain = Math.min(remain, startNanos + timeoutNanos - System.nanoTime());
+        }
+        if (remain == Long.MAX_VALUE) {
+            return NONE;
+        }
+        if (remain <= 0) {
+            throw new SQLTimeoutException("Timeout before statement executed");
+        }
+        long seconds = (remain + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+        statement.setQueryTimeout((int) Math.min(seconds, Integer.MAX_VALUE));
+        return new StatementTimer(timer.schedule(() -> cancel(statement), remain, TimeUnit.NANOSECONDS));
+    }
+
+    private static void cancel(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException | RuntimeException ignore) {
+            // the statement may be finished or closed
+        }
+    }
+
+    /**
+     * Stop the timer, should be called before statement closed.
+     */
+    @Override
+    public void close() {
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+}
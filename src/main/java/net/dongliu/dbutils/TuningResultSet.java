@@ -0,0 +1,51 @@
+package net.dongliu.dbutils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * ResultSet which counts rows, and reports the row width and fetching time to tuner when closed. Only the time spent
+ * in next is counted, not the time the caller spends processing rows.
+ */
+class TuningResultSet extends ResultSetWrapper {
+    private final AdaptiveTuner tuner;
+    private final String key;
+    private final int fetchSize;
+    private long fetchNanos;
+    private long rows;
+    private boolean reported;
+
+    /**
+     * @param key the fingerprint of sql
+     */
+    TuningResultSet(ResultSet delegated, AdaptiveTuner tuner, String key, int fetchSize) {
+        super(delegated);
+        this.tuner = tuner;
+        this.key = key;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        long start = System.nanoTime();
+        boolean hasNext = delegated.next();
+        fetchNanos += System.nanoTime() - start;
+        if (hasNext) {
+            rows++;
+        }
+        return hasNext;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (!reported) {
+                reported = true;
+                tuner.recordQuery(key, LimitedResultSet.estimateRowWidth(delegated.getMetaData()), rows,
+                        fetchSize, fetchNanos);
+            }
+        } finally {
+            super.close();
+        }
+    }
+}
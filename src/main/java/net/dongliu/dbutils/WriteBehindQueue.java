@@ -0,0 +1,383 @@
+package net.dongliu.dbutils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Asynchronous write-behind buffer, for fire-and-forget updates such as counters and audit rows.
+ * <p>
+ * Submitted sqls are grouped by clause, and flushed with jdbc batch from a background thread, when pending rows reach
+ * flush size, or flush interval elapsed. Sqls with the same clause are executed in the order submitted, while the
+ * order between different clauses is not kept. Failures are reported to the failure callback.
+ * <p>
+ * The pending rows are bounded by capacity; what happens when buffer is full is decided by overflow policy.
+ * Pending rows are flushed when the queue closed, or when JVM shutdown.
+ *
+ * @author Liu Dong
+ */
+public class WriteBehindQueue implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(WriteBehindQueue.class.getName());
+    // started and not closed queues, closed by one shared shutdown hook
+    private static final Set<WriteBehindQueue> liveQueues = ConcurrentHashMap.newKeySet();
+    private static final AtomicBoolean shutdownHookAdded = new AtomicBoolean();
+
+    /**
+     * What to do when buffer is full
+     */
+    public enum OverflowPolicy {
+        /**
+         * Block the submitting thread until there is room
+         */
+        BLOCK,
+        /**
+         * Discard the submitted sql silently. The count of discarded rows can be got by {@link #discardedRows()}
+         */
+        DISCARD,
+        /**
+         * Flush the pending rows together with the submitted sql synchronously in the submitting thread, after the
+         * flushing of background thread finished, so sqls with the same clause are still executed in the order
+         * submitted. Failures are reported to the failure callback, as the background flushes. The flush uses its own
+         * connection, not the connection or transaction pinned to the submitting thread.
+         */
+        CALLER_RUNS,
+        /**
+         * Throw IllegalStateException
+         */
+        THROW
+    }
+
+    private final Database database;
+    private volatile int capacity = 10000;
+    private volatile int flushSize = 500;
+    private volatile long flushIntervalNanos = TimeUnit.SECONDS.toNanos(1);
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private volatile BiConsumer<BatchSQL, Throwable> failureHandler = (sql, e) ->
+            logger.log(Level.WARNING, "write-behind flush failed, " + sql.params().size() + " rows lost: "
+                    + sql.clause(), e);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushNeeded = lock.newCondition();
+    // held while executing a batch, acquired with lock held, so batches are executed in the order taken from pending
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // pending rows grouped by clause
+    private Map<String, List<Object[]>> pending = new LinkedHashMap<>();
+    private int pendingRows;
+    private boolean closed;
+    private Thread worker;
+
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+    private final AtomicLong discardedRows = new AtomicLong();
+
+    WriteBehindQueue(Database database) {
+        this.database = database;
+    }
+
+    /**
+     * Max pending rows, not including the rows being flushed. Default 10000
+     */
+    public WriteBehindQueue capacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity should be positive");
+        }
+        this.capacity = capacity;
+        return this;
+    }
+
+    /**
+     * Flush when pending rows reach this size, also the max rows executed in one batch. Default 500
+     */
+    public WriteBehindQueue flushSize(int flushSize) {
+        if (flushSize < 1) {
+            throw new IllegalArgumentException("flushSize should be positive");
+        }
+        this.flushSize = flushSize;
+        return this;
+    }
+
+    /**
+     * Flush pending rows at least once in this interval. Default 1s
+     */
+    public WriteBehindQueue flushInterval(Duration flushInterval) {
+        if (flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("flushInterval should be positive: " + flushInterval);
+        }
+        this.flushIntervalNanos = flushInterval.toNanos();
+        return this;
+    }
+
+    /**
+     * What to do when buffer is full. Default BLOCK
+     */
+    public WriteBehindQueue overflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = requireNonNull(overflowPolicy);
+        return this;
+    }
+
+    /**
+     * Called from background thread, with the batch failed to execute and the exception.
+     * By default, the failure is logged by java.util.logging.
+     */
+    public WriteBehindQueue onFailure(BiConsumer<BatchSQL, Throwable> failureHandler) {
+        this.failureHandler = requireNonNull(failureHandler);
+        return this;
+    }
+
+    /**
+     * Submit a insert/update/delete sql
+     */
+    public void submit(SQL sql) {
+        List<Object[]> params = new ArrayList<>(1);
+        params.add(sql.params());
+        enqueue(sql.clause(), params);
+    }
+
+    /**
+     * Submit a batch insert/update/delete sql
+     */
+    public void submit(BatchSQL sql) {
+        if (!sql.params().isEmpty()) {
+            enqueue(sql.clause(), sql.params());
+        }
+    }
+
+    private void enqueue(String clause, List<Object[]> params) {
+        int rows = params.size();
+        lock.lock();
+        try {
+            ensureStarted();
+            // always accept when empty, so batch larger than capacity can be submitted
+            while (pendingRows > 0 && pendingRows + rows > capacity) {
+                switch (overflowPolicy) {
+                    case DISCARD:
+                        discardedRows.addAndGet(rows);
+                        return;
+                    case CALLER_RUNS:
+                        Map<String, List<Object[]>> batch = pending;
+                        batch.computeIfAbsent(clause, c -> new ArrayList<>()).addAll(params);
+                        pending = new LinkedHashMap<>();
+                        pendingRows = 0;
+                        notFull.signalAll();
+                        flushLock.lock();
+                        lock.unlock();
+                        try {
+                            flush(batch);
+                        } finally {
+                            flushLock.unlock();
+                            lock.lock();
+                        }
+                        return;
+                    case THROW:
+                        throw new IllegalStateException("write-behind queue is full, capacity: " + capacity);
+                    default:
+                        notFull.awaitUninterruptibly();
+                        if (closed) {
+                            throw new IllegalStateException("WriteBehindQueue already closed");
+                        }
+                }
+            }
+            pending.computeIfAbsent(clause, c -> new ArrayList<>()).addAll(params);
+            pendingRows += rows;
+            if (pendingRows >= flushSize) {
+                flushNeeded.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // should be called with lock held
+    private void ensureStarted() {
+        if (closed) {
+            throw new IllegalStateException("WriteBehindQueue already closed");
+        }
+        if (worker != null) {
+            return;
+        }
+        worker = new Thread(this::run, "dbutils-write-behind");
+        worker.setDaemon(true);
+        worker.start();
+        liveQueues.add(this);
+        if (shutdownHookAdded.compareAndSet(false, true)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(WriteBehindQueue::closeAll,
+                    "dbutils-write-behind-shutdown"));
+        }
+    }
+
+    private static void closeAll() {
+        for (WriteBehindQueue queue : liveQueues) {
+            queue.close();
+        }
+    }
+
+    /**
+     * Rows flushed successfully
+     */
+    public long flushedRows() {
+        return flushedRows.get();
+    }
+
+    /**
+     * Rows failed to flush
+     */
+    public long failedRows() {
+        return failedRows.get();
+    }
+
+    /**
+     * Rows discarded by DISCARD overflow policy
+     */
+    public long discardedRows() {
+        return discardedRows.get();
+    }
+
+    /**
+     * Stop accepting new sqls, flush pending rows, and wait the flushing to finish.
+     */
+    @Override
+    public void close() {
+        Thread worker;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            worker = this.worker;
+            flushNeeded.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (worker == null) {
+            return;
+        }
+        liveQueues.remove(this);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Map<String, List<Object[]>> batch;
+            boolean exit;
+            lock.lock();
+            try {
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                long remain;
+                while (!closed && pendingRows < flushSize && (remain = deadline - System.nanoTime()) > 0) {
+                    try {
+                        flushNeeded.awaitNanos(remain);
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                exit = closed;
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                pendingRows = 0;
+                notFull.signalAll();
+                flushLock.lock();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+            } finally {
+                flushLock.unlock();
+            }
+            if (exit) {
+                return;
+            }
+        }
+    }
+
+    private void flush(Map<String, List<Object[]>> batch) {
+        // always a new connection, the caller may have a connection pinned by withConnection, maybe in transaction
+        try (MyConnection connection = database.openDetectedConnection()) {
+            flush(new ConnectionExecutor(connection, database.settings()), batch);
+        } catch (Exception e) {
+            // failed to get connection
+            for (Map.Entry<String, List<Object[]>> entry : batch.entrySet()) {
+                failedRows.addAndGet(entry.getValue().size());
+                notifyFailure(new BatchSQL(entry.getKey(), entry.getValue()), e);
+            }
+        }
+    }
+
+    /**
+     * Execute the batch, the flushed entries are removed from batch
+     */
+    private void flush(SQLExecutor executor, Map<String, List<Object[]>> batch) {
+        for (Iterator<Map.Entry<String, List<Object[]>>> it = batch.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, List<Object[]>> entry = it.next();
+            it.remove();
+            String clause = entry.getKey();
+            List<Object[]> rows = entry.getValue();
+            int size = flushSize;
+            for (int start = 0; start < rows.size(); start += size) {
+                List<Object[]> chunk = rows.subList(start, Math.min(rows.size(), start + size));
+                try {
+                    executor.batchUpdate(clause, chunk);
+                    flushedRows.addAndGet(chunk.size());
+                } catch (Exception e) {
+                    failedRows.addAndGet(chunk.size());
+                    notifyFailure(new BatchSQL(clause, new ArrayList<>(chunk)), e);
+                }
+            }
+        }
+    }
+
+    private void notifyFailure(BatchSQL sql, Throwable e) {
+        try {
+            failureHandler.accept(sql, e);
+        } catch (Throwable t) {
+            logger.log(Level.WARNING, "write-behind failure handler throws exception", t);
+        }
+    }
+
+    /**
+     * Execute sqls on the given connection, in auto commit mode
+     */
+    private static class ConnectionExecutor extends SQLExecutor {
+        private final MyConnection connection;
+        private final ExecutorSettings settings;
+
+        private ConnectionExecutor(MyConnection connection, ExecutorSettings settings) {
+            this.connection = connection;
+            this.settings = settings;
+        }
+
+        @Override
+        protected MyConnection supplyConnection() {
+            return new MyConnection(connection, false);
+        }
+
+        @Override
+        ExecutorSettings settings() {
+            return settings;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package net.dongliu.dbutils.exception;
+
+/**
+ * Thrown when query result exceeds the max rows or max bytes limit
+ *
+ * @author Liu Dong
+ */
+public class ResultLimitExceededException extends UncheckedSQLException {
+    private static final long serialVersionUID = -2475036717216845071L;
+
+    public ResultLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,57 @@
+package net.dongliu.dbutils.mapper;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * RowMapper and statement param binder for one bean class, generated at compile time for classes annotated with
+ * {@link net.dongliu.dbutils.mapping.Table}. Not intended to be implemented by hand.
+ *
+ * @param <T> the bean type
+ */
+public interface BeanMapper<T> extends RowMapper<T> {
+
+    /**
+     * Return the mapper for rows with the column names
+     *
+     * @param requireAllColumns if throw MissingPropertyException when a column has no property to map
+     */
+    RowMapper<T> bindColumns(String[] names, boolean requireAllColumns);
+
+    /**
+     * The column names of bean properties, ordered case insensitively
+     */
+    String[] columns();
+
+    /**
+     * The property names, in the order of columns
+     */
+    String[] properties();
+
+    /**
+     * The value of property
+     *
+     * @param column the index of property in columns
+     */
+    Object value(T bean, int column);
+
+    /**
+     * Set property value as statement param
+     *
+     * @param paramIndex the statement param index, start from 1
+     * @param column     the index of property in columns
+     */
+    void setParam(PreparedStatement stmt, int paramIndex, T bean, int column) throws SQLException;
+
+    /**
+     * The generated mapper for bean class
+     *
+     * @return null if class is not annotated with Table, or mapper not generated
+     */
+    @Nullable
+    static <T> BeanMapper<T> generated(Class<T> cls) {
+        return GeneratedMappers.get(cls);
+    }
+}
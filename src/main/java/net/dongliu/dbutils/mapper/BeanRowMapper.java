@@ -5,6 +5,7 @@ import net.dongliu.dbutils.exception.MissingPropertyException;
 import net.dongliu.dbutils.exception.BeanMappingException;
 import net.dongliu.dbutils.mapping.BeanMapping;
 import net.dongliu.dbutils.mapping.Property;
+import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -15,7 +16,8 @@ import java.time.*;
 import java.util.Set;
 
 /**
- * Convert row to bean
+ * Convert row to bean. If the bean class is annotated with {@link net.dongliu.dbutils.mapping.Table}, and its mapper
+ * is generated by annotation processor, the generated mapper is used instead of reflection.
  *
  * @param <T>
  */
@@ -24,11 +26,19 @@ public class BeanRowMapper<T> implements RowMapper<T> {
     private final boolean requireAllColumns;
     private final Constructor<T> constructor;
     private final BeanMapping beanMapping;
+    @Nullable
+    private final BeanMapper<T> generated;
 
     private BeanRowMapper(Class<T> cls, boolean requireAllColumns) {
         this.cls = cls;
-        this.beanMapping = BeanMapping.getBeanMapping(cls);
         this.requireAllColumns = requireAllColumns;
+        this.generated = BeanMapper.generated(cls);
+        if (generated != null) {
+            this.beanMapping = null;
+            this.constructor = null;
+            return;
+        }
+        this.beanMapping = BeanMapping.getBeanMapping(cls);
         try {
             this.constructor = cls.getConstructor();
         } catch (NoSuchMethodException e) {
@@ -41,29 +51,92 @@ public class BeanRowMapper<T> implements RowMapper<T> {
     }
 
     @Override
-    public T map(ColumnNamesProvider provider, ResultSet rs) throws SQLException {
+    public RowMapper<T> bind(ColumnNamesProvider provider, ResultSet rs) throws SQLException {
+        if (generated != null) {
+            return generated.bindColumns(provider.get(), requireAllColumns);
+        }
         String[] names = provider.get();
-        T bean;
+        Property[] properties = new Property[names.length];
+        for (int i = 0; i < names.length; i++) {
+            properties[i] = propertyOf(names[i]);
+        }
+        return new BoundBeanRowMapper(properties);
+    }
+
+    @Nullable
+    private Property propertyOf(String name) {
+        Property property = beanMapping.getProperty(name);
+        if (property == null) {
+            property = beanMapping.getProperty(name.replace("_", ""));
+        }
+        if (property == null && requireAllColumns) {
+            throw new MissingPropertyException(cls.getName(), name);
+        }
+        return property;
+    }
+
+    private T newInstance() {
         try {
-            bean = constructor.newInstance();
+            return constructor.newInstance();
         } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
             throw new BeanMappingException(e);
         }
+    }
+
+    @Override
+    public T map(ColumnNamesProvider provider, ResultSet rs) throws SQLException {
+        String[] names = provider.get();
+        if (generated != null) {
+            return generated.bindColumns(names, requireAllColumns).map(provider, rs);
+        }
+        T bean = newInstance();
         for (int i = 0; i < names.length; i++) {
-            String name = names[i];
-            Property property = beanMapping.getProperty(name);
-            if (property == null) {
-                property = beanMapping.getProperty(name.replace("_", ""));
+            Property property = propertyOf(names[i]);
+            if (property != null) {
+                setColumnValue(rs, i + 1, bean, property);
             }
-            if (property == null) {
-                if (requireAllColumns) {
-                    throw new MissingPropertyException(cls.getName(), name);
+        }
+        return bean;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BeanRowMapper<?> that = (BeanRowMapper<?>) o;
+        return requireAllColumns == that.requireAllColumns && cls.equals(that.cls);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * cls.hashCode() + (requireAllColumns ? 1 : 0);
+    }
+
+    /**
+     * Bean mapper with properties resolved for the columns of ResultSet
+     */
+    private class BoundBeanRowMapper implements RowMapper<T> {
+        // null for columns without property
+        private final Property[] properties;
+
+        private BoundBeanRowMapper(Property[] properties) {
+            this.properties = properties;
+        }
+
+        @Override
+        public T map(ColumnNamesProvider provider, ResultSet rs) throws SQLException {
+            T bean = newInstance();
+            for (int i = 0; i < properties.length; i++) {
+                if (properties[i] != null) {
+                    setColumnValue(rs, i + 1, bean, properties[i]);
                 }
-                continue;
             }
-            setColumnValue(rs, i + 1, bean, property);
+            return bean;
         }
-        return bean;
     }
 
 
@@ -96,7 +169,7 @@ public class BeanRowMapper<T> implements RowMapper<T> {
     /**
      * Set a ResultSet column value into an object.
      */
-    private void setColumnValue(ResultSet rs, int index, Object bean, Property property) throws SQLException {
+    static void setColumnValue(ResultSet rs, int index, Object bean, Property property) throws SQLException {
 
         Class<?> type = property.type();
         if (type == String.class) {
@@ -110,7 +183,7 @@ public class BeanRowMapper<T> implements RowMapper<T> {
             setJdbcTypes(rs, index, bean, property, type);
         } else if (java8TimeTypes.contains(type)) {
             setJava8Times(rs, index, bean, property, type);
-        } else if (type.getClass().isEnum()) {
+        } else if (type.isEnum()) {
             // support for java enum, by use the name of enum
             String str = rs.getString(index);
             if (str == null) {
@@ -125,7 +198,7 @@ public class BeanRowMapper<T> implements RowMapper<T> {
         }
     }
 
-    private void setJava8Times(ResultSet rs, int index, Object bean, Property property, Class<?> type)
+    private static void setJava8Times(ResultSet rs, int index, Object bean, Property property, Class<?> type)
             throws SQLException {
         if (type == LocalDate.class) {
             Date date = rs.getDate(index);
@@ -167,7 +240,7 @@ public class BeanRowMapper<T> implements RowMapper<T> {
         }
     }
 
-    private void setJdbcTypes(ResultSet rs, int index, Object bean, Property property, Class<?> type)
+    private static void setJdbcTypes(ResultSet rs, int index, Object bean, Property property, Class<?> type)
             throws SQLException {
         if (type == String.class) {
             property.set(bean, rs.getString(index));
@@ -202,7 +275,7 @@ public class BeanRowMapper<T> implements RowMapper<T> {
         }
     }
 
-    private void setWrapper(ResultSet rs, int index, Object bean, Property property, Class<?> type)
+    private static void setWrapper(ResultSet rs, int index, Object bean, Property property, Class<?> type)
             throws SQLException {
         if (type == Integer.class) {
             int value = rs.getInt(index);
@@ -260,7 +333,7 @@ public class BeanRowMapper<T> implements RowMapper<T> {
         }
     }
 
-    private void setPrimitive(ResultSet rs, int index, Object bean, Property property, Class<?> type)
+    private static void setPrimitive(ResultSet rs, int index, Object bean, Property property, Class<?> type)
             throws SQLException {
         if (type == int.class) {
             property.set(bean, rs.getInt(index));
@@ -0,0 +1,52 @@
+package net.dongliu.dbutils.mapper;
+
+import net.dongliu.dbutils.exception.BeanMappingException;
+import net.dongliu.dbutils.mapping.Table;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Optional;
+
+/**
+ * Cache of generated BeanMappers, by bean class
+ */
+class GeneratedMappers {
+    private static final ClassValue<Optional<BeanMapper<?>>> cache = new ClassValue<Optional<BeanMapper<?>>>() {
+        @Override
+        protected Optional<BeanMapper<?>> computeValue(Class<?> type) {
+            return Optional.ofNullable(load(type));
+        }
+    };
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    static <T> BeanMapper<T> get(Class<T> cls) {
+        return (BeanMapper<T>) cache.get(cls).orElse(null);
+    }
+
+    @Nullable
+    private static BeanMapper<?> load(Class<?> type) {
+        if (!type.isAnnotationPresent(Table.class)) {
+            return null;
+        }
+        Class<?> mapperClass;
+        try {
+            mapperClass = Class.forName(generatedName(type.getName()), true, type.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            // annotation processor not enabled
+            return null;
+        }
+        try {
+            return (BeanMapper<?>) mapperClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new BeanMappingException(e);
+        }
+    }
+
+    /**
+     * The name of generated mapper class, from the binary name of bean class
+     */
+    static String generatedName(String binaryName) {
+        int index = binaryName.lastIndexOf('.');
+        return binaryName.substring(0, index + 1) + binaryName.substring(index + 1).replace('$', '_') + "_Mapper";
+    }
+}
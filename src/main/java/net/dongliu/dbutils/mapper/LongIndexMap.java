@@ -0,0 +1,67 @@
+package net.dongliu.dbutils.mapper;
+
+/**
+ * Open addressing hash map from long key to non-negative int index, without boxing keys.
+ */
+class LongIndexMap {
+    private long[] keys;
+    // index + 1, 0 for empty slot
+    private int[] values;
+    private int size;
+
+    LongIndexMap() {
+        keys = new long[16];
+        values = new int[16];
+    }
+
+    /**
+     * Get the index of key, -1 if not found
+     */
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; values[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Put key with index, the key should not in map
+     */
+    void put(long key, int index) {
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize();
+        }
+        insert(keys, values, key, index + 1);
+        size++;
+    }
+
+    private void resize() {
+        long[] newKeys = new long[keys.length * 2];
+        int[] newValues = new int[values.length * 2];
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != 0) {
+                insert(newKeys, newValues, keys[i], values[i]);
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+    }
+
+    private static void insert(long[] keys, int[] values, long key, int value) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
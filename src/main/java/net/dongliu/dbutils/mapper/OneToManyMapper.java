@@ -0,0 +1,208 @@
+package net.dongliu.dbutils.mapper;
+
+import net.dongliu.dbutils.ResultSetHandler;
+import net.dongliu.dbutils.exception.BeanMappingException;
+import net.dongliu.dbutils.mapping.BeanMapping;
+import net.dongliu.dbutils.mapping.Property;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Map join result of parent and child tables to parent beans with children, in one pass.
+ * <p>
+ * Columns are assigned to parent or child bean by label prefix, such as {@code o_id} and {@code l_id}; the prefix is
+ * removed before matching bean property, as {@link BeanRowMapper} does. Rows with the same parent key are merged into
+ * one parent bean. Rows are best sorted by parent key, but this is not required. A row whose child columns are all
+ * null, as produced by left join, adds no child. The parents are returned in the order first appeared.
+ * <pre>{@code
+ * List<Order> orders = database.query("select o.id o_id, o.no o_no, l.id l_id, l.sku l_sku from orders o "
+ *         + "left join order_line l on o.id = l.order_id")
+ *         .handle(OneToManyMapper.of(Order.class, "o_", "id", OrderLine.class, "l_", Order::addLine));
+ * }</pre>
+ *
+ * @param <P> the parent bean type
+ * @param <C> the child bean type
+ */
+public class OneToManyMapper<P, C> implements ResultSetHandler<List<P>> {
+    private final Class<P> parentClass;
+    private final String parentPrefix;
+    private final String parentKey;
+    private final Class<C> childClass;
+    private final String childPrefix;
+    private final BiConsumer<? super P, ? super C> addChild;
+
+    private OneToManyMapper(Class<P> parentClass, String parentPrefix, String parentKey, Class<C> childClass,
+                            String childPrefix, BiConsumer<? super P, ? super C> addChild) {
+        this.parentClass = requireNonNull(parentClass);
+        this.parentPrefix = parentPrefix.toLowerCase(Locale.ROOT);
+        this.parentKey = requireNonNull(parentKey);
+        this.childClass = requireNonNull(childClass);
+        this.childPrefix = childPrefix.toLowerCase(Locale.ROOT);
+        this.addChild = requireNonNull(addChild);
+        if (this.parentPrefix.equals(this.childPrefix)) {
+            throw new IllegalArgumentException("parent and child should have different column prefix");
+        }
+    }
+
+    /**
+     * Create mapper
+     *
+     * @param parentClass  the parent bean class
+     * @param parentPrefix the label prefix of parent columns
+     * @param parentKey    the parent key column name, without prefix. The key should be integral number
+     * @param childClass   the child bean class
+     * @param childPrefix  the label prefix of child columns
+     * @param addChild     add child bean to parent bean
+     */
+    public static <P, C> OneToManyMapper<P, C> of(Class<P> parentClass, String parentPrefix, String parentKey,
+                                                  Class<C> childClass, String childPrefix,
+                                                  BiConsumer<? super P, ? super C> addChild) {
+        return new OneToManyMapper<>(parentClass, parentPrefix, parentKey, childClass, childPrefix, addChild);
+    }
+
+    @Override
+    public List<P> handle(ResultSet rs) throws SQLException {
+        List<P> parents = new ArrayList<>();
+        if (!rs.next()) {
+            return parents;
+        }
+        Plan plan = new Plan(rs.getMetaData());
+        Constructor<P> parentConstructor = constructorOf(parentClass);
+        Constructor<C> childConstructor = constructorOf(childClass);
+        LongIndexMap indexes = new LongIndexMap();
+        long lastKey = 0;
+        P parent = null;
+        do {
+            long key = rs.getLong(plan.keyIndex);
+            if (rs.wasNull()) {
+                throw new BeanMappingException("parent key is null: " + parentPrefix + parentKey);
+            }
+            // fast path for rows sorted by parent key
+            if (parent == null || key != lastKey) {
+                int index = indexes.get(key);
+                if (index >= 0) {
+                    parent = parents.get(index);
+                } else {
+                    parent = newInstance(parentConstructor);
+                    setValues(rs, parent, plan.parentIndexes, plan.parentProperties);
+                    indexes.put(key, parents.size());
+                    parents.add(parent);
+                }
+                lastKey = key;
+            }
+            if (hasChild(rs, plan.childIndexes)) {
+                C child = newInstance(childConstructor);
+                setValues(rs, child, plan.childIndexes, plan.childProperties);
+                addChild.accept(parent, child);
+            }
+        } while (rs.next());
+        return parents;
+    }
+
+    private static boolean hasChild(ResultSet rs, int[] childIndexes) throws SQLException {
+        for (int index : childIndexes) {
+            if (rs.getObject(index) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void setValues(ResultSet rs, Object bean, int[] indexes, Property[] properties)
+            throws SQLException {
+        for (int i = 0; i < indexes.length; i++) {
+            BeanRowMapper.setColumnValue(rs, indexes[i], bean, properties[i]);
+        }
+    }
+
+    private static <T> Constructor<T> constructorOf(Class<T> cls) {
+        try {
+            return cls.getConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new BeanMappingException(e);
+        }
+    }
+
+    private static <T> T newInstance(Constructor<T> constructor) {
+        try {
+            return constructor.newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new BeanMappingException(e);
+        }
+    }
+
+    /**
+     * The columns and properties of parent and child, resolved once for a ResultSet
+     */
+    private class Plan {
+        private int keyIndex;
+        private final int[] parentIndexes;
+        private final Property[] parentProperties;
+        private final int[] childIndexes;
+        private final Property[] childProperties;
+
+        private Plan(ResultSetMetaData metaData) throws SQLException {
+            BeanMapping parentMapping = BeanMapping.getBeanMapping(parentClass);
+            BeanMapping childMapping = BeanMapping.getBeanMapping(childClass);
+            List<Integer> parentIndexList = new ArrayList<>();
+            List<Property> parentPropertyList = new ArrayList<>();
+            List<Integer> childIndexList = new ArrayList<>();
+            List<Property> childPropertyList = new ArrayList<>();
+            // match the longer prefix first, in case one prefix is the prefix of the other
+            boolean childFirst = childPrefix.length() > parentPrefix.length();
+            int count = metaData.getColumnCount();
+            for (int i = 1; i <= count; i++) {
+                String label = metaData.getColumnLabel(i);
+                if (label == null || label.isEmpty()) {
+                    label = metaData.getColumnName(i);
+                }
+                String lower = label.toLowerCase(Locale.ROOT);
+                boolean isChild = lower.startsWith(childPrefix);
+                boolean isParent = lower.startsWith(parentPrefix);
+                if (isChild && (childFirst || !isParent)) {
+                    String name = label.substring(childPrefix.length());
+                    Property property = propertyOf(childMapping, name);
+                    if (property != null) {
+                        childIndexList.add(i);
+                        childPropertyList.add(property);
+                    }
+                } else if (isParent) {
+                    String name = label.substring(parentPrefix.length());
+                    if (name.equalsIgnoreCase(parentKey)) {
+                        keyIndex = i;
+                    }
+                    Property property = propertyOf(parentMapping, name);
+                    if (property != null) {
+                        parentIndexList.add(i);
+                        parentPropertyList.add(property);
+                    }
+                }
+            }
+            if (keyIndex == 0) {
+                throw new BeanMappingException("parent key column not found: " + parentPrefix + parentKey);
+            }
+            this.parentIndexes = parentIndexList.stream().mapToInt(Integer::intValue).toArray();
+            this.parentProperties = parentPropertyList.toArray(new Property[0]);
+            this.childIndexes = childIndexList.stream().mapToInt(Integer::intValue).toArray();
+            this.childProperties = childPropertyList.toArray(new Property[0]);
+        }
+
+        private Property propertyOf(BeanMapping mapping, String name) {
+            Property property = mapping.getProperty(name);
+            if (property == null) {
+                property = mapping.getProperty(name.replace("_", ""));
+            }
+            return property;
+        }
+    }
+}
@@ -2,30 +2,192 @@ package net.dongliu.dbutils.mapper;
 
 import net.dongliu.dbutils.Record;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.sql.*;
 
 /**
- * RowMapper that convert a row to Record
+ * RowMapper that convert a row to Record.
+ * <p>
+ * When bind to a ResultSet, the column types are read from ResultSetMetaData once, and each column is read by the
+ * specialized getXXX method of ResultSet, instead of calling getObject for every column value.
+ * The value types are the same as JDBC getObject default mapping.
+ * If java time mode is enabled, DATE/TIME/TIMESTAMP columns are converted to LocalDate/LocalTime/LocalDateTime
+ * when reading the row, so the Record getters need not convert on every access. Queries enable it by
+ * {@link net.dongliu.dbutils.QueryContext#javaTime(boolean)}.
  */
 public class RecordRowMapper implements RowMapper<Record> {
 
-    private RecordRowMapper() {
+    private final boolean javaTime;
+
+    private RecordRowMapper(boolean javaTime) {
+        this.javaTime = javaTime;
     }
 
-    private static final RecordRowMapper instance = new RecordRowMapper();
+    private static final RecordRowMapper instance = new RecordRowMapper(false);
+    private static final RecordRowMapper javaTimeInstance = new RecordRowMapper(true);
 
     public static RecordRowMapper getInstance() {
         return instance;
     }
 
+    /**
+     * Get RecordRowMapper instance.
+     *
+     * @param javaTime if true, convert sql date/time/timestamp values to java.time LocalDate/LocalTime/LocalDateTime
+     */
+    public static RecordRowMapper getInstance(boolean javaTime) {
+        return javaTime ? javaTimeInstance : instance;
+    }
+
     @Override
     public Record map(ColumnNamesProvider provider, ResultSet rs) throws SQLException {
         String[] names = provider.get();
         Object[] values = new Object[names.length];
         for (int i = 0; i < names.length; i++) {
-            values[i] = rs.getObject(i + 1);
+            Object value = rs.getObject(i + 1);
+            values[i] = javaTime ? toJavaTime(value) : value;
         }
         return new Record(names, values);
     }
+
+    @Override
+    public RowMapper<Record> bind(ColumnNamesProvider provider, ResultSet rs) throws SQLException {
+        String[] names = provider.get();
+        ResultSetMetaData metaData = rs.getMetaData();
+        ColumnReader[] readers = new ColumnReader[names.length];
+        for (int i = 0; i < names.length; i++) {
+            readers[i] = columnReader(metaData, i + 1);
+        }
+        return new BoundRecordRowMapper(names, readers);
+    }
+
+    private static Object toJavaTime(Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        }
+        if (value instanceof Date) {
+            return ((Date) value).toLocalDate();
+        }
+        if (value instanceof Time) {
+            return ((Time) value).toLocalTime();
+        }
+        return value;
+    }
+
+    /**
+     * Choose reader by column sql type.
+     */
+    private ColumnReader columnReader(ResultSetMetaData metaData, int column) throws SQLException {
+        switch (metaData.getColumnType(column)) {
+            case Types.BIGINT:
+                // unsigned bigint may overflow long
+                return metaData.isSigned(column) ? RecordRowMapper::readLong : ResultSet::getObject;
+            case Types.INTEGER:
+                return metaData.isSigned(column) ? RecordRowMapper::readInt : RecordRowMapper::readLong;
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return RecordRowMapper::readInt;
+            case Types.BOOLEAN:
+                return RecordRowMapper::readBoolean;
+            case Types.BIT:
+                // bit(n) with n > 1 is returned as byte array by some drivers
+                return metaData.getPrecision(column) <= 1 ? RecordRowMapper::readBoolean : ResultSet::getObject;
+            case Types.REAL:
+                return RecordRowMapper::readFloat;
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return RecordRowMapper::readDouble;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return ResultSet::getBigDecimal;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return ResultSet::getString;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+                return ResultSet::getBytes;
+            case Types.DATE:
+                return javaTime ? RecordRowMapper::readLocalDate : ResultSet::getDate;
+            case Types.TIME:
+                return javaTime ? RecordRowMapper::readLocalTime : ResultSet::getTime;
+            case Types.TIMESTAMP:
+                return javaTime ? RecordRowMapper::readLocalDateTime : ResultSet::getTimestamp;
+            default:
+                return javaTime ? (rs, index) -> toJavaTime(rs.getObject(index)) : ResultSet::getObject;
+        }
+    }
+
+    private static Object readLong(ResultSet rs, int index) throws SQLException {
+        long value = rs.getLong(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Object readInt(ResultSet rs, int index) throws SQLException {
+        int value = rs.getInt(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Object readBoolean(ResultSet rs, int index) throws SQLException {
+        boolean value = rs.getBoolean(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Object readFloat(ResultSet rs, int index) throws SQLException {
+        float value = rs.getFloat(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Object readDouble(ResultSet rs, int index) throws SQLException {
+        double value = rs.getDouble(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Object readLocalDate(ResultSet rs, int index) throws SQLException {
+        Date value = rs.getDate(index);
+        return value == null ? null : value.toLocalDate();
+    }
+
+    private static Object readLocalTime(ResultSet rs, int index) throws SQLException {
+        Time value = rs.getTime(index);
+        return value == null ? null : value.toLocalTime();
+    }
+
+    private static Object readLocalDateTime(ResultSet rs, int index) throws SQLException {
+        Timestamp value = rs.getTimestamp(index);
+        return value == null ? null : value.toLocalDateTime();
+    }
+
+    /**
+     * Read one column value
+     */
+    @FunctionalInterface
+    private interface ColumnReader {
+        Object read(ResultSet rs, int index) throws SQLException;
+    }
+
+    /**
+     * Mapper with column names and readers resolved for one ResultSet.
+     */
+    private static class BoundRecordRowMapper implements RowMapper<Record> {
+        private final String[] names;
+        private final ColumnReader[] readers;
+
+        private BoundRecordRowMapper(String[] names, ColumnReader[] readers) {
+            this.names = names;
+            this.readers = readers;
+        }
+
+        @Override
+        public Record map(ColumnNamesProvider provider, ResultSet rs) throws SQLException {
+            Object[] values = new Object[readers.length];
+            for (int i = 0; i < readers.length; i++) {
+                values[i] = readers[i].read(rs, i + 1);
+            }
+            return new Record(names, values);
+        }
+    }
 }
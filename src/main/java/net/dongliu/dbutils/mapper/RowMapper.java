@@ -15,4 +15,17 @@ public interface RowMapper<T> {
      * @param rs       the result set
      */
     T map(ColumnNamesProvider provider, ResultSet rs) throws SQLException;
+
+    /**
+     * Called once for a ResultSet before mapping its rows, and return the mapper used to map rows of this ResultSet.
+     * Mappers can override this to resolve column names, types, readers only once for all rows.
+     * The returned mapper should not hold the ResultSet, it is always passed in when map rows.
+     * Default implementation return this mapper self.
+     *
+     * @param provider for get the columns names
+     * @param rs       the result set, already positioned at the first row
+     */
+    default RowMapper<T> bind(ColumnNamesProvider provider, ResultSet rs) throws SQLException {
+        return this;
+    }
 }
@@ -2,6 +2,9 @@ package net.dongliu.dbutils.mapping;
 
 import net.dongliu.dbutils.exception.BeanMappingException;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 
 /**
@@ -33,6 +36,16 @@ public class FieldProperty implements Property {
         }
     }
 
+    @Override
+    public MethodHandle getter() {
+        try {
+            return MethodHandles.publicLookup().unreflectGetter(field)
+                    .asType(MethodType.methodType(field.getType(), Object.class));
+        } catch (IllegalAccessException e) {
+            throw new BeanMappingException(e);
+        }
+    }
+
     @Override
     public Class<?> type() {
         return field.getType();
@@ -3,6 +3,9 @@ package net.dongliu.dbutils.mapping;
 import net.dongliu.dbutils.exception.BeanMappingException;
 
 import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 
 /**
@@ -33,6 +36,16 @@ public class GetterSetterProperty implements Property {
         }
     }
 
+    @Override
+    public MethodHandle getter() {
+        try {
+            return MethodHandles.publicLookup().unreflect(descriptor.getReadMethod())
+                    .asType(MethodType.methodType(descriptor.getPropertyType(), Object.class));
+        } catch (IllegalAccessException e) {
+            throw new BeanMappingException(e);
+        }
+    }
+
     @Override
     public Class<?> type() {
         return descriptor.getPropertyType();
@@ -1,5 +1,10 @@
 package net.dongliu.dbutils.mapping;
 
+import net.dongliu.dbutils.exception.BeanMappingException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 
 /**
  * Data class property.
@@ -27,4 +32,19 @@ public interface Property {
      * Get the name of property
      */
     String name();
+
+    /**
+     * The MethodHandle which reads the property value, of type (Object) -> {@link #type()}.
+     * The default implementation calls {@link #get(Object)}.
+     */
+    default MethodHandle getter() {
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.publicLookup().findVirtual(Property.class, "get",
+                    MethodType.methodType(Object.class, Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new BeanMappingException(e);
+        }
+        return handle.bindTo(this).asType(MethodType.methodType(type(), Object.class));
+    }
 }
@@ -0,0 +1,23 @@
+package net.dongliu.dbutils.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Mark a bean class, for generating RowMapper and statement param binder at compile time.
+ * <p>
+ * When {@link net.dongliu.dbutils.processor.MapperProcessor} is enabled, a class named by the bean class name with
+ * nested class names joined by underscore, followed by {@code _Mapper}, is generated in the same package. For example
+ * {@code User_Mapper} for class {@code User}. The properties are the same as mapped by reflection, and {@link Column}
+ * annotations are respected. The generated class is used by BeanRowMapper and bean insert/update methods, instead of
+ * reflection.
+ * The bean class should be public, with a public no-arg constructor.
+ *
+ * @author Liu Dong
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Table {
+}
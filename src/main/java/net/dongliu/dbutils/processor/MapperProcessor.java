@@ -0,0 +1,516 @@
+package net.dongliu.dbutils.processor;
+
+import net.dongliu.dbutils.mapping.Column;
+import net.dongliu.dbutils.mapping.Table;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Annotation processor which generates {@link net.dongliu.dbutils.mapper.BeanMapper} for classes annotated with
+ * {@link Table}. The properties are collected by the same rules as BeanMapping: properties with both public getter
+ * and setter, and public non-static non-final fields.
+ * <p>
+ * The processor is not registered as service, so it does not run on every project depending on dbutils. Enable it
+ * explicitly, by javac options {@code -processorpath dbutils.jar -processor
+ * net.dongliu.dbutils.processor.MapperProcessor}, or with maven:
+ * <pre>{@code
+ * <plugin>
+ *     <artifactId>maven-compiler-plugin</artifactId>
+ *     <configuration>
+ *         <annotationProcessorPaths>
+ *             <path>
+ *                 <groupId>net.dongliu</groupId>
+ *                 <artifactId>dbutils</artifactId>
+ *                 <version>${dbutils.version}</version>
+ *             </path>
+ *         </annotationProcessorPaths>
+ *         <annotationProcessors>
+ *             <annotationProcessor>net.dongliu.dbutils.processor.MapperProcessor</annotationProcessor>
+ *         </annotationProcessors>
+ *     </configuration>
+ * </plugin>
+ * }</pre>
+ */
+public class MapperProcessor extends AbstractProcessor {
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(Table.class.getName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(Table.class))) {
+            if (!check(type)) {
+                continue;
+            }
+            try {
+                generate(type);
+            } catch (IOException e) {
+                error(type, "Generate mapper failed: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private boolean check(TypeElement type) {
+        Set<Modifier> modifiers = type.getModifiers();
+        if (type.getKind() != ElementKind.CLASS || modifiers.contains(Modifier.ABSTRACT)
+                || !modifiers.contains(Modifier.PUBLIC)) {
+            error(type, "@Table class should be public concrete class");
+            return false;
+        }
+        if (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC)) {
+            error(type, "@Table nested class should be static");
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        error(type, "@Table class should have public no-arg constructor");
+        return false;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * A bean property, accessed by getter/setter or field
+     */
+    private static class BeanProperty {
+        private final String column;
+        private final String name;
+        private final TypeMirror type;
+        // the expression reading property of bean
+        private final String getter;
+        // the statement setting property of bean, with %s for value
+        private final String setter;
+
+        private BeanProperty(String column, String name, TypeMirror type, String getter, String setter) {
+            this.column = column;
+            this.name = name;
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+
+    private List<BeanProperty> collectProperties(TypeElement type) {
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+        List<? extends Element> members = elements.getAllMembers(type);
+        Map<String, ExecutableElement> getters = new TreeMap<>();
+        Map<String, List<ExecutableElement>> setters = new HashMap<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(members)) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC)) {
+                continue;
+            }
+            String name = method.getSimpleName().toString();
+            TypeMirror returnType = method.getReturnType();
+            if (method.getParameters().isEmpty() && returnType.getKind() != TypeKind.VOID) {
+                if (name.startsWith("get") && name.length() > 3) {
+                    getters.putIfAbsent(decapitalize(name.substring(3)), method);
+                } else if (name.startsWith("is") && name.length() > 2 && returnType.getKind() == TypeKind.BOOLEAN) {
+                    // is getter takes precedence, as Introspector does
+                    getters.put(decapitalize(name.substring(2)), method);
+                }
+            } else if (method.getParameters().size() == 1 && returnType.getKind() == TypeKind.VOID
+                    && name.startsWith("set") && name.length() > 3) {
+                setters.computeIfAbsent(decapitalize(name.substring(3)), k -> new ArrayList<>()).add(method);
+            }
+        }
+
+        Map<String, BeanProperty> properties = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, ExecutableElement> entry : getters.entrySet()) {
+            String name = entry.getKey();
+            ExecutableElement getter = entry.getValue();
+            TypeMirror propertyType = getter.getReturnType();
+            ExecutableElement setter = null;
+            for (ExecutableElement method : setters.getOrDefault(name, Collections.emptyList())) {
+                if (types.isSameType(method.getParameters().get(0).asType(), propertyType)) {
+                    setter = method;
+                }
+            }
+            if (setter == null) {
+                continue;
+            }
+            Column column = backingFieldColumn(type, name, propertyType);
+            if (column == null) {
+                column = getter.getAnnotation(Column.class);
+            }
+            if (column == null) {
+                column = setter.getAnnotation(Column.class);
+            }
+            String columnName = column != null ? column.value() : name;
+            properties.put(columnName, new BeanProperty(columnName, name, propertyType,
+                    "bean." + getter.getSimpleName() + "()", "bean." + setter.getSimpleName() + "(%s);"));
+        }
+
+        for (VariableElement field : ElementFilter.fieldsIn(members)) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC)
+                    || modifiers.contains(Modifier.FINAL)) {
+                continue;
+            }
+            String name = field.getSimpleName().toString();
+            Column column = field.getAnnotation(Column.class);
+            String columnName = column != null ? column.value() : name;
+            if (properties.containsKey(columnName)) {
+                continue;
+            }
+            properties.put(columnName, new BeanProperty(columnName, name, field.asType(), "bean." + name,
+                    "bean." + name + " = %s;"));
+        }
+        return new ArrayList<>(properties.values());
+    }
+
+    private static Column backingFieldColumn(TypeElement type, String name, TypeMirror propertyType) {
+        String boolName = "is" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        boolean isBoolean = propertyType.getKind() == TypeKind.BOOLEAN
+                || propertyType.toString().equals("java.lang.Boolean");
+        VariableElement backing = null;
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            String fieldName = field.getSimpleName().toString();
+            if (fieldName.equals(name)) {
+                backing = field;
+                break;
+            }
+            if (isBoolean && fieldName.equals(boolName)) {
+                backing = field;
+            }
+        }
+        return backing == null ? null : backing.getAnnotation(Column.class);
+    }
+
+    /**
+     * The same as java.beans.Introspector.decapitalize
+     */
+    private static String decapitalize(String name) {
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(type).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                .replace('$', '_') + "_Mapper";
+        String beanType = types.erasure(type.asType()).toString();
+        List<BeanProperty> properties = collectProperties(type);
+
+        StringBuilder sb = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            sb.append("package ").append(packageName).append(";\n\n");
+        }
+        sb.append("/**\n * Generated by ").append(MapperProcessor.class.getName()).append(", do not edit.\n */\n");
+        sb.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        sb.append("public final class ").append(simpleName).append(" implements net.dongliu.dbutils.mapper.BeanMapper<")
+                .append(beanType).append("> {\n");
+        sb.append("    private static final String[] columns = {");
+        appendStrings(sb, properties, p -> p.column);
+        sb.append("};\n");
+        sb.append("    private static final String[] properties = {");
+        appendStrings(sb, properties, p -> p.name);
+        sb.append("};\n\n");
+        sb.append("    // the column index of each property, 0 if not in result; null if not bound\n");
+        sb.append("    private final int[] indexes;\n\n");
+        sb.append("    public ").append(simpleName).append("() {\n        this.indexes = null;\n    }\n\n");
+        sb.append("    private ").append(simpleName).append("(int[] indexes) {\n")
+                .append("        this.indexes = indexes;\n    }\n\n");
+
+        // resolve column names
+        sb.append("    private static int propertyIndex(String name) {\n");
+        sb.append("        switch (name.toLowerCase(java.util.Locale.ROOT)) {\n");
+        for (int i = 0; i < properties.size(); i++) {
+            sb.append("            case ").append(literal(properties.get(i).column.toLowerCase(Locale.ROOT)))
+                    .append(":\n                return ").append(i).append(";\n");
+        }
+        sb.append("            default:\n                return -1;\n        }\n    }\n\n");
+
+        sb.append("    @Override\n");
+        sb.append("    public net.dongliu.dbutils.mapper.RowMapper<").append(beanType)
+                .append("> bindColumns(String[] names, boolean requireAllColumns) {\n");
+        sb.append("        int[] indexes = new int[").append(properties.size()).append("];\n");
+        sb.append("        for (int i = 0; i < names.length; i++) {\n");
+        sb.append("            int p = propertyIndex(names[i]);\n");
+        sb.append("            if (p < 0) {\n")
+                .append("                p = propertyIndex(names[i].replace(\"_\", \"\"));\n            }\n");
+        sb.append("            if (p >= 0) {\n                indexes[p] = i + 1;\n");
+        sb.append("            } else if (requireAllColumns) {\n");
+        sb.append("                throw new net.dongliu.dbutils.exception.MissingPropertyException(")
+                .append(literal(binaryName)).append(", names[i]);\n            }\n        }\n");
+        sb.append("        return new ").append(simpleName).append("(indexes);\n    }\n\n");
+
+        sb.append("    @Override\n");
+        sb.append("    public net.dongliu.dbutils.mapper.RowMapper<").append(beanType)
+                .append("> bind(net.dongliu.dbutils.mapper.ColumnNamesProvider provider, java.sql.ResultSet rs)\n")
+                .append("            throws java.sql.SQLException {\n");
+        sb.append("        return bindColumns(provider.get(), false);\n    }\n\n");
+
+        sb.append("    @Override\n");
+        sb.append("    public ").append(beanType)
+                .append(" map(net.dongliu.dbutils.mapper.ColumnNamesProvider provider, java.sql.ResultSet rs)\n")
+                .append("            throws java.sql.SQLException {\n");
+        sb.append("        if (indexes == null) {\n")
+                .append("            return bindColumns(provider.get(), false).map(provider, rs);\n");
+        sb.append("        }\n");
+        sb.append("        ").append(beanType).append(" bean = new ").append(beanType).append("();\n");
+        sb.append("        int i;\n");
+        for (int i = 0; i < properties.size(); i++) {
+            BeanProperty property = properties.get(i);
+            sb.append("        if ((i = indexes[").append(i).append("]) > 0) {\n");
+            appendRead(sb, property, types);
+            sb.append("        }\n");
+        }
+        sb.append("        return bean;\n    }\n\n");
+
+        sb.append("    @Override\n    public String[] columns() {\n        return columns.clone();\n    }\n\n");
+        sb.append("    @Override\n    public String[] properties() {\n        return properties.clone();\n    }\n\n");
+
+        sb.append("    @Override\n    public Object value(").append(beanType).append(" bean, int column) {\n");
+        sb.append("        switch (column) {\n");
+        for (int i = 0; i < properties.size(); i++) {
+            sb.append("            case ").append(i).append(":\n                return ")
+                    .append(properties.get(i).getter).append(";\n");
+        }
+        sb.append("            default:\n")
+                .append("                throw new IndexOutOfBoundsException(String.valueOf(column));\n");
+        sb.append("        }\n    }\n\n");
+
+        sb.append("    @Override\n    public void setParam(java.sql.PreparedStatement stmt, int p, ").append(beanType)
+                .append(" bean, int column)\n            throws java.sql.SQLException {\n");
+        sb.append("        switch (column) {\n");
+        boolean dynamic = false;
+        for (int i = 0; i < properties.size(); i++) {
+            sb.append("            case ").append(i).append(": {\n");
+            dynamic |= appendWrite(sb, properties.get(i), types);
+            sb.append("                return;\n            }\n");
+        }
+        sb.append("            default:\n")
+                .append("                throw new IndexOutOfBoundsException(String.valueOf(column));\n");
+        sb.append("        }\n    }\n");
+        if (dynamic) {
+            sb.append("\n");
+            appendParamMethod(sb);
+        }
+        sb.append("}\n");
+
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(sb.toString());
+        }
+    }
+
+    private static void appendStrings(StringBuilder sb, List<BeanProperty> properties,
+                                      java.util.function.Function<BeanProperty, String> f) {
+        for (int i = 0; i < properties.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(literal(f.apply(properties.get(i))));
+        }
+    }
+
+    private static String literal(String str) {
+        return "\"" + str.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static final Map<String, String> primitiveGetters = new HashMap<>();
+    private static final Map<String, String> wrapperGetters = new HashMap<>();
+    private static final Map<String, String> jdbcGetters = new HashMap<>();
+
+    static {
+        String[][] primitives = {{"int", "Int", "Integer"}, {"long", "Long", "Long"}, {"boolean", "Boolean", "Boolean"},
+                {"double", "Double", "Double"}, {"float", "Float", "Float"}, {"short", "Short", "Short"},
+                {"byte", "Byte", "Byte"}};
+        for (String[] primitive : primitives) {
+            primitiveGetters.put(primitive[0], primitive[1]);
+            wrapperGetters.put("java.lang." + primitive[2], primitive[1]);
+        }
+        jdbcGetters.put("java.lang.String", "String");
+        jdbcGetters.put("java.math.BigDecimal", "BigDecimal");
+        jdbcGetters.put("byte[]", "Bytes");
+        jdbcGetters.put("java.sql.Timestamp", "Timestamp");
+        jdbcGetters.put("java.sql.Date", "Date");
+        jdbcGetters.put("java.sql.Time", "Time");
+        jdbcGetters.put("java.sql.Blob", "Blob");
+        jdbcGetters.put("java.sql.Clob", "Clob");
+        jdbcGetters.put("java.sql.Array", "Array");
+        jdbcGetters.put("java.sql.Ref", "Ref");
+        jdbcGetters.put("java.net.URL", "URL");
+        jdbcGetters.put("java.sql.RowId", "RowId");
+        jdbcGetters.put("java.sql.SQLXML", "SQLXML");
+    }
+
+    /**
+     * Append code reading column i into property, with the same conversions as BeanRowMapper
+     */
+    private void appendRead(StringBuilder sb, BeanProperty property, Types types) {
+        String indent = "            ";
+        String typeName = types.erasure(property.type).toString();
+        String set = property.setter;
+        if (primitiveGetters.containsKey(typeName)) {
+            sb.append(indent).append(String.format(set, "rs.get" + primitiveGetters.get(typeName) + "(i)"))
+                    .append("\n");
+        } else if (typeName.equals("char") || typeName.equals("java.lang.Character")) {
+            sb.append(indent).append("String v = rs.getString(i);\n");
+            String empty = typeName.equals("char") ? "'\\0'" : "null";
+            sb.append(indent).append(String.format(set, "v == null || v.isEmpty() ? " + empty + " : v.charAt(0)"))
+                    .append("\n");
+        } else if (wrapperGetters.containsKey(typeName)) {
+            String getter = wrapperGetters.get(typeName);
+            sb.append(indent).append(getter.toLowerCase(Locale.ROOT)).append(" v = rs.get").append(getter)
+                    .append("(i);\n");
+            sb.append(indent).append(String.format(set, "rs.wasNull() ? null : " + typeName + ".valueOf(v)"))
+                    .append("\n");
+        } else if (jdbcGetters.containsKey(typeName)) {
+            sb.append(indent).append(String.format(set, "rs.get" + jdbcGetters.get(typeName) + "(i)")).append("\n");
+        } else if (typeName.startsWith("java.time.")) {
+            String read;
+            switch (typeName) {
+                case "java.time.LocalDate":
+                    read = "java.sql.Date v = rs.getDate(i);";
+                    set = String.format(set, "v == null ? null : v.toLocalDate()");
+                    break;
+                case "java.time.LocalTime":
+                    read = "java.sql.Time v = rs.getTime(i);";
+                    set = String.format(set, "v == null ? null : v.toLocalTime()");
+                    break;
+                case "java.time.LocalDateTime":
+                    read = "java.sql.Timestamp v = rs.getTimestamp(i);";
+                    set = String.format(set, "v == null ? null : v.toLocalDateTime()");
+                    break;
+                case "java.time.OffsetDateTime":
+                case "java.time.OffsetTime":
+                    read = "java.sql.Timestamp v = rs.getTimestamp(i);";
+                    set = String.format(set, "v == null ? null : " + typeName + ".ofInstant("
+                            + "java.time.Instant.ofEpochMilli(v.getTime()), java.time.ZoneId.systemDefault())");
+                    break;
+                default:
+                    read = null;
+                    set = String.format(set, "rs.getObject(i, " + typeName + ".class)");
+            }
+            if (read != null) {
+                sb.append(indent).append(read).append("\n");
+            }
+            sb.append(indent).append(set).append("\n");
+        } else if (isEnum(property.type, types)) {
+            sb.append(indent).append("String v = rs.getString(i);\n");
+            sb.append(indent).append(String.format(set, "v == null ? null : " + typeName + ".valueOf(v)"))
+                    .append("\n");
+        } else {
+            sb.append(indent).append(String.format(set, "rs.getObject(i, " + typeName + ".class)")).append("\n");
+        }
+    }
+
+    // java8 time types converted to java.sql types when set as params, as SQLExecutor.setParam does
+    private static final Map<String, String> timeParams = new LinkedHashMap<>();
+
+    static {
+        timeParams.put("java.time.LocalDate", "java.sql.Date.valueOf(%s)");
+        timeParams.put("java.time.LocalDateTime", "java.sql.Timestamp.valueOf(%s)");
+        timeParams.put("java.time.LocalTime", "java.sql.Time.valueOf(%s)");
+        timeParams.put("java.time.OffsetDateTime", "java.sql.Timestamp.from(java.time.Instant.from(%s))");
+        timeParams.put("java.time.OffsetTime", "java.sql.Timestamp.from(java.time.Instant.from(%s))");
+        timeParams.put("java.time.Instant", "java.sql.Timestamp.from(%s)");
+    }
+
+    /**
+     * Append code setting property as statement param p, with the same conversions as SQLExecutor.setParam.
+     *
+     * @return if the generated param method is used, for property type which may hold enum or time values
+     */
+    private boolean appendWrite(StringBuilder sb, BeanProperty property, Types types) {
+        String indent = "                ";
+        String typeName = types.erasure(property.type).toString();
+        if (primitiveGetters.containsKey(typeName)) {
+            sb.append(indent).append("stmt.set").append(primitiveGetters.get(typeName)).append("(p, ")
+                    .append(property.getter).append(");\n");
+            return false;
+        }
+        if (typeName.equals("char")) {
+            sb.append(indent).append("stmt.setString(p, String.valueOf(").append(property.getter).append("));\n");
+            return false;
+        }
+        sb.append(indent).append(typeName).append(" v = ").append(property.getter).append(";\n");
+        sb.append(indent).append("if (v == null) {\n");
+        sb.append(indent).append("    stmt.setNull(p, java.sql.Types.VARCHAR);\n");
+        sb.append(indent).append("    return;\n");
+        sb.append(indent).append("}\n");
+        String set;
+        boolean dynamic = false;
+        if (isEnum(property.type, types)) {
+            set = "stmt.setObject(p, v.name());";
+        } else if (timeParams.containsKey(typeName)) {
+            set = "stmt.setObject(p, " + String.format(timeParams.get(typeName), "v") + ");";
+        } else if (mayHoldConverted(property.type, types)) {
+            // such as Object, Temporal, the conversion depends on the runtime type
+            set = "stmt.setObject(p, param(v));";
+            dynamic = true;
+        } else {
+            set = "stmt.setObject(p, v);";
+        }
+        sb.append(indent).append(set).append("\n");
+        return dynamic;
+    }
+
+    /**
+     * If values of the type may be enum, or java8 time types which need conversion
+     */
+    private boolean mayHoldConverted(TypeMirror type, Types types) {
+        Elements elements = processingEnv.getElementUtils();
+        TypeMirror erasure = types.erasure(type);
+        List<String> converted = new ArrayList<>(timeParams.keySet());
+        converted.add("java.lang.Enum");
+        for (String name : converted) {
+            TypeElement element = elements.getTypeElement(name);
+            if (element != null && types.isAssignable(types.erasure(element.asType()), erasure)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Append method converting param by its runtime type, the same as SQLExecutor.setParam
+     */
+    private static void appendParamMethod(StringBuilder sb) {
+        sb.append("    private static Object param(Object v) {\n");
+        sb.append("        if (v instanceof Enum) {\n            return ((Enum) v).name();\n        }\n");
+        for (Map.Entry<String, String> entry : timeParams.entrySet()) {
+            sb.append("        if (v instanceof ").append(entry.getKey()).append(") {\n            return ")
+                    .append(String.format(entry.getValue(), "(" + entry.getKey() + ") v")).append(";\n        }\n");
+        }
+        sb.append("        return v;\n    }\n");
+    }
+
+    private static boolean isEnum(TypeMirror type, Types types) {
+        Element element = types.asElement(type);
+        return element != null && element.getKind() == ElementKind.ENUM;
+    }
+}
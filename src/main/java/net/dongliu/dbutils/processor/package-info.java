@@ -0,0 +1,8 @@
+/**
+ * Annotation processor generating bean mappers at compile time, for classes annotated with
+ * {@link net.dongliu.dbutils.mapping.Table}. The processor should be enabled explicitly, see {@link
+ * net.dongliu.dbutils.processor.MapperProcessor}.
+ *
+ * @author Liu Dong
+ */
+package net.dongliu.dbutils.processor;
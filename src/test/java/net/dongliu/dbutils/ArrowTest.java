@@ -0,0 +1,214 @@
+package net.dongliu.dbutils;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.ipc.ArrowReader;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.ipc.SeekableReadChannel;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.util.ByteArrayReadableSeekableByteChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.sql.DriverManager;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ArrowTest {
+    private Database database;
+
+    @Before
+    public void setUp() {
+        database = Database.of("jdbc:derby:memory:arrowDB;create=true", null, null);
+        database.update("create table item(id bigint not null, qty int, small smallint, ok boolean, price double, " +
+                "rate real, amount decimal(10,2), day date, created timestamp, name varchar(20), " +
+                "data varchar(10) for bit data)");
+        for (int i = 1; i <= 5; i++) {
+            database.update("insert into item values(?,?,?,?,?,?,?,?,?,?,?)", (long) i, i * 10, (short) i, i % 2 == 0,
+                    i + 0.5, i + 0.25f, new BigDecimal(i + ".05"), java.sql.Date.valueOf(LocalDate.of(2020, 1, i)),
+                    java.sql.Timestamp.valueOf(LocalDateTime.of(2020, 1, i, 1, 2, 3, 4000)), "名" + i,
+                    new byte[]{(byte) i, -1});
+        }
+        database.update("insert into item(id) values(6)");
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:arrowDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        long rows = ArrowExporter.of(database.query("select * from item order by id"))
+                .export(Channels.newChannel(bos), ArrowFormat.stream().withBatchSize(4));
+        assertEquals(6, rows);
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowReader reader = new ArrowStreamReader(new ByteArrayInputStream(bos.toByteArray()), allocator)) {
+            assertEquals(Arrays.asList(4, 2), readAll(reader));
+        }
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        long rows = ArrowExporter.of(database.query("select * from item order by id"))
+                .export(Channels.newChannel(bos), ArrowFormat.file().withBatchSize(3));
+        assertEquals(6, rows);
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowFileReader reader = new ArrowFileReader(
+                     new SeekableReadChannel(new ByteArrayReadableSeekableByteChannel(bos.toByteArray())),
+                     allocator)) {
+            assertEquals(2, reader.getRecordBlocks().size());
+            assertEquals(Arrays.asList(3, 3), readAll(reader));
+        }
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        long rows = ArrowExporter.of(database.query("select id, name from item where id < 0"))
+                .export(Channels.newChannel(bos), ArrowFormat.stream());
+        assertEquals(0, rows);
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowReader reader = new ArrowStreamReader(new ByteArrayInputStream(bos.toByteArray()), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertEquals(2, root.getSchema().getFields().size());
+            assertEquals(new ArrowType.Int(64, true), root.getSchema().getFields().get(0).getType());
+            assertFalse(reader.loadNextBatch());
+        }
+    }
+
+    @Test
+    public void testForEachBatch() {
+        List<Long> ids = new ArrayList<>();
+        try (BufferAllocator allocator = new RootAllocator()) {
+            QueryContext query = database.query("select id from item order by id");
+            long rows = ArrowExporter.of(query).forEachBatch(allocator, 4, root -> {
+                for (int i = 0; i < root.getRowCount(); i++) {
+                    ids.add((Long) root.getVector(0).getObject(i));
+                }
+            });
+            assertEquals(6, rows);
+            // all vector buffers released
+            assertEquals(0, allocator.getAllocatedMemory());
+        }
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L), ids);
+    }
+
+    @Test
+    public void testWithoutArrow() throws Exception {
+        ClassLoader loader = new WithoutArrowClassLoader(getClass().getClassLoader());
+        // core classes load and reflect without arrow in classpath
+        for (String name : Arrays.asList("QueryContext", "TypedQueryContext", "Database", "SQLExecutor",
+                "AbstractQueryContext", "Record")) {
+            Class<?> cls = loader.loadClass("net.dongliu.dbutils." + name);
+            assertEquals(loader, cls.getClassLoader());
+            cls.getMethods();
+            cls.getDeclaredMethods();
+        }
+        try {
+            loader.loadClass("net.dongliu.dbutils.ArrowExporter").getDeclaredMethods();
+            fail();
+        } catch (NoClassDefFoundError e) {
+        }
+    }
+
+    /**
+     * Load classes of this library by itself, and hide arrow classes
+     */
+    private static class WithoutArrowClassLoader extends ClassLoader {
+        WithoutArrowClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.startsWith("org.apache.arrow.")) {
+                throw new ClassNotFoundException(name);
+            }
+            if (!name.startsWith("net.dongliu.dbutils.")) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> cls = findLoadedClass(name);
+                if (cls == null) {
+                    byte[] bytes = readClass(name);
+                    cls = defineClass(name, bytes, 0, bytes.length);
+                }
+                return cls;
+            }
+        }
+
+        private byte[] readClass(String name) throws ClassNotFoundException {
+            try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                if (in == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    bos.write(buffer, 0, read);
+                }
+                return bos.toByteArray();
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+    }
+
+    /**
+     * Read all batches, check values, return row count of each batch
+     */
+    private static List<Integer> readAll(ArrowReader reader) throws IOException {
+        List<Integer> batches = new ArrayList<>();
+        long id = 1;
+        while (reader.loadNextBatch()) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            batches.add(root.getRowCount());
+            for (int row = 0; row < root.getRowCount(); row++, id++) {
+                assertEquals(id, root.getVector("ID").getObject(row));
+                if (id == 6) {
+                    for (int column = 1; column < root.getFieldVectors().size(); column++) {
+                        assertTrue(root.getVector(column).isNull(row));
+                    }
+                    continue;
+                }
+                int i = (int) id;
+                assertEquals(i * 10, root.getVector("QTY").getObject(row));
+                assertEquals((short) i, root.getVector("SMALL").getObject(row));
+                assertEquals(i % 2 == 0, root.getVector("OK").getObject(row));
+                assertEquals(i + 0.5, root.getVector("PRICE").getObject(row));
+                assertEquals(i + 0.25f, root.getVector("RATE").getObject(row));
+                assertEquals(new BigDecimal(i + ".05"), root.getVector("AMOUNT").getObject(row));
+                assertEquals((int) LocalDate.of(2020, 1, i).toEpochDay(), root.getVector("DAY").getObject(row));
+                assertEquals(LocalDateTime.of(2020, 1, i, 1, 2, 3, 4000), root.getVector("CREATED").getObject(row));
+                assertEquals("名" + i, root.getVector("NAME").getObject(row).toString());
+                assertArrayEquals(new byte[]{(byte) i, -1}, (byte[]) root.getVector("DATA").getObject(row));
+            }
+        }
+        return batches;
+    }
+}
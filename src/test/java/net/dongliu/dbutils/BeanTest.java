@@ -0,0 +1,145 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.exception.UncheckedSQLException;
+import net.dongliu.dbutils.mock.Student;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class BeanTest {
+    private Database database;
+
+    @Before
+    public void setUp() {
+        database = Database.of("jdbc:derby:memory:beanDB;create=true", null, null);
+        // columns named as bean properties or Column annotations
+        database.update("create table student(id bigint primary key, name varchar(2000), age int, " +
+                "isMale boolean, birthDay date)");
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:beanDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testInsertAndUpdateBean() {
+        Student jack = new Student(1, "Jack", 10, true, LocalDate.of(1999, 1, 2));
+        assertEquals(1, database.insertBean("student", jack));
+        Student rose = new Student(2, null, 12, false, null);
+        assertEquals(1, database.insertBean("student", rose));
+        assertEquals(Arrays.asList(jack, rose), database.query("select * from student order by id")
+                .map(Student.class).getList());
+
+        jack.setAge(11);
+        jack.setName(null);
+        assertEquals(1, database.updateBean("student", jack, "id"));
+        // key by column name, case insensitive
+        rose.setBirth(LocalDate.of(2000, 3, 4));
+        assertEquals(1, database.updateBean("student", rose, "ID"));
+        assertEquals(0, database.updateBean("student", new Student(3, "Tom", 1, true, null), "id"));
+        assertEquals(Arrays.asList(jack, rose), database.query("select * from student order by id")
+                .map(Student.class).getList());
+
+        try {
+            database.updateBean("student", jack, "no_such_property");
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            database.updateBean("student", jack);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testSnakeCaseColumns() {
+        database.update("create table student2(id bigint primary key, name varchar(20), age int, " +
+                "is_male boolean, birth_day date)");
+        Student jack = new Student(1, "Jack", 10, true, LocalDate.of(1999, 1, 2));
+        // property names are not converted to snake case when writing
+        try {
+            database.insertBean("student2", jack);
+            fail();
+        } catch (UncheckedSQLException e) {
+        }
+        database.update("insert into student2 values(?,?,?,?,?)", 1L, "Jack", 10, true,
+                java.sql.Date.valueOf("1999-01-02"));
+        // while reading matches is_male to isMale
+        assertEquals(jack, database.query("select * from student2").map(Student.class).getOne());
+    }
+
+    @Test
+    public void testBatchInsertBeans() {
+        List<Student> students = students(1200, 5);
+        int[] counts = database.batchInsertBeans("student", students);
+        assertEquals(1200, counts.length);
+        for (int count : counts) {
+            assertEquals(1, count);
+        }
+        assertEquals(students, database.query("select * from student order by id").map(Student.class).getList());
+        assertEquals(0, database.batchInsertBeans("student", Collections.emptyList()).length);
+
+        List<Student> mixed = new ArrayList<>();
+        mixed.add(new Student(2000, "Jack", 10, true, null));
+        mixed.add(new Monitor());
+        try {
+            database.batchInsertBeans("student", mixed);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            database.batchInsertBeans("student", Arrays.asList(new Student(), null));
+            fail();
+        } catch (NullPointerException e) {
+        }
+    }
+
+    @Test
+    public void testChunkRowBytes() {
+        AdaptiveTuner tuner = new AdaptiveTuner().targetBytes(1000).batchSize(16, 1000, 100);
+        database.tuner(tuner);
+        // the first row is small, the others are large
+        List<Student> students = students(100, 500);
+        students.get(0).setName("");
+        database.batchInsertBeans("student", students);
+        String insert = BeanBinder.of(Student.class).insertClause("student");
+        // capped by average row bytes of the chunk, not by the first row
+        assertEquals(16, tuner.stats(insert).batchSize());
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Student student : students) {
+            rows.add(new Object[]{student.getName(), student.getId()});
+        }
+        String update = "update student set name = ? where id = ?";
+        database.withTransaction(tx -> tx.batchUpdate(update, rows));
+        assertEquals(16, tuner.stats(update).batchSize());
+    }
+
+    private static List<Student> students(int count, int nameLength) {
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String name = String.join("", Collections.nCopies(nameLength, "" + (char) ('a' + i % 26)));
+            students.add(new Student(i, name, i % 100, i % 2 == 0, i % 3 == 0 ? null : LocalDate.of(2000, 1, 1)
+                    .plusDays(i)));
+        }
+        return students;
+    }
+
+    public static class Monitor extends Student {
+    }
+}
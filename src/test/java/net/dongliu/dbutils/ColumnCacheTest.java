@@ -0,0 +1,144 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.mock.Student;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ColumnCacheTest {
+    private static final String url = "jdbc:derby:memory:columnCacheDB";
+    private static final List<Class<?>> wrapped = Arrays.asList(DataSource.class, Connection.class, Statement.class,
+            ResultSet.class, ResultSetMetaData.class);
+
+    // calls of ResultSetMetaData.getColumnCount
+    private final AtomicInteger columnCounts = new AtomicInteger();
+    private Database database;
+
+    @Before
+    public void setUp() {
+        DataSource dataSource = SimpleDataSource.create(url + ";create=true", null, null);
+        database = Database.of(counting(dataSource, DataSource.class));
+        database.update("create table student(id bigint primary key, name varchar(20), age int, " +
+                "is_male boolean, birth_day date)");
+        database.update("insert into student values(?,?,?,?,?)", 1L, "Jack", 10, true,
+                java.sql.Date.valueOf("1999-01-02"));
+        database.update("insert into student values(?,?,?,?,?)", 2L, "Rose", 11, false, null);
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection(url + ";drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testMetaDataReadOnce() {
+        for (boolean enabled : new boolean[]{true, false}) {
+            database.columnCache(enabled);
+            for (int i = 0; i < 3; i++) {
+                assertEquals(2, (int) countColumnCounts(() -> database.query("select * from student")
+                        .map(Student.class).getList().size()));
+                assertEquals("Jack", countColumnCounts(() -> database.query("select * from student where id = ?", 1L)
+                        .map(Student.class).getOne().getName()));
+                assertEquals(2, (int) countColumnCounts(() -> database.query("select * from student").getList()
+                        .size()));
+                assertEquals(2L, (long) countColumnCounts(() -> {
+                    try (Stream<Student> stream = database.query("select * from student").map(Student.class)
+                            .asStream()) {
+                        return stream.count();
+                    }
+                }));
+            }
+        }
+    }
+
+    @Test
+    public void testColumnsChanged() {
+        database.columnCache(true);
+        database.update("create table person(id bigint primary key, name varchar(20))");
+        database.update("insert into person values(1, 'Jack')");
+        String clause = "select * from person";
+        assertArrayEquals(new String[]{"ID", "NAME"}, database.query(clause).getOne().getNames());
+        Student student = database.query(clause).map(Student.class).getOne();
+        assertEquals("Jack", student.getName());
+        assertNull(student.getBirth());
+
+        // the cached names and bound mappers are replaced when column count changed
+        database.update("alter table person add column birth_day date");
+        database.update("update person set birth_day = ?", java.sql.Date.valueOf("1999-01-02"));
+        assertArrayEquals(new String[]{"ID", "NAME", "BIRTH_DAY"}, database.query(clause).getOne().getNames());
+        student = database.query(clause).map(Student.class).getOne();
+        assertEquals(LocalDate.of(1999, 1, 2), student.getBirth());
+
+        // the same sql with different mappers
+        assertEquals("Jack", database.query("select name from person where id = 1").getString());
+        assertEquals("Jack", database.query("select name from person where id = 1").getOne().getString("NAME"));
+        assertEquals("Jack", database.query("select name from person where id = 1").map(Student.class).getOne()
+                .getName());
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        database.update("create table person(id bigint primary key, name varchar(20))");
+        database.update("insert into person values(1, 'Jack')");
+        String clause = "select * from person";
+        assertArrayEquals(new String[]{"ID", "NAME"}, database.query(clause).getOne().getNames());
+        // column renamed, the count not changed
+        database.update("rename column person.name to full_name");
+        assertArrayEquals(new String[]{"ID", "FULL_NAME"}, database.query(clause).getOne().getNames());
+    }
+
+    /**
+     * Run and check ResultSetMetaData.getColumnCount called at most once
+     */
+    private <T> T countColumnCounts(Supplier<T> supplier) {
+        columnCounts.set(0);
+        T value = supplier.get();
+        int count = columnCounts.get();
+        if (count > 1) {
+            throw new AssertionError("column count read " + count + " times");
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T counting(T target, Class<T> type) {
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals("getColumnCount")) {
+                columnCounts.incrementAndGet();
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            Class<?> returnType = method.getReturnType();
+            if (result != null && wrapped.stream().anyMatch(c -> c.isAssignableFrom(returnType))) {
+                return counting(result, (Class<Object>) returnType);
+            }
+            return result;
+        });
+    }
+}
@@ -0,0 +1,172 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.exception.TooManyResultException;
+import net.dongliu.dbutils.exception.UncheckedSQLException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class ColumnStreamsTest {
+    // larger than one pooled buffer
+    private static final byte[] data = new byte[BufferPool.bufferSize * 3 + 7];
+    private static final String text;
+
+    static {
+        new Random(1).nextBytes(data);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < BufferPool.bufferSize; i++) {
+            sb.append((char) ('a' + i % 26));
+            if (i % 1000 == 0) {
+                sb.append('中');
+            }
+        }
+        text = sb.toString();
+    }
+
+    private Database database;
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("dbutils-streams");
+        database = Database.of("jdbc:derby:memory:columnStreamsDB;create=true", null, null);
+        database.update("create table doc(id bigint primary key, content blob, body clob)");
+        database.update("insert into doc values(?,?,?)", 1L, data, text);
+        database.update("insert into doc(id) values(2)");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(f -> f.toFile().delete());
+        }
+        Files.delete(dir);
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:columnStreamsDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testBlob() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        long size = database.query("select content from doc where id = 1")
+                .transferTo("content", Channels.newChannel(bos));
+        assertEquals(data.length, size);
+        assertArrayEquals(data, bos.toByteArray());
+
+        Path file = dir.resolve("content.bin");
+        Files.write(file, "old content, longer than nothing".getBytes(StandardCharsets.UTF_8));
+        assertEquals(data.length, database.query("select content from doc where id = 1").transferTo("content", file));
+        assertArrayEquals(data, Files.readAllBytes(file));
+        // no temp file left
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testClob() {
+        StringWriter writer = new StringWriter();
+        long size = database.query("select body from doc where id = ?", 1L).transferTo("BODY", writer);
+        assertEquals(text.length(), size);
+        assertEquals(text, writer.toString());
+
+        // with ResultSetHandler
+        String body = database.query("select id, body from doc where id = 1").handle(rs -> {
+            rs.next();
+            StringWriter w = new StringWriter();
+            try {
+                ColumnStreams.transfer(rs, 2, w);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return w.toString();
+        });
+        assertEquals(text, body);
+    }
+
+    @Test
+    public void testNull() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        assertEquals(-1, database.query("select content from doc where id = 2")
+                .transferTo("content", Channels.newChannel(bos)));
+        assertEquals(0, bos.size());
+        StringWriter writer = new StringWriter();
+        assertEquals(-1, database.query("select body from doc where id = 2").transferTo("body", writer));
+        assertEquals(-1, database.query("select body from doc where id = 3").transferTo("body", writer));
+        assertEquals("", writer.toString());
+
+        // file not touched when value is null or no row returned
+        Path file = dir.resolve("content.bin");
+        assertEquals(-1, database.query("select content from doc where id = 2").transferTo("content", file));
+        assertFalse(Files.exists(file));
+        Files.write(file, new byte[]{1, 2, 3});
+        assertEquals(-1, database.query("select content from doc where id = 3").transferTo("content", file));
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(file));
+    }
+
+    @Test
+    public void testFailedKeepsFile() throws IOException {
+        Path file = dir.resolve("content.bin");
+        Files.write(file, new byte[]{1, 2, 3});
+        try {
+            database.query("select content from no_table").transferTo("content", file);
+            fail();
+        } catch (UncheckedSQLException e) {
+        }
+        try {
+            database.query("select content from doc").transferTo("content", file);
+            fail();
+        } catch (TooManyResultException e) {
+        }
+        try {
+            database.query("select content from doc where id = 1").transferTo("no_column", file);
+            fail();
+        } catch (UncheckedSQLException e) {
+        }
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(file));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testBufferPool() {
+        // buffers not fit in pool are dropped
+        List<byte[]> bytes = new ArrayList<>();
+        List<char[]> chars = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            bytes.add(BufferPool.acquireByteBuffer());
+            chars.add(BufferPool.acquireCharBuffer());
+        }
+        bytes.forEach(BufferPool::release);
+        chars.forEach(BufferPool::release);
+        for (int i = 0; i < 20; i++) {
+            byte[] buffer = BufferPool.acquireByteBuffer();
+            assertEquals(BufferPool.bufferSize, buffer.length);
+            assertEquals(i < 16, bytes.stream().anyMatch(b -> b == buffer));
+            char[] charBuffer = BufferPool.acquireCharBuffer();
+            assertEquals(BufferPool.bufferSize / 2, charBuffer.length);
+            assertEquals(i < 16, chars.stream().anyMatch(c -> c == charBuffer));
+        }
+    }
+}
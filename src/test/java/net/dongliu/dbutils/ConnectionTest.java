@@ -0,0 +1,145 @@
+package net.dongliu.dbutils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class ConnectionTest {
+    private final AtomicInteger opened = new AtomicInteger();
+    private Database database;
+
+    @Before
+    public void setUp() {
+        DataSource dataSource = SimpleDataSource.create("jdbc:derby:memory:connDB;create=true", null, null);
+        database = Database.of(new CountingDataSource(dataSource));
+        database.update("create table item(id int not null, name varchar(20))");
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:connDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testPinConnection() {
+        opened.set(0);
+        long count = database.withConnection(db -> {
+            db.update("insert into item values(?,?)", 1, "a");
+            db.update("insert into item values(?,?)", 2, "b");
+            // nested call reuses the pinned connection
+            return db.withConnection(d -> d.query("select count(*) from item").getLong());
+        });
+        assertEquals(2, count);
+        assertEquals(1, opened.get());
+    }
+
+    @Test
+    public void testDetectDialectInPinnedConnection() {
+        Database fresh = Database.of(new CountingDataSource(
+                SimpleDataSource.create("jdbc:derby:memory:connDB;create=true", null, null)));
+        assertNull(fresh.settings().dialect);
+        fresh.withConnection(db -> db.query("select * from item").getList());
+        assertEquals(Dialect.DERBY, fresh.settings().dialect);
+    }
+
+    @Test
+    public void testTransactionInPinnedConnection() {
+        opened.set(0);
+        database.withConnection(db -> {
+            db.withTransaction(tx -> tx.update("insert into item values(?,?)", 1, "a"));
+            try {
+                db.withTransaction(tx -> {
+                    tx.update("insert into item values(?,?)", 2, "b");
+                    throw new IllegalArgumentException();
+                });
+                fail();
+            } catch (IllegalArgumentException e) {
+            }
+            // nested transaction on the pinned connection is rejected, and outer one rolled back
+            try {
+                db.withTransaction(tx -> {
+                    tx.update("insert into item values(?,?)", 3, "c");
+                    return db.withTransaction(tx2 -> tx2.update("insert into item values(?,?)", 4, "d"));
+                });
+                fail();
+            } catch (IllegalStateException e) {
+            }
+            // auto commit restored after transactions
+            db.update("insert into item values(?,?)", 5, "e");
+            return null;
+        });
+        assertEquals(1, opened.get());
+        assertArrayEquals(new int[]{1, 5}, database.query("select id from item order by id").getInts());
+    }
+
+    private class CountingDataSource implements DataSource {
+        private final DataSource dataSource;
+
+        private CountingDataSource(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            opened.incrementAndGet();
+            return dataSource.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            opened.incrementAndGet();
+            return dataSource.getConnection(username, password);
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            return dataSource.unwrap(iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException {
+            return dataSource.isWrapperFor(iface);
+        }
+
+        @Override
+        public PrintWriter getLogWriter() throws SQLException {
+            return dataSource.getLogWriter();
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) throws SQLException {
+            dataSource.setLogWriter(out);
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) throws SQLException {
+            dataSource.setLoginTimeout(seconds);
+        }
+
+        @Override
+        public int getLoginTimeout() throws SQLException {
+            return dataSource.getLoginTimeout();
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package net.dongliu.dbutils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CsvTest {
+    private Database database;
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        database = Database.of("jdbc:derby:memory:csvDB;create=true", null, null);
+        database.update("create table person(id int not null, name varchar(50), score double)");
+        database.update("insert into person values(?,?,?)", 1, "", 1.5);
+        database.update("insert into person values(?,?,?)", 2, null, null);
+        database.update("insert into person values(?,?,?)", 3, "a,b", 3.0);
+        database.update("insert into person values(?,?,?)", 4, "x\"y\nz", 4.0);
+        database.update("insert into person values(?,?,?)", 5, "t\tb\\", 5.0);
+        dir = Files.createTempDirectory("dbutils-csv");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:csvDB;drop=true");
+        } catch (Exception e) {
+        }
+        Files.list(dir).forEach(p -> p.toFile().delete());
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testExportCsv() throws IOException {
+        Path file = dir.resolve("person.csv");
+        long rows = database.query("select * from person order by id").exportTo(file, CsvFormat.csv());
+        assertEquals(5, rows);
+        assertEquals("ID,NAME,SCORE\n1,\"\",1.5\n2,,\n3,\"a,b\",3.0\n4,\"x\"\"y\nz\",4.0\n5,t\tb\\,5.0\n",
+                read(file));
+    }
+
+    @Test
+    public void testExportTsv() throws IOException {
+        Path file = dir.resolve("person.tsv");
+        database.query("select * from person order by id").exportTo(file, CsvFormat.tsv().withHeader(false));
+        assertEquals("1\t\t1.5\n2\t\\N\t\\N\n3\ta,b\t3.0\n4\tx\"y\\nz\t4.0\n5\tt\\tb\\\\\t5.0\n", read(file));
+    }
+
+    @Test
+    public void testExportGzip() throws IOException {
+        Path plain = dir.resolve("person.csv");
+        database.query("select * from person order by id").exportTo(plain, CsvFormat.csv());
+        Path gzip = dir.resolve("person.csv.gz");
+        database.query("select * from person order by id").exportTo(gzip, CsvFormat.csv().withGzip(true));
+        assertEquals(read(plain), gunzip(gzip));
+        Path parallel = dir.resolve("person2.csv.gz");
+        database.query("select * from person order by id")
+                .exportTo(parallel, CsvFormat.csv().withGzip(true).withCompressThreads(2));
+        assertEquals(read(plain), gunzip(parallel));
+    }
+
+    @Test
+    public void testExportEmpty() throws IOException {
+        Path file = dir.resolve("empty.csv");
+        assertEquals(0, database.query("select * from person where id < 0").exportTo(file, CsvFormat.csv()));
+        assertEquals("ID,NAME,SCORE\n", read(file));
+    }
+
+    @Test
+    public void testCsvRoundTrip() throws IOException {
+        Path file = dir.resolve("person.csv");
+        database.query("select * from person order by id").exportTo(file, CsvFormat.csv());
+        database.update("create table person2(id int not null, name varchar(50), score double)");
+        CsvImport csvImport = database.importCsv(file, "person2").segmentSize(8).parallelism(3).batchSize(2);
+        assertEquals(5, csvImport.execute());
+        assertEquals(0, csvImport.rejectedRows());
+        assertEquals(dump("person"), dump("person2"));
+        assertEquals("", database.query("select name from person2 where id = 1").getString());
+        assertNull(database.query("select name from person2 where id = 2").getString());
+    }
+
+    @Test
+    public void testTsvRoundTrip() throws IOException {
+        database.update("insert into person values(?,?,?)", 6, "x\\Ny", 6.0);
+        database.update("insert into person values(?,?,?)", 7, "\\N", 7.0);
+        Path file = dir.resolve("person.tsv");
+        CsvFormat format = CsvFormat.tsv().withHeader(false);
+        database.query("select * from person order by id").exportTo(file, format);
+        database.update("create table person2(id int not null, name varchar(50), score double)");
+        assertEquals(7, database.importCsv(file, "person2").format(format).segmentSize(8).execute());
+        assertEquals(dump("person"), dump("person2"));
+        assertNull(database.query("select name from person2 where id = 2").getString());
+        assertEquals("x\\Ny", database.query("select name from person2 where id = 6").getString());
+        assertEquals("\\N", database.query("select name from person2 where id = 7").getString());
+    }
+
+    @Test
+    public void testImportMultiLineField() throws IOException {
+        Path file = dir.resolve("lines.csv");
+        StringBuilder sb = new StringBuilder("id,name,score\n");
+        for (int i = 0; i < 20; i++) {
+            sb.append(i).append(",\"line1\nline2,\"\"\n").append(i).append("\",").append(i).append("\r\n");
+        }
+        Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+        database.update("delete from person");
+        CsvImport csvImport = database.importCsv(file, "person").segmentSize(10).parallelism(4);
+        assertEquals(20, csvImport.execute());
+        assertEquals(0, csvImport.rejectedRows());
+        assertEquals("line1\nline2,\"\n7", database.query("select name from person where id = 7").getString());
+    }
+
+    @Test
+    public void testImportReject() throws IOException {
+        Path file = dir.resolve("bad.csv");
+        Files.write(file, "10,a,1\n11,b\nx,c,2\n\n12,d,\n".getBytes(StandardCharsets.UTF_8));
+        Path rejectFile = dir.resolve("bad.reject");
+        database.update("delete from person");
+        CsvImport csvImport = database.importCsv(file, "person", "id", "name", "score")
+                .format(CsvFormat.csv().withHeader(false)).rejectFile(rejectFile);
+        assertEquals(2, csvImport.execute());
+        assertEquals(2, csvImport.rejectedRows());
+        assertEquals("11,b\nx,c,2\n", read(rejectFile));
+        assertEquals(Long.valueOf(1), database.query("select count(*) from person where id = 12 and score is null")
+                .getLong());
+    }
+
+    @Test
+    public void testImportCrlf() throws IOException {
+        Path file = dir.resolve("crlf.tsv");
+        // escaped \r at field end is kept, the raw CR of CRLF is not
+        Files.write(file, "1\t1.5\tab\\r\n2\tcd\r\n3\t3\t\\N\r\n4\t4\tef\\r\r\n5\t5\tgh\\r"
+                .getBytes(StandardCharsets.UTF_8));
+        database.update("delete from person");
+        CsvImport csvImport = database.importCsv(file, "person", "id", "score", "name")
+                .format(CsvFormat.tsv().withHeader(false));
+        assertEquals(4, csvImport.execute());
+        assertEquals(1, csvImport.rejectedRows());
+        assertEquals("ab\r", database.query("select name from person where id = 1").getString());
+        assertNull(database.query("select name from person where id = 3").getString());
+        assertEquals("ef\r", database.query("select name from person where id = 4").getString());
+        assertEquals("gh\r", database.query("select name from person where id = 5").getString());
+    }
+
+    @Test
+    public void testImportRejectByDatabase() throws IOException {
+        Path file = dir.resolve("rows.csv");
+        Files.write(file, "1,a,1\n2,too long name,2\n3,c,3\n1,dup,4\n5,e,5\n6,f,6\n7,g,7\n"
+                .getBytes(StandardCharsets.UTF_8));
+        Path rejectFile = dir.resolve("rows.reject");
+        database.update("create table person2(id int primary key, name varchar(5), score double)");
+        CsvImport csvImport = database.importCsv(file, "person2").format(CsvFormat.csv().withHeader(false))
+                .batchSize(3).rejectFile(rejectFile);
+        assertEquals(5, csvImport.execute());
+        assertEquals(2, csvImport.rejectedRows());
+        assertEquals("2,too long name,2\n1,dup,4\n", read(rejectFile));
+        assertArrayEquals(new long[]{1, 3, 5, 6, 7}, database.query("select id from person2 order by id").getLongs());
+        assertEquals("a", database.query("select name from person2 where id = 1").getString());
+    }
+
+    private String dump(String table) {
+        List<String> rows = database.query("select * from " + table + " order by id").getList().stream()
+                .map(r -> Arrays.toString(r.getValues())).collect(Collectors.toList());
+        return String.join("\n", rows);
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    private static String gunzip(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bos.write(buffer, 0, read);
+            }
+            return new String(bos.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -5,6 +5,8 @@ import org.junit.Test;
 
 import java.sql.DriverManager;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -45,6 +47,20 @@ public class DatabaseTest {
         List<Student> students = runner.query("select * from student").map(Student.class).getList();
         assertEquals(Collections.singletonList(s), students);
 
+        assertArrayEquals(new long[]{1L}, runner.query("select id from student").getLongs());
+        assertArrayEquals(new int[]{10}, runner.query("select age from student").getInts());
+        assertEquals(Long.valueOf(1L), runner.query("select id from student where name=?", "Jack").getLong());
+        assertEquals("Jack", runner.query("select name from student where id=?", 1L).getString());
+        assertEquals(Collections.singletonList("Jack"), runner.query("select name from student").getStringList());
+
+        List<Object> rowValues = new ArrayList<>();
+        long rowCount = runner.query("select id, name from student").forEachRow(row -> {
+            rowValues.add(row.getLong(0));
+            rowValues.add(row.getString("NAME"));
+        });
+        assertEquals(1, rowCount);
+        assertEquals(Arrays.asList(1L, "Jack"), rowValues);
+
         // update(delete)
         int deleted = runner.update("delete from student");
         assertEquals(1, deleted);
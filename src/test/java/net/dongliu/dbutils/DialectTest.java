@@ -0,0 +1,102 @@
+package net.dongliu.dbutils;
+
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DialectTest {
+
+    private static final String[] keys = {"id"};
+    private static final String[] columns = {"id", "name", "age"};
+    private static final Object[] row = {1L, "Jack", 10};
+
+    @Test
+    public void testOf() {
+        assertEquals(Dialect.MYSQL, Dialect.of("MySQL"));
+        assertEquals(Dialect.MYSQL, Dialect.of("MariaDB"));
+        assertEquals(Dialect.POSTGRESQL, Dialect.of("PostgreSQL"));
+        assertEquals(Dialect.DERBY, Dialect.of("Apache Derby"));
+        assertEquals(Dialect.H2, Dialect.of("H2"));
+        assertEquals(Dialect.SQLSERVER, Dialect.of("Microsoft SQL Server"));
+        assertEquals(Dialect.GENERIC, Dialect.of("HSQL Database Engine"));
+    }
+
+    @Test
+    public void testUpsert() {
+        Dialect.Upsert mysql = Dialect.MYSQL.upsert("student", keys, columns);
+        assertEquals("INSERT INTO student (id, name, age) VALUES (?, ?, ?)"
+                + " ON DUPLICATE KEY UPDATE name = VALUES(name), age = VALUES(age)", mysql.clause());
+        assertArrayEquals(row, mysql.params(row));
+
+        assertEquals("INSERT INTO student (id, name, age) VALUES (?, ?, ?)"
+                        + " ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, age = EXCLUDED.age",
+                Dialect.POSTGRESQL.upsert("student", keys, columns).clause());
+
+        assertEquals("MERGE INTO student (id, name, age) KEY (id) VALUES (?, ?, ?)",
+                Dialect.H2.upsert("student", keys, columns).clause());
+
+        Dialect.Upsert derby = Dialect.DERBY.upsert("student", keys, columns);
+        assertEquals("MERGE INTO student USING SYSIBM.SYSDUMMY1 ON student.id = ?"
+                + " WHEN MATCHED THEN UPDATE SET name = ?, age = ?"
+                + " WHEN NOT MATCHED THEN INSERT (id, name, age) VALUES (?, ?, ?)", derby.clause());
+        assertArrayEquals(new Object[]{1L, "Jack", 10, 1L, "Jack", 10}, derby.params(row));
+
+        assertEquals("MERGE INTO student t USING (SELECT ? id, ? name, ? age FROM dual) s ON (t.id = s.id)"
+                        + " WHEN MATCHED THEN UPDATE SET t.name = s.name, t.age = s.age"
+                        + " WHEN NOT MATCHED THEN INSERT (id, name, age) VALUES (s.id, s.name, s.age)",
+                Dialect.ORACLE.upsert("student", keys, columns).clause());
+    }
+
+    @Test
+    public void testUpsertKeysOnly() {
+        assertEquals("INSERT INTO student (id) VALUES (?) ON CONFLICT (id) DO NOTHING",
+                Dialect.POSTGRESQL.upsert("student", keys, keys).clause());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testKeyNotInColumns() {
+        Dialect.MYSQL.upsert("student", new String[]{"code"}, columns);
+    }
+
+    @Test
+    public void testStreamingWarnedPerDialect() throws SQLException {
+        List<String> warnings = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                warnings.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger(Dialect.class.getName());
+        logger.addHandler(handler);
+        try {
+            MyConnection shared = new MyConnection(null, false);
+            for (int i = 0; i < 2; i++) {
+                assertEquals(Integer.MIN_VALUE, Dialect.MYSQL.prepareStreaming(shared, 100, "jdbc:mysql://db/test"));
+                assertEquals(100, Dialect.GENERIC.prepareStreaming(shared, 100, "jdbc:hsqldb:mem:test"));
+            }
+        } finally {
+            logger.removeHandler(handler);
+        }
+        assertEquals(2, warnings.size());
+        assertTrue(warnings.get(0).startsWith("MySQL"));
+        assertTrue(warnings.get(1).startsWith("Unknown database"));
+    }
+}
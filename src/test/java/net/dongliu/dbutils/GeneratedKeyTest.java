@@ -0,0 +1,81 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.exception.UncheckedSQLException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class GeneratedKeyTest {
+    private Database database;
+
+    @Before
+    public void setUp() {
+        database = Database.of("jdbc:derby:memory:keyDB;create=true", null, null);
+        database.update("create table item(id bigint not null GENERATED ALWAYS AS IDENTITY, name varchar(20))");
+        database.update("create table plain(name varchar(20))");
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:keyDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testInsertReturningLong() {
+        assertEquals(1, database.insertReturningLong("insert into item(name) values(?)", "a"));
+        assertEquals(2, database.insertReturningLong("insert into item(name) values(?)", (Object) null));
+        long key = database.withTransaction(tx -> tx.insertReturningLong("insert into item(name) values(?)", "c"));
+        assertEquals(3, key);
+        assertEquals(Long.valueOf(3), database.query("select count(*) from item").getLong());
+    }
+
+    @Test
+    public void testNoKey() {
+        try {
+            database.insertReturningLong("insert into plain(name) values(?)", "a");
+            fail();
+        } catch (UncheckedSQLException e) {
+            assertEquals("Generated key is null", e.getMessage());
+        }
+        // the row is still inserted
+        assertEquals(Long.valueOf(1), database.query("select count(*) from plain").getLong());
+    }
+
+    @Test
+    public void testBatchInsertReturningKeys() {
+        database.insertReturningLong("insert into item(name) values(?)", "first");
+        long[] keys = database.batchInsertReturningKeys("insert into item(name) values(?)", rows(5), true);
+        // derby only returns the key of last row for batch
+        assertArrayEquals(new long[]{6}, keys);
+        assertEquals(Long.valueOf(6), database.query("select count(*) from item").getLong());
+
+        long[][] composite = database.batchInsertReturningKeys("insert into item(name) values(?)", rows(2),
+                new String[]{"ID"}, true);
+        assertEquals(8, composite[composite.length - 1][0]);
+        assertEquals(1, composite[0].length);
+
+        assertEquals(0, database.batchInsertReturningKeys("insert into item(name) values(?)", new ArrayList<>())
+                .length);
+        assertEquals(0, database.batchInsertReturningKeys("insert into item(name) values(?)", new ArrayList<>(),
+                new String[]{"ID"}, false).length);
+    }
+
+    private static List<Object[]> rows(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{"name" + i});
+        }
+        return rows;
+    }
+}
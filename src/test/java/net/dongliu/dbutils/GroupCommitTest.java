@@ -0,0 +1,160 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.exception.UncheckedSQLException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GroupCommitTest {
+    private Database database;
+
+    @Before
+    public void setUp() {
+        database = Database.of("jdbc:derby:memory:groupDB;create=true", null, null);
+        database.update("create table item(id int primary key, name varchar(20))");
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:groupDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testConcurrentSubmit() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try (GroupCommitExecutor executor = database.groupCommitExecutor(Duration.ofMillis(5), 16)) {
+            List<Future<List<CompletableFuture<Integer>>>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int base = t * 100;
+                results.add(pool.submit(() -> {
+                    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+                    for (int i = 0; i < 50; i++) {
+                        futures.add(executor.submit("insert into item values(?,?)", base + i, "name" + i));
+                    }
+                    // same thread requests executed in order
+                    futures.add(executor.submit(new SQL("update item set name = ? where id = ?",
+                            new Object[]{"last", base})));
+                    return futures;
+                }));
+            }
+            for (Future<List<CompletableFuture<Integer>>> result : results) {
+                for (CompletableFuture<Integer> future : result.get()) {
+                    assertEquals(Integer.valueOf(1), future.get(10, TimeUnit.SECONDS));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(Long.valueOf(200), database.query("select count(*) from item").getLong());
+        assertEquals(Long.valueOf(4), database.query("select count(*) from item where name = 'last'").getLong());
+    }
+
+    @Test
+    public void testFailureIsolated() throws Exception {
+        database.update("insert into item values(?,?)", 3, "exists");
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        try (GroupCommitExecutor executor = database.groupCommitExecutor(Duration.ofMillis(200), 100)) {
+            for (int i = 0; i < 6; i++) {
+                futures.add(executor.submit("insert into item values(?,?)", i, "name" + i));
+            }
+            futures.add(executor.submit("update item set name = ? where id = ?", "updated", 5));
+            futures.add(executor.submit("insert into item values(?,?)", 1, "duplicated"));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            if (i == 3 || i == 7) {
+                try {
+                    futures.get(i).get();
+                    fail();
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof UncheckedSQLException);
+                    assertTrue(e.getCause().getCause() instanceof SQLIntegrityConstraintViolationException);
+                }
+            } else {
+                assertEquals(Integer.valueOf(1), futures.get(i).get());
+            }
+        }
+        assertEquals(Long.valueOf(6), database.query("select count(*) from item").getLong());
+        assertEquals("exists", database.query("select name from item where id = 3").getString());
+        assertEquals("updated", database.query("select name from item where id = 5").getString());
+    }
+
+    @Test
+    public void testClose() {
+        GroupCommitExecutor executor = database.groupCommitExecutor();
+        executor.submit("insert into item values(?,?)", 1, "a").join();
+        long start = System.nanoTime();
+        executor.close();
+        // close wakes up the idle worker, instead of waiting for poll timeout
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+        executor.close();
+        try {
+            executor.submit("insert into item values(?,?)", 2, "b");
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        assertEquals(Long.valueOf(1), database.query("select count(*) from item").getLong());
+    }
+
+    @Test
+    public void testReleaseSavepointNotSupported() throws Exception {
+        // like Oracle, which does not support release savepoint
+        DataSource dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    Connection conn = DriverManager.getConnection("jdbc:derby:memory:groupDB");
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                            (p, m, a) -> {
+                                if (m.getName().equals("releaseSavepoint")) {
+                                    throw new SQLFeatureNotSupportedException("release savepoint");
+                                }
+                                try {
+                                    return m.invoke(conn, a);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                            });
+                });
+        database.update("insert into item values(?,?)", 1, "exists");
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        try (GroupCommitExecutor executor = Database.of(dataSource).groupCommitExecutor(Duration.ofMillis(200), 10)) {
+            for (int i = 0; i < 3; i++) {
+                futures.add(executor.submit("insert into item values(?,?)", i, "name" + i));
+            }
+            futures.add(executor.submit("update item set name = ? where id = ?", "updated", 2));
+        }
+        try {
+            futures.get(1).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().getCause() instanceof SQLIntegrityConstraintViolationException);
+        }
+        assertEquals(Integer.valueOf(1), futures.get(0).get());
+        assertEquals(Integer.valueOf(1), futures.get(2).get());
+        assertEquals(Integer.valueOf(1), futures.get(3).get());
+        assertEquals(Long.valueOf(3), database.query("select count(*) from item").getLong());
+        assertEquals("updated", database.query("select name from item where id = 2").getString());
+    }
+}
@@ -0,0 +1,116 @@
+package net.dongliu.dbutils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JavaTimeTest {
+    private static final LocalDate day = LocalDate.of(2020, 1, 2);
+    private static final LocalTime clock = LocalTime.of(3, 4, 5);
+    private static final LocalDateTime created = LocalDateTime.of(2020, 1, 2, 3, 4, 5, 6000);
+    private static final String clause = "select id, day, clock, created from item order by id";
+
+    private Database database;
+
+    @Before
+    public void setUp() {
+        database = Database.of("jdbc:derby:memory:javaTimeDB;create=true", null, null);
+        database.update("create table item(id bigint primary key, day date, clock time, created timestamp)");
+        database.update("insert into item values(?,?,?,?)", 1L, Date.valueOf(day), Time.valueOf(clock),
+                Timestamp.valueOf(created));
+        database.update("insert into item(id) values(2)");
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:javaTimeDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testSqlTime() {
+        Record record = database.query(clause).getList().get(0);
+        assertEquals(Date.valueOf(day), record.getObject("day"));
+        assertEquals(Time.valueOf(clock), record.getObject("clock"));
+        assertEquals(Timestamp.valueOf(created), record.getObject("created"));
+        assertEquals(day, record.getLocalDate("day"));
+        assertEquals(clock, record.getLocalTime("clock"));
+        assertEquals(created, record.getLocalDateTime("created"));
+    }
+
+    @Test
+    public void testJavaTime() {
+        List<Record> records = database.query(clause).javaTime(true).getList();
+        checkJavaTime(records);
+        checkJavaTime(database.query(clause).javaTime(true).getList(0));
+        try (Stream<Record> stream = database.query(clause).javaTime(true).asStream()) {
+            checkJavaTime(stream.collect(Collectors.toList()));
+        }
+        Record record = database.query(clause + " fetch first 1 rows only").javaTime(true).getOne();
+        assertEquals(day, record.getObject(1));
+
+        // options of one query not leaked to others of the same sql
+        assertEquals(Date.valueOf(day), database.query(clause).getList().get(0).getObject(1));
+    }
+
+    @Test
+    public void testJavaTimeWithColumnCache() {
+        database.columnCache(true);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(Date.valueOf(day), database.query(clause).getList().get(0).getObject(1));
+            assertEquals(day, database.query(clause).javaTime(true).getList().get(0).getObject(1));
+        }
+    }
+
+    @Test
+    public void testRecordGetters() {
+        Record record = new Record(new String[]{"day", "clock", "created"}, new Object[]{day, clock, created});
+        assertEquals(Date.valueOf(day), record.getDate("day"));
+        assertEquals(Date.valueOf(day), record.getDate(0));
+        assertEquals(Time.valueOf(clock), record.getTime("clock"));
+        assertEquals(Time.valueOf(clock), record.getTime(1));
+        assertEquals(Timestamp.valueOf(created), record.getTimestamp("created"));
+        assertEquals(Timestamp.valueOf(created), record.getTimestamp(2));
+        OffsetDateTime offsetDateTime = created.atZone(ZoneId.systemDefault()).toOffsetDateTime();
+        assertEquals(offsetDateTime, record.getOffsetDateTime("created"));
+        assertEquals(offsetDateTime.toOffsetTime(), record.getOffsetTime(2));
+    }
+
+    private static void checkJavaTime(List<Record> records) {
+        Record record = records.get(0);
+        assertTrue(record.getObject("day") instanceof LocalDate);
+        assertEquals(day, record.getObject("day"));
+        assertEquals(clock, record.getObject("clock"));
+        assertEquals(created, record.getObject("created"));
+        // getters of java.sql types convert java.time values
+        assertEquals(Date.valueOf(day), record.getDate("day"));
+        assertEquals(Time.valueOf(clock), record.getTime("clock"));
+        assertEquals(Timestamp.valueOf(created), record.getTimestamp("created"));
+        assertEquals(created, record.getLocalDateTime("created"));
+        if (records.size() > 1) {
+            Record empty = records.get(1);
+            assertNull(empty.getObject("day"));
+            assertNull(empty.getObject("clock"));
+            assertNull(empty.getObject("created"));
+        }
+    }
+}
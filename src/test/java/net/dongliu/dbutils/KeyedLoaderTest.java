@@ -0,0 +1,219 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.exception.UncheckedSQLException;
+import net.dongliu.dbutils.mapper.BeanRowMapper;
+import net.dongliu.dbutils.mapper.RowMapper;
+import net.dongliu.dbutils.mock.Student;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class KeyedLoaderTest {
+    private static final String clause = "select * from student where id in";
+    private static final RowMapper<Student> mapper = BeanRowMapper.getInstance(Student.class, false);
+
+    private Database database;
+    private AdaptiveTuner tuner;
+
+    @Before
+    public void setUp() {
+        database = Database.of("jdbc:derby:memory:loaderDB;create=true", null, null);
+        database.update("create table student(id bigint primary key, name varchar(20), age int, isMale boolean, " +
+                "birthDay date)");
+        List<Object[]> rows = new ArrayList<>();
+        for (long i = 1; i <= 100; i++) {
+            rows.add(new Object[]{i, "name" + i, (int) i, i % 2 == 0, java.sql.Date.valueOf("2000-01-01")});
+        }
+        database.batchUpdate("insert into student values(?,?,?,?,?)", rows);
+        // the tuner records each executed query
+        tuner = new AdaptiveTuner();
+        database.tuner(tuner);
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:loaderDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testBatched() {
+        List<CompletableFuture<Student>> futures = new ArrayList<>();
+        try (KeyedLoader<Long, Student> loader = database.keyedLoader(clause, mapper, Student::getId,
+                Duration.ofMillis(100), 100)) {
+            for (long i = 1; i <= 20; i++) {
+                futures.add(loader.load(i));
+            }
+            // duplicated and missing keys
+            futures.add(loader.load(5L));
+            futures.add(loader.load(1000L));
+            for (int i = 0; i < 20; i++) {
+                Student student = futures.get(i).join();
+                assertEquals(i + 1, student.getId());
+                assertEquals("name" + (i + 1), student.getName());
+                assertEquals(LocalDate.of(2000, 1, 1), student.getBirth());
+            }
+            assertEquals(5, futures.get(20).join().getId());
+            assertNull(futures.get(21).join());
+        }
+        // 21 distinct keys padded to 32, in one query
+        assertEquals(1, queries());
+        assertEquals(1, tuner.stats(clause + " (" + placeholders(32) + ")").queries());
+    }
+
+    @Test
+    public void testMaxBatch() {
+        List<CompletableFuture<Student>> futures = new ArrayList<>();
+        try (KeyedLoader<Long, Student> loader = database.keyedLoader(clause, mapper, Student::getId,
+                Duration.ofMillis(200), 4)) {
+            for (long i = 1; i <= 10; i++) {
+                futures.add(loader.load(i));
+            }
+        }
+        // submitted requests are loaded before close returns
+        for (int i = 0; i < futures.size(); i++) {
+            assertTrue(futures.get(i).isDone());
+            assertEquals(i + 1, futures.get(i).join().getId());
+        }
+        assertEquals(3, queries());
+        assertEquals(2, tuner.stats(clause + " (" + placeholders(4) + ")").queries());
+        assertEquals(1, tuner.stats(clause + " (" + placeholders(2) + ")").queries());
+    }
+
+    @Test
+    public void testPaddingCappedByMaxBatch() {
+        List<CompletableFuture<Student>> futures = new ArrayList<>();
+        try (KeyedLoader<Long, Student> loader = database.keyedLoader(clause, mapper, Student::getId,
+                Duration.ofMillis(200), 6)) {
+            for (long i = 1; i <= 11; i++) {
+                futures.add(loader.load(i));
+            }
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i + 1, futures.get(i).join().getId());
+        }
+        // 6 keys not padded to 8, 5 keys padded to 6
+        assertEquals(2, queries());
+        assertEquals(2, tuner.stats(clause + " (" + placeholders(6) + ")").queries());
+    }
+
+    @Test
+    public void testConcurrentGet() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (KeyedLoader<Long, Student> loader = database.keyedLoader(clause, mapper, Student::getId)) {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long seed = t;
+                results.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 50; i++) {
+                        long key = random.nextInt(120) + 1;
+                        Student student = loader.get(key);
+                        if (key <= 100) {
+                            assertEquals(key, student.getId());
+                        } else {
+                            assertNull(student);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(queries() <= 400);
+    }
+
+    @Test
+    public void testError() {
+        try (KeyedLoader<Long, Student> loader = database.keyedLoader("select * from no_table where id in", mapper,
+                Student::getId)) {
+            loader.get(1L);
+            fail();
+        } catch (UncheckedSQLException e) {
+        }
+        try (KeyedLoader<Long, Student> loader = database.keyedLoader(clause, mapper, s -> {
+            if (s.getId() == 3) {
+                throw new IllegalStateException("bad key");
+            }
+            return s.getId();
+        }, Duration.ofMillis(100), 100)) {
+            assertEquals(1, loader.get(1L).getId());
+            CompletableFuture<Student> future2 = loader.load(2L);
+            CompletableFuture<Student> future3 = loader.load(3L);
+            // all requests of the failed query fail
+            for (CompletableFuture<Student> future : Arrays.asList(future2, future3)) {
+                try {
+                    future.join();
+                    fail();
+                } catch (Exception e) {
+                    assertEquals("bad key", e.getCause().getMessage());
+                }
+            }
+            // the loader still works
+            assertEquals(4, loader.get(4L).getId());
+            try {
+                loader.get(3L);
+                fail();
+            } catch (IllegalStateException e) {
+                assertEquals("bad key", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testClosed() {
+        KeyedLoader<Long, Student> loader = database.keyedLoader(clause, mapper, Student::getId);
+        assertEquals(1, loader.get(1L).getId());
+        long start = System.nanoTime();
+        loader.close();
+        // close wakes up the idle worker, instead of waiting for poll timeout
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+        loader.close();
+        try {
+            loader.load(1L);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        try {
+            database.keyedLoader(clause, mapper, Student::getId, Duration.ofMillis(1), 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    private long queries() {
+        return tuner.stats().entrySet().stream().filter(e -> e.getKey().startsWith(clause))
+                .mapToLong(e -> e.getValue().queries()).sum();
+    }
+
+    private static String placeholders(int size) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package net.dongliu.dbutils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LeakDetectorTest {
+    private Database database;
+    private LeakDetector detector;
+
+    @Before
+    public void setUp() {
+        database = Database.of("jdbc:derby:memory:leakDB;create=true", null, null);
+        database.update("create table item(id int)");
+        for (int i = 0; i < 3; i++) {
+            database.update("insert into item values(?)", i);
+        }
+        detector = new LeakDetector().stackSampleRate(1);
+        database.leakDetector(detector);
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:leakDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testClosed() {
+        try (Stream<Record> stream = database.query("select * from item").asStream()) {
+            assertEquals(1, detector.active());
+            assertEquals(3, stream.count());
+        }
+        database.withTransaction(tx -> tx.update("insert into item values(?)", 3));
+        Database.TransactionContext tx = database.startTransaction();
+        tx.rollback();
+        assertEquals(0, detector.active());
+        collectUntil(() -> false, 200);
+        assertEquals(0, detector.leaked());
+    }
+
+    @Test
+    public void testLeakedStream() {
+        detector.reclaim(true);
+        leakStream();
+        assertTrue(collectUntil(() -> detector.reclaimed() == 1, 10000));
+        assertEquals(1, detector.leaked());
+        assertEquals(0, detector.active());
+    }
+
+    @Test
+    public void testIteratorInUse() {
+        detector.reclaim(true);
+        // the stream is unreachable, while its iterator is still used
+        Iterator<Record> iterator = database.query("select * from item order by id").asStream().iterator();
+        assertEquals(0, iterator.next().getInt("ID"));
+        assertFalse(collectUntil(() -> detector.leaked() > 0, 300));
+        assertEquals(1, iterator.next().getInt("ID"));
+        assertEquals(2, iterator.next().getInt("ID"));
+        assertFalse(iterator.hasNext());
+        assertEquals(1, detector.active());
+        iterator = null;
+        assertTrue(collectUntil(() -> detector.reclaimed() == 1, 10000));
+    }
+
+    @Test
+    public void testLeakedTransaction() {
+        leakTransaction();
+        assertTrue(collectUntil(() -> detector.leaked() == 1, 10000));
+        assertEquals(0, detector.reclaimed());
+        assertEquals(0, detector.active());
+    }
+
+    @Test
+    public void testReclaimTransaction() {
+        database.update("call SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY('derby.locks.waitTimeout', '1')");
+        detector.reclaim(true);
+        leakTransaction();
+        assertTrue(collectUntil(() -> detector.reclaimed() == 1, 10000));
+        assertEquals(0, detector.active());
+        // rolled back, the row locks are released
+        assertEquals(Long.valueOf(3), database.query("select count(*) from item").getLong());
+        assertEquals(1, database.update("insert into item values(?)", 10));
+    }
+
+    @Test
+    public void testHeldTooLong() throws InterruptedException {
+        detector.heldThreshold(Duration.ofMillis(10));
+        try (Stream<Record> stream = database.query("select * from item").asStream()) {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (detector.heldTooLong() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(1, detector.heldTooLong());
+            assertEquals(3, stream.count());
+        }
+        assertEquals(0, detector.leaked());
+    }
+
+    @Test
+    public void testFingerprint() {
+        assertEquals("select * from t where a = ? and b in (?, ?) and c = t2.c",
+                SQLFingerprint.of("select *  from t\n where a = 'it''s' and b in (1, 2.5) and c = t2.c"));
+    }
+
+    private void leakStream() {
+        database.query("select * from item order by id").asStream().iterator().next();
+    }
+
+    private void leakTransaction() {
+        Database.TransactionContext tx = database.startTransaction();
+        tx.update("insert into item values(?)", 10);
+    }
+
+    private static boolean collectUntil(BooleanSupplier condition, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (System.currentTimeMillis() < deadline) {
+            System.gc();
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return condition.getAsBoolean();
+    }
+}
@@ -0,0 +1,90 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.exception.ResultLimitExceededException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class LimitTest {
+    private Database database;
+
+    @Before
+    public void setUp() {
+        database = Database.of("jdbc:derby:memory:limitDB;create=true", null, null);
+        database.update("create table item(id bigint not null GENERATED ALWAYS AS IDENTITY, name varchar(100))");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            rows.add(new Object[]{"name" + i});
+        }
+        database.batchUpdate("insert into item(name) values(?)", rows);
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:limitDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testMaxRows() {
+        assertEquals(10, database.query("select * from item").maxRows(10).getList().size());
+        assertEquals(10, database.query("select * from item").maxRows(Long.MAX_VALUE).getList().size());
+        try {
+            database.query("select * from item").maxRows(9).getList();
+            fail();
+        } catch (ResultLimitExceededException e) {
+        }
+        try (Stream<Record> stream = database.query("select * from item").maxRows(3).asStream()) {
+            stream.forEach(r -> {
+            });
+            fail();
+        } catch (ResultLimitExceededException e) {
+        }
+    }
+
+    @Test
+    public void testDatabaseDefaults() {
+        database.maxRows(5);
+        try {
+            database.query("select * from item").getList();
+            fail();
+        } catch (ResultLimitExceededException e) {
+        }
+        // per query setting overrides database default
+        assertEquals(10, database.query("select * from item").maxRows(100).getList().size());
+        database.maxRows(0);
+
+        database.maxBytes(100);
+        try {
+            database.query("select * from item").getList();
+            fail();
+        } catch (ResultLimitExceededException e) {
+        }
+        assertEquals(1, database.query("select id from item where id = 1").getList().size());
+        database.maxBytes(0);
+    }
+
+    @Test
+    public void testInsertNotLimited() {
+        database.maxRows(1).maxBytes(1);
+        long key = database.insertReturningLong("insert into item(name) values(?)", "x");
+        assertEquals(11, key);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            rows.add(new Object[]{"y" + i});
+        }
+        database.batchInsertReturningKeys("insert into item(name) values(?)", rows);
+        database.maxRows(0).maxBytes(0);
+        assertEquals(Long.valueOf(16), database.query("select count(*) from item").getLong());
+    }
+}
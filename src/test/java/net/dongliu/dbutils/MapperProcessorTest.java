@@ -0,0 +1,285 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.mapper.BeanMapper;
+import net.dongliu.dbutils.mapping.Table;
+import net.dongliu.dbutils.processor.MapperProcessor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MapperProcessorTest {
+    // the bean compiled with and without the processor
+    private static final String source = String.join("\n",
+            "package gen;",
+            "",
+            "import net.dongliu.dbutils.mapping.Column;",
+            "import net.dongliu.dbutils.mapping.Table;",
+            "import java.math.BigDecimal;",
+            "import java.time.*;",
+            "import java.util.Arrays;",
+            "",
+            "@Table",
+            "public class Item {",
+            "    public enum Color {RED, GREEN {}}",
+            "",
+            "    public long id;",
+            "    public int intValue;",
+            "    public boolean flag;",
+            "    public double doubleValue;",
+            "    public float floatValue;",
+            "    public short shortValue;",
+            "    public byte byteValue;",
+            "    public Integer boxedInt;",
+            "    public Long boxedLong;",
+            "    public Boolean boxedFlag;",
+            "    public Double boxedDouble;",
+            "    public String text;",
+            "    public BigDecimal amount;",
+            "    public byte[] data;",
+            "    public LocalDate localDate;",
+            "    public LocalDateTime localDateTime;",
+            "    public LocalTime localTime;",
+            "    public Color color;",
+            "    public Object anyValue;",
+            "    private String userName;",
+            "",
+            "    @Column(\"user_name\")",
+            "    public String getUserName() {",
+            "        return userName;",
+            "    }",
+            "",
+            "    public void setUserName(String userName) {",
+            "        this.userName = userName;",
+            "    }",
+            "",
+            "    public static Item sample(long id) {",
+            "        Item item = new Item();",
+            "        item.id = id;",
+            "        item.intValue = -7;",
+            "        item.flag = true;",
+            "        item.doubleValue = 1.5;",
+            "        item.floatValue = 0.25f;",
+            "        item.shortValue = 300;",
+            "        item.byteValue = -3;",
+            "        item.boxedInt = 42;",
+            "        item.boxedLong = 5000000000L;",
+            "        item.boxedFlag = false;",
+            "        item.boxedDouble = -0.5;",
+            "        item.text = \"text\";",
+            "        item.amount = new BigDecimal(\"12.50\");",
+            "        item.data = new byte[]{1, -1};",
+            "        item.localDate = LocalDate.of(2020, 1, 2);",
+            "        item.localDateTime = LocalDateTime.of(2020, 1, 2, 3, 4, 5);",
+            "        item.localTime = LocalTime.of(3, 4, 5);",
+            "        // constant with class body",
+            "        item.color = Color.GREEN;",
+            "        item.anyValue = LocalDate.of(2021, 3, 4);",
+            "        item.userName = \"Jack\";",
+            "        return item;",
+            "    }",
+            "",
+            "    public static Item empty(long id) {",
+            "        Item item = new Item();",
+            "        item.id = id;",
+            "        // derby rejects null bound as VARCHAR for binary column",
+            "        item.data = new byte[0];",
+            "        return item;",
+            "    }",
+            "",
+            "    public String describe() {",
+            "        return Arrays.asList(intValue, flag, doubleValue, floatValue, shortValue, byteValue, boxedInt,",
+            "                boxedLong, boxedFlag, boxedDouble, text, amount, Arrays.toString(data), localDate,",
+            "                localDateTime, localTime, color, userName).toString();",
+            "    }",
+            "}");
+
+    private Database database;
+    private Class<?> generatedClass;
+    private Class<?> reflectedClass;
+
+    @Before
+    public void setUp() throws Exception {
+        generatedClass = compile(true);
+        reflectedClass = compile(false);
+        database = Database.of("jdbc:derby:memory:processorDB;create=true", null, null);
+        database.update("create table item(id bigint primary key, intValue int, flag boolean, doubleValue double, " +
+                "floatValue real, shortValue smallint, byteValue smallint, boxedInt int, boxedLong bigint, " +
+                "boxedFlag boolean, boxedDouble double, text varchar(20), amount decimal(10,2), " +
+                "data varchar(8) for bit data, localDate date, localDateTime timestamp, localTime time, " +
+                "color varchar(10), anyValue date, user_name varchar(20))");
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:processorDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testGenerated() {
+        assertNotNull(BeanMapper.generated(generatedClass));
+        assertNull(BeanMapper.generated(reflectedClass));
+        BeanMapper<?> mapper = BeanMapper.generated(generatedClass);
+        assertTrue(Arrays.asList(mapper.columns()).contains("user_name"));
+        assertTrue(Arrays.asList(mapper.properties()).contains("userName"));
+    }
+
+    @Test
+    public void testBind() throws Exception {
+        BeanBinder generated = BeanBinder.of(generatedClass);
+        BeanBinder reflected = BeanBinder.of(reflectedClass);
+        assertEquals(reflected.insertClause("item"), generated.insertClause("item"));
+        for (String factory : Arrays.asList("sample", "empty")) {
+            List<String> generatedParams = bound(generated, bean(generatedClass, factory, 1));
+            List<String> reflectedParams = bound(reflected, bean(reflectedClass, factory, 1));
+            assertEquals(reflectedParams, generatedParams);
+        }
+        List<String> params = bound(generated, bean(generatedClass, "sample", 1));
+        // enum constant with class body, and Object property holding LocalDate
+        assertTrue(params.contains("java.lang.String GREEN"));
+        assertTrue(params.contains("java.sql.Date 2021-03-04"));
+
+        BeanBinder.Update generatedUpdate = generated.update("item", new String[]{"id"});
+        BeanBinder.Update reflectedUpdate = reflected.update("item", new String[]{"id"});
+        assertEquals(reflectedUpdate.clause(), generatedUpdate.clause());
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        database.insertBean("item", bean(generatedClass, "sample", 1));
+        database.insertBean("item", bean(reflectedClass, "sample", 2));
+        database.insertBean("item", bean(generatedClass, "empty", 3));
+        database.insertBean("item", bean(reflectedClass, "empty", 4));
+        // rows inserted by generated and reflected binders are the same
+        List<Record> records = database.query("select * from item order by id").getList();
+        for (int i = 0; i < records.size(); i += 2) {
+            Object[] generated = records.get(i).getValues();
+            Object[] reflected = records.get(i + 1).getValues();
+            generated[0] = reflected[0] = null;
+            assertEquals(Arrays.deepToString(reflected), Arrays.deepToString(generated));
+        }
+
+        String expected = describe(bean(generatedClass, "sample", 1));
+        String expectedEmpty = describe(bean(generatedClass, "empty", 3));
+        for (Class<?> cls : Arrays.asList(generatedClass, reflectedClass)) {
+            List<?> beans = database.query("select * from item order by id").map(cls).getList();
+            assertEquals(4, beans.size());
+            assertEquals(expected, describe(beans.get(0)));
+            assertEquals(expected, describe(beans.get(1)));
+            assertEquals(expectedEmpty, describe(beans.get(2)));
+            assertEquals(expectedEmpty, describe(beans.get(3)));
+        }
+        // snake case column name matched to property when reading
+        database.update("alter table item add column boxed_int int");
+        database.update("update item set boxed_int = intValue");
+        for (Class<?> cls : Arrays.asList(generatedClass, reflectedClass)) {
+            List<Object> beans = database.query("select id, boxed_int from item order by id").map(cls).getList()
+                    .stream().map(b -> field(b, "boxedInt")).collect(Collectors.toList());
+            assertEquals(Arrays.asList(-7, -7, 0, 0), beans);
+        }
+    }
+
+    private static Object field(Object bean, String name) {
+        try {
+            return bean.getClass().getField(name).get(bean);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Object bean(Class<?> cls, String factory, long id) throws Exception {
+        return cls.getMethod(factory, long.class).invoke(null, id);
+    }
+
+    private static String describe(Object bean) throws Exception {
+        return (String) bean.getClass().getMethod("describe").invoke(bean);
+    }
+
+    /**
+     * The params bound in order, as type and value
+     */
+    private static List<String> bound(BeanBinder binder, Object bean) throws Exception {
+        List<String> params = new ArrayList<>();
+        PreparedStatement stmt = (PreparedStatement) Proxy.newProxyInstance(getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (!method.getName().startsWith("set")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    params.add(describeValue(method.getName().equals("setNull") ? null : args[1]));
+                    return null;
+                });
+        binder.bindInsert(stmt, bean);
+        return params;
+    }
+
+    private static String describeValue(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof byte[]) {
+            return "byte[] " + Arrays.toString((byte[]) value);
+        }
+        return value.getClass().getName() + " " + value;
+    }
+
+    private static ClassLoader getClassLoader() {
+        return MapperProcessorTest.class.getClassLoader();
+    }
+
+    /**
+     * Compile the bean source, and load the bean class in a new class loader
+     */
+    private static Class<?> compile(boolean withProcessor) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Path dir = Files.createTempDirectory("dbutils-processor");
+        String classPath = new File(Table.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                .getPath();
+        List<String> options = new ArrayList<>(Arrays.asList("-classpath", classPath, "-d", dir.toString()));
+        if (!withProcessor) {
+            options.add("-proc:none");
+        }
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///gen/Item.java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null,
+                Collections.singletonList(file));
+        if (withProcessor) {
+            task.setProcessors(Collections.singletonList(new MapperProcessor()));
+        }
+        assertTrue(diagnostics.getDiagnostics().toString(), task.call());
+        URLClassLoader loader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, getClassLoader());
+        return loader.loadClass("gen.Item");
+    }
+}
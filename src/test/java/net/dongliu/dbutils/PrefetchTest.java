@@ -0,0 +1,222 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.exception.UncheckedSQLException;
+import net.dongliu.dbutils.mapper.RowMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PrefetchTest {
+    private static final String url = "jdbc:derby:memory:prefetchDB";
+    private Database database;
+
+    @Before
+    public void setUp() {
+        database = Database.of(url + ";create=true", null, null);
+        database.update("create function slow(ms int) returns int parameter style java no sql language java " +
+                "external name 'net.dongliu.dbutils.PrefetchTest.slow'");
+        database.update("create table item(id int primary key, name varchar(20))");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rows.add(new Object[]{i, i % 10 == 0 ? null : "name" + i});
+        }
+        database.batchUpdate("insert into item values(?,?)", rows);
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection(url + ";drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    /**
+     * Called by derby function, sleep and return the argument
+     */
+    public static int slow(int ms) throws InterruptedException {
+        Thread.sleep(ms);
+        return ms;
+    }
+
+    @Test
+    public void testFullStream() {
+        List<Record> expected = database.query("select * from item order by id").getList();
+        try (Stream<Record> stream = database.query("select * from item order by id").prefetch(7, 2).asStream()) {
+            List<Record> records = stream.collect(Collectors.toList());
+            assertEquals(1000, records.size());
+            for (int i = 0; i < records.size(); i++) {
+                assertArrayEquals(expected.get(i).getValues(), records.get(i).getValues());
+            }
+        }
+        try (Stream<Record> stream = database.query("select * from item where id < 0").prefetch(7, 2).asStream()) {
+            assertEquals(0, stream.count());
+        }
+    }
+
+    @Test
+    public void testEarlyClose() {
+        for (int i = 0; i < 3; i++) {
+            try (Stream<Record> stream = database.query("select * from item order by id").prefetch(10, 3)
+                    .asStream()) {
+                assertEquals(5, stream.limit(5).count());
+            }
+        }
+        // connections released, database still usable
+        assertEquals(Long.valueOf(1000), database.query("select count(*) from item").getLong());
+    }
+
+    @Test
+    public void testNotOnSharedConnection() {
+        RowMapper<Boolean> prefetched = (provider, rs) -> rs instanceof PrefetchResultSet;
+        try (Stream<Boolean> stream = database.query("select * from item").prefetch(10, 3).asStream(prefetched)) {
+            assertTrue(stream.findFirst().get());
+        }
+        // the statement is not cancelled, nor the connection read from other thread, in transaction
+        int updated = database.withTransaction(tx -> {
+            try (Stream<Boolean> stream = tx.query("select * from item order by id").prefetch(10, 3)
+                    .asStream(prefetched)) {
+                assertFalse(stream.limit(5).reduce(false, Boolean::logicalOr));
+            }
+            return tx.update("update item set name = ? where id = ?", "updated", 1);
+        });
+        assertEquals(1, updated);
+        database.withConnection(db -> {
+            try (Stream<Boolean> stream = db.query("select * from item").prefetch(10, 3).asStream(prefetched)) {
+                assertFalse(stream.findFirst().get());
+            }
+            return null;
+        });
+        assertEquals("updated", database.query("select name from item where id = 1").getString());
+    }
+
+    @Test
+    public void testProducerError() {
+        List<Integer> values = new ArrayList<>();
+        try (Stream<Record> stream = database.query("select 1000 / (id - 50) v from item order by id")
+                .prefetch(8, 2).asStream()) {
+            stream.forEach(r -> values.add(r.getInt("V")));
+            fail();
+        } catch (UncheckedSQLException e) {
+            assertEquals("22012", ((SQLException) e.getCause()).getSQLState());
+        }
+        // rows before the failing row are all delivered
+        assertEquals(50, values.size());
+        assertEquals(Integer.valueOf(-20), values.get(0));
+    }
+
+    @Test
+    public void testCloseInterrupted() throws Exception {
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("select slow(100) from item");
+            PrefetchResultSet prefetched = new PrefetchResultSet(resultSet, statement, 2, 2).start();
+            assertTrue(prefetched.next());
+            Thread.currentThread().interrupt();
+            try {
+                prefetched.close();
+                fail();
+            } catch (SQLException e) {
+                assertTrue(Thread.interrupted());
+            }
+            // closed by producer after it stopped
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!resultSet.isClosed() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(resultSet.isClosed());
+        }
+    }
+
+    @Test
+    public void testGetters() throws Exception {
+        database.update("create table typed(i int, b bigint, sm smallint, d decimal(30,4), tiny decimal(20,10), " +
+                "dbl double, r real, bo boolean, dt date, tm time, ts timestamp, v varchar(20), ch char(5), " +
+                "bin varchar(4) for bit data, cl clob)");
+        database.update("insert into typed values(?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)", 70000, 5000000000L, (short) 300,
+                new BigDecimal("12345678901234567890.5"), new BigDecimal("0.0000000100"), 1e300, 0.1f, true,
+                java.sql.Date.valueOf("2020-01-02"), java.sql.Time.valueOf("01:02:03"),
+                java.sql.Timestamp.valueOf("2020-01-02 01:02:03.5"), "12", "ab", new byte[]{1, -1}, "clob");
+        database.update("insert into typed(i) values(1)");
+        String[] getters = {"getString", "getInt", "getLong", "getShort", "getByte", "getDouble", "getFloat",
+                "getBigDecimal", "getBytes", "getDate", "getTime", "getTimestamp"};
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            for (String getter : getters) {
+                Method method = ResultSet.class.getMethod(getter, int.class);
+                try (ResultSet expected = statement.executeQuery("select * from typed order by i desc");
+                     ResultSet actual = new PrefetchResultSet(connection.createStatement()
+                             .executeQuery("select * from typed order by i desc"), statement, 1, 2).start()) {
+                    while (expected.next()) {
+                        assertTrue(actual.next());
+                        for (int column = 1; column <= expected.getMetaData().getColumnCount(); column++) {
+                            String type = expected.getMetaData().getColumnTypeName(column);
+                            if (getter.equals("getTimestamp") && type.equals("TIME")) {
+                                // derby uses the current date
+                                continue;
+                            }
+                            Object value = invoke(method, expected, column);
+                            Object prefetched = invoke(method, actual, column);
+                            String message = getter + " of " + type + ": " + value + ", " + prefetched;
+                            if (value instanceof Time) {
+                                // drivers differ in the millis kept from timestamp
+                                assertEquals(message, value.toString(), String.valueOf(prefetched));
+                            } else if (value instanceof byte[]) {
+                                assertArrayEquals(message, (byte[]) value, (byte[]) prefetched);
+                            } else if (value instanceof SQLException) {
+                                assertTrue(message, prefetched instanceof SQLException);
+                                assertEquals(message, ((SQLException) value).getSQLState(),
+                                        ((SQLException) prefetched).getSQLState());
+                            } else {
+                                assertEquals(message, value, prefetched);
+                                assertEquals(message, expected.wasNull(), actual.wasNull());
+                            }
+                        }
+                    }
+                    assertFalse(actual.next());
+                }
+            }
+        }
+    }
+
+    private static Object invoke(Method method, ResultSet resultSet, int column) throws IllegalAccessException {
+        try {
+            return method.invoke(resultSet, column);
+        } catch (InvocationTargetException e) {
+            return Objects.requireNonNull(e.getCause());
+        }
+    }
+
+    @Test
+    public void testIllegalPrefetch() {
+        for (int[] args : Arrays.asList(new int[]{0, 2}, new int[]{10, 1})) {
+            try {
+                database.query("select * from item").prefetch(args[0], args[1]);
+                fail();
+            } catch (IllegalArgumentException e) {
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.exception.UncheckedSQLException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RetryTest {
+    private Database database;
+
+    @Before
+    public void setUp() {
+        database = Database.of("jdbc:derby:memory:retryDB;create=true", null, null);
+        database.update("create table item(id int primary key, qty int)");
+        database.update("insert into item values(?,?)", 1, 0);
+        database.update("call SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY('derby.locks.waitTimeout', '1')");
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:retryDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testRetryLockTimeout() {
+        RetryPolicy policy = new RetryPolicy().maxAttempts(3).backoff(Duration.ZERO, Duration.ofMillis(10));
+        AtomicInteger attempts = new AtomicInteger();
+        Database.TransactionContext holder = database.startTransaction();
+        holder.update("update item set qty = qty + 1 where id = 1");
+        int updated = database.withTransaction(policy, tx -> {
+            if (attempts.incrementAndGet() == 2) {
+                // first attempt failed with lock timeout, release the lock
+                holder.commit();
+            }
+            return tx.update("update item set qty = qty + 10 where id = 1");
+        });
+        assertEquals(1, updated);
+        assertEquals(2, attempts.get());
+        assertEquals(1, policy.retries());
+        assertEquals(1, policy.recovered());
+        assertEquals(0, policy.exhausted());
+        assertEquals(Long.valueOf(11), database.query("select qty from item where id = 1").getLong());
+    }
+
+    @Test
+    public void testExhausted() {
+        RetryPolicy policy = new RetryPolicy().maxAttempts(3).backoff(Duration.ZERO, Duration.ZERO);
+        database.retryPolicy(policy);
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            database.withTransaction(tx -> {
+                tx.update("insert into item values(?,?)", 10 + attempts.incrementAndGet(), 0);
+                throw new UncheckedSQLException(new SQLException("serialization failure", "40001"));
+            });
+            fail();
+        } catch (UncheckedSQLException e) {
+            assertEquals("40001", ((SQLException) e.getCause()).getSQLState());
+        }
+        assertEquals(3, attempts.get());
+        assertEquals(2, policy.retries());
+        assertEquals(0, policy.recovered());
+        assertEquals(1, policy.exhausted());
+        // all attempts rolled back
+        assertEquals(Long.valueOf(1), database.query("select count(*) from item").getLong());
+    }
+
+    @Test
+    public void testNotRetryable() {
+        RetryPolicy policy = new RetryPolicy().backoff(Duration.ZERO, Duration.ZERO);
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            database.withTransaction(policy, tx -> {
+                attempts.incrementAndGet();
+                return tx.update("insert into item values(?,?)", 1, 0);
+            });
+            fail();
+        } catch (UncheckedSQLException e) {
+            assertTrue(e.getCause() instanceof SQLIntegrityConstraintViolationException);
+        }
+        assertEquals(1, attempts.get());
+        assertEquals(0, policy.retries());
+        assertEquals(0, policy.exhausted());
+    }
+
+    @Test
+    public void testIsRetryable() {
+        RetryPolicy policy = new RetryPolicy();
+        assertTrue(policy.isRetryable(new UncheckedSQLException(new SQLException("deadlock", "40XL2"))));
+        assertTrue(policy.isRetryable(new UncheckedSQLException(new SQLException("deadlock", "HY000", 1213))));
+        assertTrue(policy.isRetryable(new UncheckedSQLException(new SQLException("reset", "08S01"))));
+        assertTrue(policy.isRetryable(new RuntimeException(new UncheckedSQLException(
+                new SQLException("lock", "55P03")))));
+        SQLException chained = new SQLException("batch failed", "XJ208");
+        chained.setNextException(new SQLException("deadlock", "40001"));
+        assertTrue(policy.isRetryable(new UncheckedSQLException(chained)));
+
+        assertFalse(policy.isRetryable(new UncheckedSQLException(new SQLException("syntax", "42X01"))));
+        // query timeout, the statement may have been applied
+        assertFalse(policy.isRetryable(new UncheckedSQLException(new SQLException("timeout", "HYT00"))));
+        assertFalse(policy.isRetryable(new UncheckedSQLException(new SQLException("no state"))));
+        assertFalse(policy.isRetryable(new IllegalStateException()));
+    }
+
+    @Test
+    public void testConnectionFailureOnCommit() {
+        AtomicBoolean failCommit = new AtomicBoolean(true);
+        Database database = Database.of(linkFailingOnCommit(failCommit));
+        RetryPolicy policy = new RetryPolicy().backoff(Duration.ZERO, Duration.ZERO);
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            database.withTransaction(policy, tx -> {
+                attempts.incrementAndGet();
+                return tx.update("insert into item values(?,?)", 2, 0);
+            });
+            fail();
+        } catch (UncheckedSQLException e) {
+            assertEquals("08S01", ((SQLException) e.getCause()).getSQLState());
+        }
+        // outcome of commit is unknown, not retried
+        assertEquals(1, attempts.get());
+        assertEquals(0, policy.retries());
+        assertEquals(Long.valueOf(2), database.query("select count(*) from item").getLong());
+
+        // the same failure before commit is retried
+        failCommit.set(false);
+        attempts.set(0);
+        int updated = database.withTransaction(policy, tx -> {
+            tx.update("insert into item values(?,?)", 10 + attempts.get(), 0);
+            if (attempts.incrementAndGet() == 1) {
+                throw new UncheckedSQLException(new SQLException("link failure", "08S01"));
+            }
+            return 1;
+        });
+        assertEquals(1, updated);
+        assertEquals(2, attempts.get());
+        assertEquals(1, policy.retries());
+        assertEquals(Long.valueOf(3), database.query("select count(*) from item").getLong());
+    }
+
+    /**
+     * DataSource whose connections commit, then report a link failure, while failCommit is set
+     */
+    private static DataSource linkFailingOnCommit(AtomicBoolean failCommit) {
+        return (DataSource) Proxy.newProxyInstance(RetryTest.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("getConnection")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    Connection conn = DriverManager.getConnection("jdbc:derby:memory:retryDB");
+                    return Proxy.newProxyInstance(RetryTest.class.getClassLoader(), new Class<?>[]{Connection.class},
+                            (p, m, a) -> {
+                                Object result;
+                                try {
+                                    result = m.invoke(conn, a);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                                if (m.getName().equals("commit") && failCommit.get()) {
+                                    throw new SQLException("link failure", "08S01");
+                                }
+                                return result;
+                            });
+                });
+    }
+}
@@ -0,0 +1,197 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.exception.ColumnNotFoundException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RowViewTest {
+    private static final String clause = "select id, qty, price, rate, active, name, data from item order by id";
+
+    private Database database;
+
+    @Before
+    public void setUp() {
+        database = Database.of("jdbc:derby:memory:rowViewDB;create=true", null, null);
+        database.update("create table item(id bigint primary key, qty int, price decimal(10,2), rate double,"
+                + " active boolean, name varchar(20), data blob)");
+        database.update("insert into item values(?,?,?,?,?,?,?)", 1L, 3, new BigDecimal("9.50"), 0.5, true, "apple",
+                new byte[]{1, 2});
+        database.update("insert into item(id) values(2)");
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:rowViewDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testGetters() {
+        List<Object> values = new ArrayList<>();
+        long rows = database.query(clause + " fetch first 1 rows only").forEachRow(row -> {
+            assertEquals(7, row.columnCount());
+            assertEquals("QTY", row.columnName(1));
+            assertEquals(1, row.indexOf("qty"));
+            values.add(row.getLong("id"));
+            values.add(row.getInt(1));
+            values.add(row.getDecimal("price"));
+            values.add(row.getDouble("rate"));
+            values.add(row.getBoolean("active"));
+            values.add(row.getString("name"));
+            assertArrayEquals(new byte[]{1, 2}, row.getByteArray("data"));
+            for (int i = 0; i < row.columnCount() - 1; i++) {
+                assertFalse(row.isNull(i));
+            }
+        });
+        assertEquals(1, rows);
+        assertEquals(Arrays.asList(1L, 3, new BigDecimal("9.50"), 0.5, true, "apple"), values);
+    }
+
+    @Test
+    public void testNull() {
+        database.query(clause + " offset 1 rows").forEachRow(row -> {
+            // lob column can be read only once
+            for (int i = 1; i < row.columnCount() - 1; i++) {
+                assertTrue(row.isNull(i));
+                assertNull(row.getObject(i));
+            }
+            assertTrue(row.isNull("data"));
+            assertTrue(row.isNull("name"));
+            assertNull(row.getString("name"));
+            assertNull(row.getDecimal("price"));
+            for (String name : new String[]{"qty", "rate", "active"}) {
+                try {
+                    switch (name) {
+                        case "qty":
+                            row.getInt(name);
+                            break;
+                        case "rate":
+                            row.getDouble(name);
+                            break;
+                        default:
+                            row.getBoolean(name);
+                    }
+                    fail();
+                } catch (NullPointerException e) {
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testIsNullNotCreateObject() {
+        database.query(clause).handle(rs -> {
+            // getObject is not used for numeric and boolean columns
+            ResultSet noGetObject = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("getObject")) {
+                            throw new AssertionError("getObject called");
+                        }
+                        try {
+                            return method.invoke(rs, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+            RowView row = new RowView(noGetObject, new String[]{"ID", "QTY", "PRICE", "RATE", "ACTIVE", "NAME",
+                    "DATA"});
+            row.setValid(true);
+            while (rs.next()) {
+                boolean isNull = rs.getLong(1) == 2;
+                assertEquals(isNull, row.isNull(1));
+                assertEquals(isNull, row.isNull(3));
+                assertEquals(isNull, row.isNull(4));
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void testInvalidAccess() {
+        RowView[] holder = new RowView[1];
+        database.query(clause).forEachRow(row -> {
+            holder[0] = row;
+            try {
+                row.getObject(7);
+                fail();
+            } catch (IndexOutOfBoundsException e) {
+            }
+            try {
+                row.isNull(-1);
+                fail();
+            } catch (IndexOutOfBoundsException e) {
+            }
+            try {
+                row.getString("no_column");
+                fail();
+            } catch (ColumnNotFoundException e) {
+            }
+        });
+        // not valid after callback returned
+        try {
+            holder[0].getLong(0);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        try {
+            holder[0].isNull("id");
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        try {
+            holder[0].toRecord();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    @Test
+    public void testDuplicatedLabels() {
+        database.update("create table tag(id bigint, item_id bigint, name varchar(20))");
+        database.update("insert into tag values(?,?,?)", 10L, 1L, "fruit");
+        String clause = "select i.id, t.id, t.name, i.name from item i join tag t on t.item_id = i.id";
+        database.query(clause).forEachRow(row -> {
+            assertEquals(4, row.columnCount());
+            // the first column wins
+            assertEquals(0, row.indexOf("ID"));
+            assertEquals(1L, row.getLong("id"));
+            assertEquals(10L, row.getLong(1));
+            assertEquals("fruit", row.getString("name"));
+            assertEquals("apple", row.getString(3));
+        });
+    }
+
+    @Test
+    public void testToRecord() {
+        List<Record> records = new ArrayList<>();
+        database.query(clause).forEachRow(row -> records.add(row.toRecord()));
+        assertEquals(2, records.size());
+        Record record = records.get(0);
+        assertEquals(1, record.getLong("ID"));
+        assertEquals("apple", record.getString("name"));
+        assertEquals(new BigDecimal("9.50"), record.getObject("PRICE"));
+        assertEquals(2, records.get(1).getLong(0));
+        assertNull(records.get(1).getObject("qty"));
+        // same as the records of query
+        assertEquals(database.query(clause).getList().get(1).getObject("NAME"), records.get(1).getObject("name"));
+    }
+}
@@ -0,0 +1,85 @@
+package net.dongliu.dbutils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.DriverManager;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SpillTest {
+    private Database database;
+
+    @Before
+    public void setUp() {
+        database = Database.of("jdbc:derby:memory:spillDB;create=true", null, null);
+        database.update("create table item(id bigint not null, qty int, small smallint, ok boolean, price double, " +
+                "rate real, amount decimal(20,4), day date, clock time, created timestamp, name varchar(200), " +
+                "data varchar(10) for bit data)");
+        for (int i = 0; i < 300; i++) {
+            if (i % 7 == 0) {
+                database.update("insert into item(id) values(?)", (long) i);
+                continue;
+            }
+            database.update("insert into item values(?,?,?,?,?,?,?,?,?,?,?,?)", (long) i, -i, (short) i, i % 2 == 0,
+                    i / 3.0, i / 7f, new BigDecimal("-123456789.1234").add(BigDecimal.valueOf(i)),
+                    java.sql.Date.valueOf(LocalDate.of(2020, 1, 1).plusDays(i)),
+                    java.sql.Time.valueOf(LocalTime.of(i % 24, 2, 3)),
+                    java.sql.Timestamp.valueOf(LocalDateTime.of(2020, 1, 1, 1, 2, 3, i * 1000)),
+                    "名字-" + i + "-" + new String(new char[i % 50]).replace('\0', 'x'), new byte[]{(byte) i, 0, -1});
+        }
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:spillDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testSpill() {
+        List<Record> expected = database.query("select * from item order by id").getList();
+        List<Record> spilled = database.query("select * from item order by id").getList(4096);
+        assertTrue(spilled instanceof SpilledRecordList);
+        assertEquals(300, spilled.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Record record = spilled.get(i);
+            assertArrayEquals(expected.get(i).getNames(), record.getNames());
+            assertArrayEquals(expected.get(i).getValues(), record.getValues());
+        }
+        Record nullRow = spilled.get(7);
+        assertEquals(7L, nullRow.getLong("id"));
+        assertNull(nullRow.getObject("name"));
+        // random access, and repeated reads
+        assertEquals(expected.get(299).getValues()[10], spilled.get(299).getValues()[10]);
+        assertEquals(expected.get(3).getValues()[10], spilled.get(3).getValues()[10]);
+        try {
+            spilled.get(300);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+    }
+
+    @Test
+    public void testNotSpill() {
+        List<Record> list = database.query("select * from item order by id").getList(Long.MAX_VALUE);
+        assertFalse(list instanceof SpilledRecordList);
+        assertEquals(300, list.size());
+
+        List<Record> empty = database.query("select * from item where id < 0").getList(0);
+        assertTrue(empty.isEmpty());
+    }
+}
@@ -0,0 +1,143 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.exception.UncheckedSQLException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TimeoutTest {
+    private Database database;
+
+    @Before
+    public void setUp() {
+        database = Database.of("jdbc:derby:memory:timeoutDB;create=true", null, null);
+        database.update("create function slow(ms int) returns int parameter style java no sql language java " +
+                "external name 'net.dongliu.dbutils.TimeoutTest.slow'");
+        database.update("create table item(id int)");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            rows.add(new Object[]{i});
+        }
+        database.batchUpdate("insert into item values(?)", rows);
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:timeoutDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    /**
+     * Called by derby function, sleep and return the argument
+     */
+    public static int slow(int ms) throws InterruptedException {
+        Thread.sleep(ms);
+        return ms;
+    }
+
+    @Test
+    public void testQueryTimeout() {
+        long start = System.nanoTime();
+        try {
+            database.query("select slow(100) s from item order by s").timeout(Duration.ofSeconds(1)).getList();
+            fail();
+        } catch (UncheckedSQLException e) {
+            assertTimeout(e);
+        }
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(4).toNanos());
+
+        try (Stream<Record> stream = database.query("select slow(100) s from item order by s")
+                .timeout(Duration.ofSeconds(1)).asStream()) {
+            stream.forEach(r -> {
+            });
+            fail();
+        } catch (UncheckedSQLException e) {
+            assertTimeout(e);
+        }
+
+        assertEquals(3, database.query("select slow(1) from item where id < 3").timeout(Duration.ofSeconds(5))
+                .getList().size());
+    }
+
+    @Test
+    public void testDatabaseTimeout() {
+        database.timeout(Duration.ofSeconds(1));
+        try {
+            database.query("select slow(100) s from item order by s").getList();
+            fail();
+        } catch (UncheckedSQLException e) {
+            assertTimeout(e);
+        }
+        // the query setting overrides database default
+        assertEquals(50, database.query("select slow(1) from item").timeout(Duration.ofSeconds(30))
+                .getList().size());
+        database.timeout(null);
+        assertEquals(50, database.query("select slow(1) s from item order by s").getList().size());
+    }
+
+    @Test
+    public void testDeadline() {
+        try {
+            Deadline.withTimeout(Duration.ofMillis(1), () -> {
+                slowly(20);
+                return database.query("select id from item").getList();
+            });
+            fail();
+        } catch (UncheckedSQLException e) {
+            assertTimeout(e);
+        }
+        // deadline shrinks the longer query timeout
+        try {
+            Deadline.withTimeout(Duration.ofSeconds(1), () -> database.query("select slow(100) s from item order by s")
+                    .timeout(Duration.ofMinutes(1)).getList());
+            fail();
+        } catch (UncheckedSQLException e) {
+            assertTimeout(e);
+        }
+        assertEquals(Long.MAX_VALUE, Deadline.remainingNanos());
+    }
+
+    @Test
+    public void testIllegalTimeout() {
+        try {
+            database.query("select id from item").timeout(Duration.ZERO);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            database.timeout(Duration.ofSeconds(-1));
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    private static void assertTimeout(UncheckedSQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTimeoutException) {
+                return;
+            }
+        }
+        throw new AssertionError("not timeout", e);
+    }
+
+    private static void slowly(int ms) {
+        try {
+            slow(ms);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package net.dongliu.dbutils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TunerTest {
+    private Database database;
+    private AdaptiveTuner tuner;
+
+    @Before
+    public void setUp() {
+        database = Database.of("jdbc:derby:memory:tunerDB;create=true", null, null);
+        database.update("create table item(id int primary key, name varchar(100))");
+        tuner = new AdaptiveTuner().targetBytes(1000).batchSize(16, 1000, 100);
+        database.tuner(tuner);
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:tunerDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testFetchSize() {
+        database.batchUpdate("insert into item values(?,?)", rows(0, 300));
+        String clause = "select * from item where id < 200";
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, database.query(clause).getList().size());
+        }
+        AdaptiveTuner.Stats stats = tuner.stats(clause);
+        assertEquals(3, stats.queries());
+        assertEquals(200, stats.avgRows(), 0.001);
+        assertTrue(stats.rowWidth() > 0);
+        // fetch size fits target bytes
+        assertTrue(stats.fetchSize() > 0 && stats.fetchSize() <= 1000 / stats.rowWidth() + 1);
+
+        // query with fetch size set is not tuned, but recorded
+        assertEquals(200, database.query(clause).fetchSize(5).getList().size());
+        assertEquals(4, tuner.stats(clause).queries());
+    }
+
+    @Test
+    public void testFetchTimeExcludesProcessing() {
+        database.batchUpdate("insert into item values(?,?)", rows(0, 10));
+        String clause = "select * from item";
+        try (Stream<Record> stream = database.query(clause).asStream()) {
+            stream.forEach(r -> sleep(20));
+        }
+        // 200ms spent in processing rows is not counted as fetching time
+        assertTrue(tuner.stats(clause).roundTripNanos() < TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void testBatchChunks() {
+        String clause = "insert into item values(?,?)";
+        // single batch in auto-commit mode, not committed partially by chunks
+        database.batchUpdate(clause, rows(0, 250));
+        assertNull(tuner.stats(clause));
+
+        int[] counts = database.withTransaction(tx -> tx.batchUpdate(clause, rows(250, 500)));
+        assertEquals(250, counts.length);
+        for (int count : counts) {
+            assertEquals(1, count);
+        }
+        // executed by chunks, the chunk size is capped by target bytes
+        AdaptiveTuner.Stats stats = tuner.stats(clause);
+        assertTrue(stats.batches() > 2);
+        assertTrue(stats.batchSize() >= 16 && stats.batchSize() < 100);
+        assertEquals(Long.valueOf(500), database.query("select count(*) from item").getLong());
+
+        database.upsert("item", new String[]{"id"}, new String[]{"id", "name"}, rows(400, 650));
+        assertEquals(Long.valueOf(650), database.query("select count(*) from item").getLong());
+    }
+
+    @Test
+    public void testFetchSizeReplacedByDialect() {
+        database.batchUpdate("insert into item values(?,?)", rows(0, 10));
+        // MySQL driver streams only with fetch size Integer.MIN_VALUE, learned fetch size would not take effect
+        database.dialect(Dialect.MYSQL);
+        String clause = "select * from item";
+        for (int i = 0; i < 3; i++) {
+            assertEquals(10, database.query(clause).getList().size());
+        }
+        assertNull(tuner.stats(clause));
+        assertTrue(Dialect.MYSQL.replacesFetchSize("jdbc:mysql://localhost/test"));
+        assertFalse(Dialect.MYSQL.replacesFetchSize("jdbc:mysql://localhost/test?useCursorFetch=true"));
+        assertFalse(Dialect.POSTGRESQL.replacesFetchSize("jdbc:postgresql://localhost/test"));
+    }
+
+    @Test
+    public void testStatsBounded() {
+        for (int i = 0; i < 3000; i++) {
+            // literals in identifiers are not normalized
+            tuner.recordQuery(SQLFingerprint.of("select * from item_" + i + "_x"), 10, 1, 0, 1000);
+        }
+        assertTrue(tuner.stats().size() <= 1024);
+        assertEquals(1, tuner.stats("select * from item_2999_x").queries());
+    }
+
+    private static List<Object[]> rows(int from, int to) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            rows.add(new Object[]{i, "name" + i});
+        }
+        return rows;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.exception.UncheckedSQLException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class UpsertTest {
+    private static final String[] keys = {"id"};
+    private static final String[] columns = {"id", "name", "age"};
+
+    private Database database;
+
+    @Before
+    public void setUp() {
+        database = Database.of("jdbc:derby:memory:upsertDB;create=true", null, null);
+        database.update("create table student(id bigint primary key, name varchar(20), age int)");
+        database.update("create table score(student_id bigint not null, course varchar(20) not null, score int, " +
+                "primary key(student_id, course))");
+        database.update("insert into student values(?,?,?)", 1L, "Jack", 10);
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:upsertDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testUpsert() {
+        int[] counts = database.upsert("student", keys, columns, Arrays.asList(
+                new Object[]{1L, "Jack", 11},
+                new Object[]{2L, "Rose", 12},
+                new Object[]{3L, null, null}));
+        assertEquals(3, counts.length);
+        assertEquals(Long.valueOf(3), database.query("select count(*) from student").getLong());
+        assertEquals(Long.valueOf(11), database.query("select age from student where id = 1").getLong());
+        assertEquals("Rose", database.query("select name from student where id = 2").getString());
+        assertNull(database.query("select name from student where id = 3").getOne().getObject("NAME"));
+
+        // update again, with null values
+        database.upsert("student", keys, columns, Arrays.<Object[]>asList(new Object[]{2L, null, 13}));
+        Record rose = database.query("select * from student where id = 2").getOne();
+        assertNull(rose.getObject("NAME"));
+        assertEquals(13, rose.getInt("AGE"));
+    }
+
+    @Test
+    public void testCompositeKeys() {
+        String[] keyColumns = {"student_id", "course"};
+        String[] scoreColumns = {"student_id", "course", "score"};
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            rows.add(new Object[]{(long) (i % 600), i < 600 ? "math" : "art", i});
+        }
+        // more than one batch chunk
+        database.upsert("score", keyColumns, scoreColumns, rows);
+        rows.clear();
+        rows.add(new Object[]{1L, "math", 100});
+        rows.add(new Object[]{1L, "music", 60});
+        database.upsert("score", keyColumns, scoreColumns, rows);
+        assertEquals(Long.valueOf(1201), database.query("select count(*) from score").getLong());
+        assertEquals(Long.valueOf(100), database.query("select score from score where student_id = 1 and course = ?",
+                "math").getLong());
+        assertEquals(Long.valueOf(601), database.query("select score from score where student_id = 1 and course = ?",
+                "art").getLong());
+    }
+
+    @Test
+    public void testKeysOnly() {
+        database.upsert("student", keys, keys, Arrays.asList(new Object[]{1L}, new Object[]{4L}));
+        assertEquals(Long.valueOf(2), database.query("select count(*) from student").getLong());
+        assertEquals("Jack", database.query("select name from student where id = 1").getString());
+    }
+
+    @Test
+    public void testTimeout() {
+        try {
+            Deadline.withTimeout(Duration.ofMillis(1), () -> {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return database.upsert("student", keys, columns, Arrays.<Object[]>asList(new Object[]{2L, "Tom", 9}));
+            });
+            fail();
+        } catch (UncheckedSQLException e) {
+            assertTrue(e.getCause() instanceof SQLTimeoutException);
+        }
+        assertEquals(Long.valueOf(1), database.query("select count(*) from student").getLong());
+    }
+
+    @Test
+    public void testIllegalRow() {
+        try {
+            database.upsert("student", keys, columns, Arrays.<Object[]>asList(new Object[]{1L, "Jack"}));
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        assertEquals(0, database.upsert("student", keys, columns, new ArrayList<>()).length);
+    }
+}
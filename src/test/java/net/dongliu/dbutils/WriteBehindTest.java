@@ -0,0 +1,147 @@
+package net.dongliu.dbutils;
+
+import net.dongliu.dbutils.WriteBehindQueue.OverflowPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class WriteBehindTest {
+    private Database database;
+
+    @Before
+    public void setUp() {
+        database = Database.of("jdbc:derby:memory:writeBehindDB;create=true", null, null);
+        database.update("create table item(id int primary key, qty int)");
+        database.update("insert into item values(?,?)", 0, 0);
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:writeBehindDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testFlush() throws InterruptedException {
+        try (WriteBehindQueue queue = database.writeBehindQueue().flushSize(10)
+                .flushInterval(Duration.ofMillis(50))) {
+            for (int i = 1; i <= 25; i++) {
+                queue.submit(new SQL("insert into item values(?,?)", new Object[]{i, i}));
+                // the same clause executed in order
+                queue.submit(new SQL("update item set qty = ? where id = 0", new Object[]{i}));
+            }
+            // flushed by interval
+            long deadline = System.currentTimeMillis() + 5000;
+            while (queue.flushedRows() < 50 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(50, queue.flushedRows());
+            assertEquals(Long.valueOf(26), database.query("select count(*) from item").getLong());
+            assertEquals(Long.valueOf(25), database.query("select qty from item where id = 0").getLong());
+
+            queue.submit(new BatchSQL("insert into item values(?,?)",
+                    Arrays.asList(new Object[]{100, 1}, new Object[]{101, 1})));
+        }
+        // flushed by close
+        assertEquals(Long.valueOf(28), database.query("select count(*) from item").getLong());
+    }
+
+    @Test
+    public void testFailure() {
+        List<BatchSQL> failed = new ArrayList<>();
+        WriteBehindQueue queue = database.writeBehindQueue().onFailure((sql, e) -> failed.add(sql));
+        queue.submit(new SQL("insert into item values(?,?)", new Object[]{0, 1}));
+        queue.submit(new SQL("update item set qty = ? where id = 0", new Object[]{1}));
+        queue.close();
+        assertEquals(1, queue.failedRows());
+        assertEquals(1, queue.flushedRows());
+        assertEquals(1, failed.size());
+        assertEquals("insert into item values(?,?)", failed.get(0).clause());
+        try {
+            queue.submit(new SQL("update item set qty = ? where id = 0", new Object[]{2}));
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    @Test
+    public void testOverflow() {
+        try (WriteBehindQueue queue = database.writeBehindQueue().capacity(1)
+                .flushInterval(Duration.ofHours(1)).overflowPolicy(OverflowPolicy.DISCARD)) {
+            queue.submit(new SQL("update item set qty = ? where id = 0", new Object[]{1}));
+            queue.submit(new SQL("update item set qty = ? where id = 0", new Object[]{2}));
+            assertEquals(1, queue.discardedRows());
+        }
+        assertEquals(Long.valueOf(1), database.query("select qty from item where id = 0").getLong());
+
+        try (WriteBehindQueue queue = database.writeBehindQueue().capacity(1)
+                .flushInterval(Duration.ofHours(1)).overflowPolicy(OverflowPolicy.THROW)) {
+            queue.submit(new SQL("update item set qty = ? where id = 0", new Object[]{1}));
+            try {
+                queue.submit(new SQL("update item set qty = ? where id = 0", new Object[]{2}));
+                fail();
+            } catch (IllegalStateException e) {
+            }
+        }
+    }
+
+    @Test
+    public void testCallerRunsKeepOrder() {
+        try (WriteBehindQueue queue = database.writeBehindQueue().capacity(3)
+                .flushInterval(Duration.ofHours(1)).overflowPolicy(OverflowPolicy.CALLER_RUNS)) {
+            for (int i = 1; i <= 10; i++) {
+                queue.submit(new SQL("update item set qty = ? where id = 0", new Object[]{i}));
+                // pending rows flushed before the caller run one
+                assertEquals(Long.valueOf(i < 4 ? 0 : i / 4 * 4),
+                        database.query("select qty from item where id = 0").getLong());
+            }
+            assertEquals(8, queue.flushedRows());
+        }
+        assertEquals(Long.valueOf(10), database.query("select qty from item where id = 0").getLong());
+    }
+
+    @Test
+    public void testCallerRunsNotInCallerTransaction() {
+        try (WriteBehindQueue queue = database.writeBehindQueue().capacity(1)
+                .flushInterval(Duration.ofHours(1)).overflowPolicy(OverflowPolicy.CALLER_RUNS)) {
+            database.withConnection(db -> {
+                Database.TransactionContext tx = db.startTransaction();
+                tx.update("update item set qty = 100 where id = 0");
+                queue.submit(new SQL("insert into item values(?,?)", new Object[]{10, 1}));
+                // both flushed in caller thread, on its own connection, not in the transaction of caller
+                queue.submit(new SQL("insert into item values(?,?)", new Object[]{11, 1}));
+                assertEquals(2, queue.flushedRows());
+                tx.rollback();
+                return null;
+            });
+        }
+        assertEquals(Long.valueOf(0), database.query("select qty from item where id = 0").getLong());
+        assertEquals(Long.valueOf(2), database.query("select count(*) from item where id >= 10").getLong());
+    }
+
+    @Test
+    public void testIllegalSettings() {
+        WriteBehindQueue queue = database.writeBehindQueue();
+        try {
+            queue.flushInterval(Duration.ZERO);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            queue.flushInterval(Duration.ofSeconds(-1));
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package net.dongliu.dbutils.mapper;
+
+import net.dongliu.dbutils.Database;
+import net.dongliu.dbutils.exception.BeanMappingException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OneToManyMapperTest {
+    private static final OneToManyMapper<Order, OrderLine> mapper = OneToManyMapper.of(Order.class, "o_", "id",
+            OrderLine.class, "l_", Order::addLine);
+    private static final String join = "select o.id o_id, o.code o_code, l.id l_id, l.sku l_sku, l.unit_price " +
+            "l_unit_price from orders o left join order_line l on o.id = l.order_id ";
+
+    private Database database;
+
+    @Before
+    public void setUp() {
+        database = Database.of("jdbc:derby:memory:oneToManyDB;create=true", null, null);
+        database.update("create table orders(id bigint primary key, code varchar(20))");
+        database.update("create table order_line(id bigint primary key, order_id bigint, sku varchar(20), " +
+                "unit_price decimal(10,2))");
+        database.update("insert into orders values(1, 'A'), (2, 'B'), (3, 'C')");
+        database.update("insert into order_line values(10, 1, 'apple', 1.50), (11, 1, 'pear', null), " +
+                "(12, 3, 'plum', 2.00)");
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:oneToManyDB;drop=true");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testSorted() {
+        List<Order> orders = database.query(join + "order by o.id, l.id").handle(mapper);
+        assertEquals(3, orders.size());
+        assertEquals("A", orders.get(0).code);
+        assertEquals("apple,pear", skus(orders.get(0)));
+        assertEquals(new BigDecimal("1.50"), orders.get(0).lines.get(0).unitPrice);
+        assertNull(orders.get(0).lines.get(1).unitPrice);
+        // left join row with child columns all null adds no child
+        assertEquals(2, orders.get(1).id);
+        assertTrue(orders.get(1).lines.isEmpty());
+        assertEquals("plum", skus(orders.get(2)));
+    }
+
+    @Test
+    public void testUnsorted() {
+        List<Order> orders = database.query(join + "order by l.id desc nulls last").handle(mapper);
+        // parents in the order first appeared, with children merged
+        assertEquals("3,1,2", orders.stream().map(o -> String.valueOf(o.id)).collect(Collectors.joining(",")));
+        assertEquals("pear,apple", skus(orders.get(1)));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertTrue(database.query(join + "where o.id < 0").handle(mapper).isEmpty());
+    }
+
+    @Test
+    public void testPrefixOfPrefix() {
+        OneToManyMapper<Order, OrderLine> nested = OneToManyMapper.of(Order.class, "o_", "id", OrderLine.class,
+                "o_l_", Order::addLine);
+        List<Order> orders = database.query("select o.id o_id, o.code o_code, l.id o_l_id, l.sku o_l_sku " +
+                "from orders o join order_line l on o.id = l.order_id order by l.id").handle(nested);
+        assertEquals(2, orders.size());
+        assertEquals(1, orders.get(0).id);
+        assertEquals("A", orders.get(0).code);
+        assertEquals(10, orders.get(0).lines.get(0).id);
+        assertEquals("apple,pear", skus(orders.get(0)));
+    }
+
+    @Test
+    public void testIllegal() {
+        database.update("insert into order_line values(13, 9, 'orphan', null)");
+        try {
+            database.query("select o.id o_id, l.id l_id from order_line l left join orders o on o.id = l.order_id")
+                    .handle(mapper);
+            fail();
+        } catch (BeanMappingException e) {
+            assertEquals("parent key is null: o_id", e.getMessage());
+        }
+        try {
+            database.query("select o.code o_code, l.id l_id from orders o join order_line l on o.id = l.order_id")
+                    .handle(mapper);
+            fail();
+        } catch (BeanMappingException e) {
+        }
+        try {
+            OneToManyMapper.of(Order.class, "O_", "id", OrderLine.class, "o_", Order::addLine);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testLongIndexMap() {
+        LongIndexMap map = new LongIndexMap();
+        List<Long> keys = new ArrayList<>();
+        keys.add(0L);
+        keys.add(Long.MIN_VALUE);
+        keys.add(Long.MAX_VALUE);
+        for (long i = 1; i <= 10000; i++) {
+            keys.add(i % 2 == 0 ? i << 32 : -i);
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(-1, map.get(keys.get(i)));
+            map.put(keys.get(i), i);
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(i, map.get(keys.get(i)));
+        }
+        assertEquals(-1, map.get(1));
+    }
+
+    private static String skus(Order order) {
+        return order.lines.stream().map(l -> l.sku).collect(Collectors.joining(","));
+    }
+
+    public static class Order {
+        public long id;
+        public String code;
+        public final List<OrderLine> lines = new ArrayList<>();
+
+        public void addLine(OrderLine line) {
+            lines.add(line);
+        }
+    }
+
+    public static class OrderLine {
+        public long id;
+        public String sku;
+        public BigDecimal unitPrice;
+    }
+}